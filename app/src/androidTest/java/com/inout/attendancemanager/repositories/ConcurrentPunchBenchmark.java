@@ -0,0 +1,182 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Commit latency and retries under concurrent punches on one day: read-modify-write transaction
+ * vs. revision-checked single batch. Every device is its own FirebaseApp (own cache) and keeps a
+ * listener on the day, as the dashboard does.
+ * Runs against the Firestore emulator with the rules from {@link AttendanceLayout#FIELD_PRECONDITION_WRITES} loaded:
+ * -e firestoreEmulator 10.0.2.2:8080
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentPunchBenchmark {
+
+    private static final String TAG = "ConcurrentPunchBenchmark";
+    private static final int DEVICES = 3;
+    private static final int ROUNDS = 10;
+    private static final long BASE_TIME = 1_736_154_000_000L;
+
+    private final List<FirebaseApp> apps = new ArrayList<>();
+    private final List<ListenerRegistration> listeners = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong();
+    private String userId;
+
+    @Before
+    public void setUp() {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String emulator = args.getString("firestoreEmulator");
+        assumeTrue("Firestore emulator not configured", emulator != null);
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String[] hostPort = emulator.split(":");
+        for (int i = 0; i < DEVICES; i++) {
+            FirebaseApp app = FirebaseApp.initializeApp(context, FirebaseApp.getInstance().getOptions(),
+                    "bench-device-" + i + "-" + UUID.randomUUID());
+            FirebaseFirestore.getInstance(app).useEmulator(hostPort[0], Integer.parseInt(hostPort[1]));
+            apps.add(app);
+        }
+        userId = "bench-" + UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() {
+        for (ListenerRegistration l : listeners) l.remove();
+        for (FirebaseApp app : apps) {
+            FirebaseFirestore.getInstance(app).terminate();
+            app.delete();
+        }
+    }
+
+    @Test
+    public void concurrentPunches() throws Exception {
+        Run transaction = run("2025-01-06", false);
+        Run precondition = run("2025-01-07", true);
+
+        Log.i(TAG, String.format(Locale.US,
+                "transaction: median %d ms, p95 %d ms, %d retries | "
+                        + "precondition: median %d ms, p95 %d ms, %d fallbacks, %d retries",
+                transaction.medianMs, transaction.p95Ms, transaction.retries,
+                precondition.medianMs, precondition.p95Ms, precondition.fallbacks, precondition.retries));
+
+        // Both paths must keep every session; a lost update shows up here
+        assertEquals(DEVICES * ROUNDS, transaction.sessions);
+        assertEquals(DEVICES * ROUNDS, precondition.sessions);
+        assertEquals(transaction.totalMinutes, precondition.totalMinutes);
+    }
+
+    private Run run(String dateId, boolean precondition) throws Exception {
+        List<FirestoreDayStore> stores = new ArrayList<>();
+        for (FirebaseApp app : apps) {
+            FirebaseFirestore db = FirebaseFirestore.getInstance(app);
+            stores.add(precondition ? new PreconditionDayStore(db) : new FirestoreDayStore(db));
+            listeners.add(stores.get(stores.size() - 1).dayRef(userId, dateId)
+                    .addSnapshotListener((snap, e) -> { }));
+        }
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(DEVICES);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> commits = new ArrayList<>();
+                for (FirestoreDayStore store : stores) {
+                    List<PunchEntry> pair = Arrays.asList(punch(dateId, PunchEntry.TYPE_IN),
+                            punch(dateId, PunchEntry.TYPE_OUT));
+                    commits.add(pool.submit(() -> {
+                        start.await();
+                        long t0 = System.nanoTime();
+                        store.commit(userId, dateId, pair);
+                        latencies.add((System.nanoTime() - t0) / 1_000_000L);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> f : commits) f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int attempts = 0;
+        int fallbacks = 0;
+        for (FirestoreDayStore store : stores) {
+            attempts += store.getTransactionAttempts();
+            if (store instanceof PreconditionDayStore) {
+                fallbacks += ((PreconditionDayStore) store).getFallbacks();
+            }
+        }
+        // Each transactional commit runs at least once; anything beyond that is a retry
+        int transactional = precondition ? fallbacks : DEVICES * ROUNDS;
+
+        DocumentSnapshot snap = Tasks.await(stores.get(0).dayRef(userId, dateId).get());
+        Attendance day = snap.toObject(Attendance.class);
+
+        long[] sorted = new long[latencies.size()];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = latencies.get(i);
+        Arrays.sort(sorted);
+        return new Run(sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.95)],
+                attempts - transactional, fallbacks,
+                day != null && day.getSessions() != null ? day.getSessions().size() : 0,
+                day != null ? day.getTotalMinutes() : -1);
+    }
+
+    // IN and OUT one minute apart, later than every punch before
+    private PunchEntry punch(String dateId, String type) {
+        long at = BASE_TIME + clock.incrementAndGet() * 60_000L;
+        PunchEntry e = new PunchEntry(UUID.randomUUID().toString(), userId, dateId, type, at);
+        e.setDeviceId("bench");
+        return e;
+    }
+
+    private static final class Run {
+        final long medianMs;
+        final long p95Ms;
+        final int retries;
+        final int fallbacks;
+        final int sessions;
+        final long totalMinutes;
+
+        Run(long medianMs, long p95Ms, int retries, int fallbacks, int sessions, long totalMinutes) {
+            this.medianMs = medianMs;
+            this.p95Ms = p95Ms;
+            this.retries = retries;
+            this.fallbacks = fallbacks;
+            this.sessions = sessions;
+            this.totalMinutes = totalMinutes;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.utils.Constants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Side-by-side 12-month history load: one document per day vs. one bundle per month.
+ * Runs against the Firestore emulator, enabled with
+ * -e firestoreEmulator 10.0.2.2:8080
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryLoadBenchmark {
+
+    private static final String TAG = "HistoryLoadBenchmark";
+    private static final int MONTHS = 12;
+    private static final int RUNS = 5;
+
+    private Context context;
+    private FirebaseFirestore db;
+    private String userId;
+    private List<String> monthIds;
+    private boolean previousLayout;
+
+    @Before
+    public void setUp() throws Exception {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String emulator = args.getString("firestoreEmulator");
+        assumeTrue("Firestore emulator not configured", emulator != null);
+
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        previousLayout = AttendanceLayout.isMonthBundles(context);
+        db = FirebaseFirestore.getInstance();
+        String[] hostPort = emulator.split(":");
+        try {
+            db.useEmulator(hostPort[0], Integer.parseInt(hostPort[1]));
+        } catch (IllegalStateException ignored) {
+            // Already pointed at the emulator by an earlier test in this process
+        }
+
+        userId = "bench-" + UUID.randomUUID();
+        monthIds = seedDays();
+        assertEquals(MONTHS, (int) Tasks.await(new MonthBundleMigrator(context, userId).migrate()));
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) AttendanceLayout.setMonthBundles(context, previousLayout);
+    }
+
+    @Test
+    public void twelveMonthHistory() throws Exception {
+        Result days = measure(false);
+        Result bundles = measure(true);
+
+        Log.i(TAG, String.format(Locale.US,
+                "12-month history: day docs %d snapshots, median %d ms | month bundles %d snapshots, median %d ms",
+                days.reads, days.medianMs, bundles.reads, bundles.medianMs));
+
+        assertEquals(days.dayCount, bundles.dayCount);
+        assertEquals(days.dayCount, days.reads);
+        assertEquals(MONTHS, bundles.reads);
+        assertTrue(bundles.reads < days.reads);
+    }
+
+    private Result measure(boolean monthBundles) throws Exception {
+        AttendanceLayout.setMonthBundles(context, monthBundles);
+        AttendanceRepository repository = new AttendanceRepository(context, userId);
+
+        long[] elapsed = new long[RUNS];
+        int dayCount = 0;
+        int reads = 0;
+        for (int i = 0; i < RUNS; i++) {
+            repository.snapshotsRead.set(0);
+            long start = System.nanoTime();
+            dayCount = Tasks.await(repository.loadHistory(monthIds)).size();
+            elapsed[i] = (System.nanoTime() - start) / 1_000_000L;
+            reads = repository.snapshotsRead.get();
+        }
+        Arrays.sort(elapsed);
+
+        // Document snapshots the loads got back; Firestore also bills one read per empty query
+        return new Result(reads, elapsed[RUNS / 2], dayCount);
+    }
+
+    // Weekdays of the last 12 months, written as day documents
+    private List<String> seedDays() throws Exception {
+        List<String> months = new ArrayList<>();
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.add(Calendar.MONTH, -(MONTHS - 1));
+
+        for (int m = 0; m < MONTHS; m++) {
+            String monthId = String.format(Locale.US, "%04d-%02d",
+                    cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+            months.add(monthId);
+
+            WriteBatch batch = db.batch();
+            int lastDay = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
+            for (int d = 1; d <= lastDay; d++) {
+                cal.set(Calendar.DAY_OF_MONTH, d);
+                int weekday = cal.get(Calendar.DAY_OF_WEEK);
+                if (weekday == Calendar.SATURDAY || weekday == Calendar.SUNDAY) continue;
+
+                String dateId = String.format(Locale.US, "%s-%02d", monthId, d);
+                batch.set(db.collection(Constants.COLLECTION_ATTENDANCE)
+                        .document(userId)
+                        .collection("days")
+                        .document(dateId), seedDay(dateId, cal));
+            }
+            Tasks.await(batch.commit());
+
+            cal.set(Calendar.DAY_OF_MONTH, 1);
+            cal.add(Calendar.MONTH, 1);
+        }
+        return months;
+    }
+
+    private Attendance seedDay(String dateId, Calendar day) {
+        Calendar in = (Calendar) day.clone();
+        in.set(Calendar.HOUR_OF_DAY, 9);
+        in.set(Calendar.MINUTE, 0);
+        Calendar out = (Calendar) in.clone();
+        out.add(Calendar.MINUTE, (int) PunchMerger.TARGET_MINUTES);
+
+        Attendance att = new Attendance();
+        att.setUserId(userId);
+        att.setDateId(dateId);
+        att.setMethod("manual");
+        att.setStatus(PunchMerger.STATUS_COMPLETE);
+        att.setInTime(in.getTime());
+        att.setOutTime(out.getTime());
+        att.setFirstInTime(in.getTime());
+        att.setLastOutTime(out.getTime());
+        att.setTotalMinutes(PunchMerger.TARGET_MINUTES);
+        att.setCreatedAt(in.getTime());
+        return att;
+    }
+
+    private static final class Result {
+        final long reads;
+        final long medianMs;
+        final int dayCount;
+
+        Result(long reads, long medianMs, int dayCount) {
+            this.reads = reads;
+            this.medianMs = medianMs;
+            this.dayCount = dayCount;
+        }
+    }
+}
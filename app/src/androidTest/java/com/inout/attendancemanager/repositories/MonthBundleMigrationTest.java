@@ -0,0 +1,113 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * MonthBundleMigrator against punches made around it: a second run must not undo punches made on
+ * the bundles since the first, and a punch written to a day document while the migration runs must
+ * end up in the bundle. Runs against the Firestore emulator, enabled with
+ * -e firestoreEmulator 10.0.2.2:8080
+ */
+@RunWith(AndroidJUnit4.class)
+public class MonthBundleMigrationTest {
+
+    private static final String DAY = "2025-01-06";
+    private static final String MONTH = "2025-01";
+    private static final long NINE_AM = 1736154000000L;
+
+    private Context context;
+    private String userId;
+    private boolean previousLayout;
+    private int seq;
+
+    @Before
+    public void setUp() {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String emulator = args.getString("firestoreEmulator");
+        assumeTrue("Firestore emulator not configured", emulator != null);
+
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        previousLayout = AttendanceLayout.isMonthBundles(context);
+        String[] hostPort = emulator.split(":");
+        try {
+            FirebaseFirestore.getInstance().useEmulator(hostPort[0], Integer.parseInt(hostPort[1]));
+        } catch (IllegalStateException ignored) {
+            // Already pointed at the emulator by an earlier test in this process
+        }
+        userId = "migrate-" + UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) AttendanceLayout.setMonthBundles(context, previousLayout);
+    }
+
+    @Test
+    public void rerunKeepsPunchesMadeOnTheBundle() throws Exception {
+        new FirestoreDayStore().commit(userId, DAY, Collections.singletonList(punch(PunchEntry.TYPE_IN, 0)));
+        assertEquals(1, (int) Tasks.await(new MonthBundleMigrator(context, userId).migrate()));
+
+        new MonthBundleDayStore().commit(userId, DAY, Collections.singletonList(punch(PunchEntry.TYPE_OUT, 540)));
+        assertEquals(0, (int) Tasks.await(new MonthBundleMigrator(context, userId).migrate()));
+
+        Attendance day = bundledDay();
+        assertEquals(PunchMerger.STATUS_COMPLETE, day.getStatus());
+        assertEquals(540L, day.getTotalMinutes());
+    }
+
+    @Test
+    public void punchDuringMigrationReachesTheBundle() throws Exception {
+        new FirestoreDayStore().commit(userId, DAY, Collections.singletonList(punch(PunchEntry.TYPE_IN, 0)));
+
+        // A replay that read the layout before the hold went up, still writing day documents
+        Task<Integer> migration = new MonthBundleMigrator(context, userId).migrate();
+        new FirestoreDayStore().commit(userId, DAY, Collections.singletonList(punch(PunchEntry.TYPE_OUT, 480)));
+        Tasks.await(migration);
+
+        Attendance day = bundledDay();
+        assertEquals(PunchMerger.STATUS_COMPLETE, day.getStatus());
+        assertEquals(480L, day.getTotalMinutes());
+        assertNull(day.getOpenSession());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void replaysWaitWhileMigrating() throws Exception {
+        Tasks.await(AttendanceLayout.setMigrating(userId, true));
+        AttendanceLayout.refreshForWrite(context, userId);
+    }
+
+    private Attendance bundledDay() throws Exception {
+        DocumentSnapshot month = Tasks.await(new MonthBundleDayStore().monthRef(userId, MONTH).get());
+        Attendance day = MonthBundleDayStore.dayOf(month, DAY);
+        assertNotNull(day);
+        return day;
+    }
+
+    private PunchEntry punch(String type, int minuteOffset) {
+        return new PunchEntry("p" + (seq++), userId, DAY, type, NINE_AM + minuteOffset * 60_000L);
+    }
+}
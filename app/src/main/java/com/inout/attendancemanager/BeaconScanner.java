@@ -4,28 +4,49 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
 import android.bluetooth.le.ScanSettings;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.core.app.ActivityCompat;
 
 import com.inout.attendancemanager.models.BeaconConfig;
 import com.inout.attendancemanager.models.BeaconScanResult;
 
-import java.util.HashMap;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Foreground beacon scan. The BLE callback only hands raw adverts to a per-scan worker
+ * HandlerThread through an {@link AdvertQueue}; decoding, confirmation, recording and logging run
+ * there. The UI callback gets at most one coalesced beacon update per frame, and all callbacks
+ * arrive on the main thread.
+ */
 public class BeaconScanner {
     private static final String TAG = "BeaconScanner";
     private static final long SCAN_TIMEOUT_MS = 6000; // 6 seconds
+    // A low-latency scan rarely exceeds ~100 adverts/s; this is seconds of backlog
+    private static final int QUEUE_CAPACITY = 512;
+    private static final long FRAME_MS = 16;
+    // A filtered scan that has delivered nothing by now is retried without filters
+    private static final long FILTER_PROBE_MS = 2500;
+    private static final String KEY_FILTERS_UNRELIABLE = "beacon_filters_unreliable";
 
     public interface ScanCallback {
         void onScanStarted();
@@ -36,24 +57,66 @@ public class BeaconScanner {
 
     private final Context context;
     private final ScanCallback callback;
-    private final List<BeaconConfig> beaconConfigs;
+    private final BeaconDecisionPipeline pipeline;
+    private final List<ScanFilter> scanFilters;
+
+    private final AdvertQueue queue = new AdvertQueue(QUEUE_CAPACITY);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Latest beacon update not yet shown; replaced, not queued, while a frame is pending
+    private final AtomicReference<BeaconScanResult> pendingUpdate = new AtomicReference<>();
+    private final Runnable drainRunnable = this::drain;
+    private final Runnable flushRunnable = this::flushUpdate;
+    private final Handler mainHandler;
 
     private BluetoothLeScanner bleScanner;
-    private Handler scanHandler;
+    // Per scan; everything below but deliveredCount is touched on this thread only
+    private HandlerThread workerThread;
+    private Handler worker;
     private Runnable scanTimeoutRunnable;
-    private boolean isScanning = false;
-
-    private Map<String, BeaconScanResult> foundBeacons = new HashMap<>();
+    private Runnable filterProbeRunnable;
+    private ScanSettings scanSettings;
+    private volatile boolean isScanning = false;
+    private volatile boolean filtered = false;
+    private boolean unfilteredFallback = false;
+    private long scanStartedAt;
+    private volatile long decisionMs = -1;
+    private volatile long lastFlushAt;
+
+    // Per scan: advertisements that reached the app vs. those that were one of our beacons
+    private volatile int deliveredCount;
+    private volatile int coalescedCount;
+    private int droppedAtStart;
+
+    @Nullable private File recordFile;
+    @Nullable private BeaconScanRecorder recorder;
 
     public BeaconScanner(Context context, List<BeaconConfig> beaconConfigs, ScanCallback callback) {
+        this(context, BeaconCatalog.compile(0, beaconConfigs), BeaconConfirmation.Policy.EARLY_EXIT, callback);
+    }
+
+    public BeaconScanner(Context context, BeaconCatalog catalog, ScanCallback callback) {
+        this(context, catalog, BeaconConfirmation.Policy.EARLY_EXIT, callback);
+    }
+
+    // SCAN_TIMEOUT_MS stays the hard cap whatever the policy
+    public BeaconScanner(Context context, BeaconCatalog catalog,
+                         BeaconConfirmation.Policy policy, ScanCallback callback) {
         this.context = context.getApplicationContext();
-        this.beaconConfigs = beaconConfigs;
+        this.pipeline = new BeaconDecisionPipeline(catalog.getTable(), policy);
+        this.scanFilters = catalog.getScanFilters();
         this.callback = callback;
-        this.scanHandler = new Handler(Looper.getMainLooper());
+        pipeline.setListener((result, samples) -> {
+            postUpdate(result);
+            Log.d(TAG, String.format(Locale.US, "Beacon %s: RSSI=%d (median of %d), ~%.1fm, conf=%.2f, Valid=%b",
+                    result.getLabel(), result.getRssi(), samples, result.getDistanceMeters(),
+                    result.getConfidence(), result.isValid()));
+        });
+        this.mainHandler = new Handler(Looper.getMainLooper());
     }
 
     public void startScan() {
-        if (isScanning) {
+        // The previous worker may still be winding down
+        if (isScanning || (workerThread != null && workerThread.isAlive())) {
             Log.w(TAG, "Scan already in progress");
             return;
         }
@@ -83,53 +146,105 @@ public class BeaconScanner {
             return;
         }
 
-        foundBeacons.clear();
+        pipeline.reset();
+        deliveredCount = 0;
+        coalescedCount = 0;
+        // Nothing else touches the queue now; drop what arrived as the last scan ended
+        queue.drain((elapsedMs, rssi, scanRecord) -> {});
+        drainScheduled.set(false);
+        droppedAtStart = queue.getDroppedCount();
+        pendingUpdate.set(null);
+        unfilteredFallback = false;
+        decisionMs = -1;
+        scanStartedAt = SystemClock.elapsedRealtime();
+        openRecorder();
+
+        // Started after the resets above, so the worker sees them
+        workerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        workerThread.start();
+        worker = new Handler(workerThread.getLooper());
         isScanning = true;
         callback.onScanStarted();
 
         // Configure scan settings for foreground scanning
-        ScanSettings settings = new ScanSettings.Builder()
+        scanSettings = new ScanSettings.Builder()
                 .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
                 .build();
 
-        // Start scanning without filters to detect all beacons
+        // Match in the controller unless this device is known to drop filtered results
+        filtered = !scanFilters.isEmpty() && !filtersUnreliable();
         try {
-            bleScanner.startScan(null, settings, bleScanCallback);
+            bleScanner.startScan(filtered ? scanFilters : null, scanSettings, bleScanCallback);
 
             // Set timeout
-            scanTimeoutRunnable = this::stopScan;
-            scanHandler.postDelayed(scanTimeoutRunnable, SCAN_TIMEOUT_MS);
+            scanTimeoutRunnable = () -> endScan(true, false);
+            worker.postDelayed(scanTimeoutRunnable, SCAN_TIMEOUT_MS);
+            if (filtered) {
+                filterProbeRunnable = this::checkFilteredDelivery;
+                worker.postDelayed(filterProbeRunnable, FILTER_PROBE_MS);
+            }
 
-            Log.d(TAG, "BLE scan started for " + SCAN_TIMEOUT_MS + "ms");
+            Log.d(TAG, "BLE scan started for " + SCAN_TIMEOUT_MS + "ms, "
+                    + (filtered ? scanFilters.size() + " filters" : "unfiltered"));
         } catch (SecurityException e) {
             Log.e(TAG, "Security exception starting scan", e);
             isScanning = false;
+            Handler w = worker;
+            w.post(() -> finishWorker(w));
             callback.onScanError("Permission denied for BLE scan");
         }
     }
 
+    // onScanComplete follows on the main thread once the worker has wound down
     public void stopScan() {
+        Handler w = worker;
+        if (isScanning && w != null) w.post(() -> endScan(false, false));
+    }
+
+    // Worker thread. decided: ended by confirmation (early) or the timeout rather than by the caller
+    private void endScan(boolean decided, boolean early) {
         if (!isScanning) return;
 
+        // Read before isScanning drops: a new scan may replace it after that
+        Handler w = worker;
         isScanning = false;
 
-        if (scanTimeoutRunnable != null) {
-            scanHandler.removeCallbacks(scanTimeoutRunnable);
-            scanTimeoutRunnable = null;
-        }
-
         if (bleScanner != null) {
             try {
                 bleScanner.stopScan(bleScanCallback);
-                Log.d(TAG, "BLE scan stopped");
+                Log.d(TAG, "BLE scan stopped: " + deliveredCount + " delivered, "
+                        + pipeline.getMatchedCount() + " matched, " + getDroppedCount() + " dropped, "
+                        + coalescedCount + " updates coalesced"
+                        + (filtered ? " (filtered)" : unfilteredFallback ? " (unfiltered fallback)" : ""));
             } catch (SecurityException e) {
                 Log.e(TAG, "Security exception stopping scan", e);
             }
         }
 
-        // Return best result
-        BeaconScanResult bestResult = getBestResult();
-        callback.onScanComplete(bestResult);
+        if (decided) {
+            decisionMs = SystemClock.elapsedRealtime() - scanStartedAt;
+            ScanDecisionStats.record(decisionMs, early);
+            Log.d(TAG, "Decided in " + decisionMs + "ms (" + (early ? "confirmed" : "timeout") + "); "
+                    + ScanDecisionStats.summary());
+        }
+
+        // Return best result, after any update still waiting for its frame
+        BeaconScanResult best = pipeline.best();
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(flushRunnable);
+            flushUpdate();
+            callback.onScanComplete(best);
+        });
+        finishWorker(w);
+    }
+
+    // Worker thread; whatever is still queued is discarded
+    private void finishWorker(Handler w) {
+        w.removeCallbacksAndMessages(null);
+        scanTimeoutRunnable = null;
+        filterProbeRunnable = null;
+        closeRecorder();
+        w.getLooper().quitSafely();
     }
 
     private final android.bluetooth.le.ScanCallback bleScanCallback = new android.bluetooth.le.ScanCallback() {
@@ -142,85 +257,149 @@ public class BeaconScanner {
         public void onScanFailed(int errorCode) {
             Log.e(TAG, "BLE scan failed with error code: " + errorCode);
             isScanning = false;
+            Handler w = worker;
+            if (w != null) w.post(() -> finishWorker(w));
             callback.onScanError("Scan failed with code: " + errorCode);
         }
     };
 
-    private void processScanResult(ScanResult result) {
-        if (result.getScanRecord() == null) return;
+    public int getDeliveredCount() {
+        return deliveredCount;
+    }
 
-        // Parse iBeacon format from manufacturer data
-        byte[] manufacturerData = result.getScanRecord().getManufacturerSpecificData(0x004C); // Apple company ID
-        if (manufacturerData != null && manufacturerData.length >= 23) {
-            parseIBeacon(result, manufacturerData);
-        }
+    public int getMatchedCount() {
+        return pipeline.getMatchedCount();
     }
 
-    private void parseIBeacon(ScanResult result, byte[] data) {
-        // iBeacon format: [2 bytes type][16 bytes UUID][2 bytes Major][2 bytes Minor][1 byte TX Power]
-        if (data[0] != 0x02 || data[1] != 0x15) return; // Not an iBeacon
+    // Adverts the worker could not keep up with this scan
+    public int getDroppedCount() {
+        return queue.getDroppedCount() - droppedAtStart;
+    }
 
-        // Extract UUID
-        byte[] uuidBytes = new byte[16];
-        System.arraycopy(data, 2, uuidBytes, 0, 16);
-        String uuid = parseUUID(uuidBytes).toString().toLowerCase();
+    // Beacon updates superseded before the UI saw them
+    public int getCoalescedCount() {
+        return coalescedCount;
+    }
 
-        // Extract Major and Minor
-        int major = ((data[18] & 0xFF) << 8) | (data[19] & 0xFF);
-        int minor = ((data[20] & 0xFF) << 8) | (data[21] & 0xFF);
+    // Records every delivered advertisement of the following scans to `file` (overwritten per scan); null stops
+    public void recordTo(@Nullable File file) {
+        this.recordFile = file;
+    }
 
-        // Check against configured beacons
-        for (BeaconConfig config : beaconConfigs) {
-            if (config.isEnabled() &&
-                    uuid.equals(config.getUuid().toLowerCase()) &&
-                    major == config.getMajor() &&
-                    minor == config.getMinor()) {
+    private void openRecorder() {
+        if (recordFile == null) return;
+        try {
+            recorder = new BeaconScanRecorder(new FileOutputStream(recordFile), scanStartedAt);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot record scan to " + recordFile, e);
+            recorder = null;
+        }
+    }
 
-                int rssi = result.getRssi();
-                boolean isValid = rssi >= config.getRssiThreshold();
+    private void closeRecorder() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+            Log.d(TAG, "Recorded " + recorder.getCount() + " adverts to " + recordFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to finish scan recording", e);
+        }
+        recorder = null;
+    }
 
-                BeaconScanResult scanResult = new BeaconScanResult(
-                        config.getBeaconId(), rssi, config.getLabel(), isValid
-                );
+    // Time from start to confirmation or timeout; -1 while scanning or when stopped by the caller
+    public long getDecisionMs() {
+        return decisionMs;
+    }
 
-                // Keep the strongest signal for each beacon
-                BeaconScanResult existing = foundBeacons.get(config.getBeaconId());
-                if (existing == null || rssi > existing.getRssi()) {
-                    foundBeacons.put(config.getBeaconId(), scanResult);
-                    callback.onBeaconFound(scanResult);
-                }
+    public boolean isFiltered() {
+        return filtered;
+    }
 
-                Log.d(TAG, String.format("Found beacon %s: RSSI=%d, Valid=%b",
-                        config.getLabel(), rssi, isValid));
-                break;
-            }
+    // Some chipsets accept filters and then never report a match; nothing at all after the
+    // probe window means we can't tell, so look again without filters
+    private void checkFilteredDelivery() {
+        filterProbeRunnable = null;
+        if (!isScanning || !filtered || deliveredCount > 0) return;
+
+        Log.w(TAG, "No filtered results after " + FILTER_PROBE_MS + "ms, retrying unfiltered");
+        try {
+            bleScanner.stopScan(bleScanCallback);
+            bleScanner.startScan(null, scanSettings, bleScanCallback);
+            filtered = false;
+            unfilteredFallback = true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception restarting scan", e);
         }
     }
 
-    private UUID parseUUID(byte[] bytes) {
-        long mostSig = 0;
-        long leastSig = 0;
+    private boolean filtersUnreliable() {
+        return context.getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_FILTERS_UNRELIABLE, false);
+    }
 
-        for (int i = 0; i < 8; i++) {
-            mostSig = (mostSig << 8) | (bytes[i] & 0xFF);
-        }
-        for (int i = 8; i < 16; i++) {
-            leastSig = (leastSig << 8) | (bytes[i] & 0xFF);
-        }
+    // Only an unfiltered match proves the filters hid a beacon that was there
+    private void markFiltersUnreliable() {
+        Log.w(TAG, "Filtered scan missed a configured beacon; scanning unfiltered from now on");
+        context.getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_FILTERS_UNRELIABLE, true)
+                .apply();
+    }
+
+    // BLE callback thread, for every advertisement: hand off and return
+    private void processScanResult(ScanResult result) {
+        if (!isScanning) return;
+        deliveredCount++;
+        if (result.getScanRecord() == null) return;
 
-        return new UUID(mostSig, leastSig);
+        // Raw bytes, not copied; the pipeline decodes every supported frame format from them
+        byte[] scanRecord = result.getScanRecord().getBytes();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(result.getTimestampNanos());
+        if (!queue.offer(elapsedMs, result.getRssi(), scanRecord)) return;
+        // One pending drain covers every advert offered before it runs
+        if (drainScheduled.compareAndSet(false, true)) worker.post(drainRunnable);
     }
 
-    private BeaconScanResult getBestResult() {
-        BeaconScanResult best = null;
+    // Worker thread
+    private void drain() {
+        drainScheduled.set(false);
+        queue.drain(this::processAdvert);
+    }
 
-        for (BeaconScanResult result : foundBeacons.values()) {
-            if (result.isValid() && (best == null || result.getRssi() > best.getRssi())) {
-                best = result;
+    // Worker thread
+    private void processAdvert(long elapsedMs, int rssi, byte[] scanRecord) {
+        if (!isScanning) return;
+        if (recorder != null) {
+            try {
+                recorder.write(elapsedMs, rssi, scanRecord);
+            } catch (IOException e) {
+                Log.e(TAG, "Scan recording failed, stopping it", e);
+                closeRecorder();
             }
         }
 
-        return best != null ? best : BeaconScanResult.invalid();
+        int matchedBefore = pipeline.getMatchedCount();
+        boolean confirmed = pipeline.onAdvertisement(elapsedMs, rssi, scanRecord);
+        if (matchedBefore == 0 && pipeline.getMatchedCount() == 1 && unfilteredFallback) markFiltersUnreliable();
+
+        if (confirmed) endScan(true, true);
+    }
+
+    // Worker thread: the first update after a flush schedules the next frame, later ones replace it
+    private void postUpdate(BeaconScanResult result) {
+        if (pendingUpdate.getAndSet(result) != null) {
+            coalescedCount++;
+            return;
+        }
+        mainHandler.postAtTime(flushRunnable, Math.max(SystemClock.uptimeMillis(), lastFlushAt + FRAME_MS));
+    }
+
+    // Main thread
+    private void flushUpdate() {
+        lastFlushAt = SystemClock.uptimeMillis();
+        BeaconScanResult result = pendingUpdate.getAndSet(null);
+        if (result != null) callback.onBeaconFound(result);
     }
 
     private boolean hasRequiredPermissions() {
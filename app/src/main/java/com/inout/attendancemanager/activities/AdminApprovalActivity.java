@@ -19,14 +19,13 @@ import com.google.android.material.chip.Chip;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.inout.attendancemanager.R;
 import com.inout.attendancemanager.adapters.AdminApprovalAdapter;
 import com.inout.attendancemanager.models.Employee;
+import com.inout.attendancemanager.repositories.SnapshotRegistry;
 import com.inout.attendancemanager.utils.Constants;
 
 import java.util.ArrayList;
@@ -54,7 +53,6 @@ public class AdminApprovalActivity extends AppCompatActivity {
     // Firebase
     private FirebaseFirestore firestore;
     private FirebaseAuth auth;
-    private ListenerRegistration registration;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -76,6 +74,7 @@ public class AdminApprovalActivity extends AppCompatActivity {
         setupBackHandler();
         setupList();
         loadAdminHeader();
+        observePending();
     }
 
     private void bindViews() {
@@ -157,58 +156,46 @@ public class AdminApprovalActivity extends AppCompatActivity {
         return (cc + " •••••••• " + last2).trim();
     }
 
-    @Override
-    protected void onStart() {
-        super.onStart();
-        attachListener();
-    }
-
-    @Override
-    protected void onStop() {
-        super.onStop();
-        detachListener();
-    }
-
-    private void attachListener() {
-        if (registration != null) return;
+    // Shared listener: follows this activity's lifecycle and survives rotation
+    private void observePending() {
         progressBar.setVisibility(View.VISIBLE);
 
-        registration = firestore.collection(Constants.COLLECTION_EMPLOYEES)
-                .whereEqualTo("approvalStatus", "pending")
-                .addSnapshotListener(this, new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot snapshots,
-                                        @Nullable FirebaseFirestoreException e) {
-                        progressBar.setVisibility(View.GONE);
+        SnapshotRegistry.get()
+                .query("employees.pending", firestore.collection(Constants.COLLECTION_EMPLOYEES)
+                        .whereEqualTo("approvalStatus", "pending"))
+                .observe(this, snap -> onPendingSnapshot(snap.value, snap.error));
+    }
 
-                        if (e != null) {
-                            Log.e(TAG, "pending listener error: code=" + e.getCode() + ", msg=" + e.getMessage(), e);
-                            Toast.makeText(AdminApprovalActivity.this,
-                                    "Failed to load pending: " + e.getMessage(),
-                                    Toast.LENGTH_LONG).show();
-                            if (auth.getCurrentUser() == null) {
-                                logout();
-                                return;
-                            }
-                            toggleEmpty();
-                            return;
-                        }
+    private void onPendingSnapshot(@Nullable QuerySnapshot snapshots,
+                                   @Nullable FirebaseFirestoreException e) {
+        progressBar.setVisibility(View.GONE);
+
+        if (e != null) {
+            Log.e(TAG, "pending listener error: code=" + e.getCode() + ", msg=" + e.getMessage(), e);
+            Toast.makeText(AdminApprovalActivity.this,
+                    "Failed to load pending: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+            if (auth.getCurrentUser() == null) {
+                logout();
+                return;
+            }
+            toggleEmpty();
+            return;
+        }
 
-                        pendingList.clear();
-                        if (snapshots != null) {
-                            for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                                Employee eEmp = doc.toObject(Employee.class);
-                                if (eEmp != null) {
-                                    eEmp.setUid(doc.getId());
-                                    pendingList.add(eEmp);
-                                }
-                            }
-                        }
-                        recyclerView.getAdapter().notifyDataSetChanged();
-                        updatePendingChip();
-                        toggleEmpty();
-                    }
-                });
+        pendingList.clear();
+        if (snapshots != null) {
+            for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                Employee eEmp = doc.toObject(Employee.class);
+                if (eEmp != null) {
+                    eEmp.setUid(doc.getId());
+                    pendingList.add(eEmp);
+                }
+            }
+        }
+        recyclerView.getAdapter().notifyDataSetChanged();
+        updatePendingChip();
+        toggleEmpty();
     }
 
     private void updatePendingChip() {
@@ -225,13 +212,6 @@ public class AdminApprovalActivity extends AppCompatActivity {
         }
     }
 
-    private void detachListener() {
-        if (registration != null) {
-            registration.remove();
-            registration = null;
-        }
-    }
-
     private void onStatusChange(Employee employee, String newStatus) {
         progressBar.setVisibility(View.VISIBLE);
         firestore.collection(Constants.COLLECTION_EMPLOYEES)
@@ -5,7 +5,9 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
+import android.os.Build;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
@@ -14,13 +16,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
@@ -36,11 +37,21 @@ import com.inout.attendancemanager.fragments.LeaveFragment;
 import com.inout.attendancemanager.models.Attendance;
 import com.inout.attendancemanager.models.AttendanceSummary;
 import com.inout.attendancemanager.models.Employee;
+import com.inout.attendancemanager.repositories.OfficeRepository;
+import com.inout.attendancemanager.repositories.PunchJournal;
+import com.inout.attendancemanager.utils.BackgroundBeaconScanner;
 import com.inout.attendancemanager.utils.Constants;
 import com.inout.attendancemanager.utils.DateUtils;
+import com.inout.attendancemanager.utils.LocationFixProvider;
+import com.inout.attendancemanager.utils.OfficeGeofencer;
+import com.inout.attendancemanager.utils.PunchRejections;
+import com.inout.attendancemanager.workers.AttendanceSyncWorker;
+import com.inout.attendancemanager.workers.LeaveLedgerVerifyWorker;
+import com.inout.attendancemanager.workers.PunchReplayWorker;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 import de.hdodenhof.circleimageview.CircleImageView;
@@ -56,7 +67,6 @@ public class DashboardActivity extends AppCompatActivity implements BottomNaviga
     // Firebase
     private FirebaseAuth firebaseAuth;
     private FirebaseFirestore firestore;
-    private FusedLocationProviderClient fusedLocationClient;
 
     // Data
     private SharedPreferences sharedPreferences;
@@ -82,12 +92,48 @@ public class DashboardActivity extends AppCompatActivity implements BottomNaviga
     private void initFirebase() {
         firebaseAuth = FirebaseAuth.getInstance();
         firestore = FirebaseFirestore.getInstance();
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         sharedPreferences = getSharedPreferences(Constants.PREF_NAME, MODE_PRIVATE);
 
         if (firebaseAuth.getCurrentUser() != null) {
             currentUserId = firebaseAuth.getCurrentUser().getUid();
         }
+
+        // Resume merging punches journaled before the process died
+        if (!PunchJournal.get(this).isEmpty()) {
+            PunchReplayWorker.enqueue(this);
+        }
+        AttendanceSyncWorker.schedulePeriodic(this);
+        LeaveLedgerVerifyWorker.schedulePeriodic(this);
+        BackgroundBeaconScanner.restoreIfEnabled(this);
+        OfficeGeofencer.restoreIfEnabled(this);
+        OfficeRepository.get(this).syncAsync();
+        // The punch sheet can often use this instead of waiting for a fresh fix
+        LocationFixProvider.get(this).warmUp();
+
+        // Replay rejections are reported as notifications
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ActivityCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[] { Manifest.permission.POST_NOTIFICATIONS },
+                    Constants.REQUEST_NOTIFICATION_PERMISSION);
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showRejectedPunches();
+    }
+
+    // Punches replayed in the background that the server turned down
+    private void showRejectedPunches() {
+        List<String> messages = PunchRejections.take(this);
+        if (messages.isEmpty()) return;
+        new AlertDialog.Builder(this)
+                .setTitle(messages.size() == 1 ? "Punch not recorded" : messages.size() + " punches not recorded")
+                .setMessage(TextUtils.join("\n\n", messages))
+                .setPositiveButton("OK", null)
+                .show();
     }
 
     private void initViews() {
@@ -0,0 +1,73 @@
+package com.inout.attendancemanager.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.inout.attendancemanager.R;
+import com.inout.attendancemanager.models.LeaveRecord;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.List;
+import java.util.Locale;
+
+public class LeaveAdapter extends RecyclerView.Adapter<LeaveAdapter.VH> {
+
+    public interface OnCancel {
+        void invoke(LeaveRecord record);
+    }
+
+    private final List<LeaveRecord> list;
+    private final OnCancel callback;
+
+    public LeaveAdapter(List<LeaveRecord> list, OnCancel cb) {
+        this.list = list;
+        this.callback = cb;
+    }
+
+    @NonNull
+    @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new VH(LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_leave_record, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int pos) {
+        LeaveRecord r = list.get(pos);
+        String range = r.getFromDateId().equals(r.getToDateId())
+                ? r.getFromDateId()
+                : r.getFromDateId() + " → " + r.getToDateId();
+        holder.tvRange.setText(range);
+        holder.tvStatus.setText(r.getStatus());
+        holder.tvDays.setText(String.format(Locale.US, "%s • %.1f day(s)", r.getType(), r.getDays()));
+        holder.tvReason.setText(r.getReason());
+        holder.tvReason.setVisibility(r.getReason() == null || r.getReason().isEmpty() ? View.GONE : View.VISIBLE);
+
+        // Only requests still waiting for a decision can be withdrawn from here
+        boolean cancellable = Constants.STATUS_PENDING.equals(r.getStatus());
+        holder.btnCancel.setVisibility(cancellable ? View.VISIBLE : View.GONE);
+        holder.btnCancel.setOnClickListener(v -> callback.invoke(r));
+    }
+
+    @Override public int getItemCount() { return list.size(); }
+
+    static class VH extends RecyclerView.ViewHolder {
+        TextView tvRange, tvStatus, tvDays, tvReason;
+        Button btnCancel;
+
+        VH(@NonNull View v) {
+            super(v);
+            tvRange = v.findViewById(R.id.tv_leave_range);
+            tvStatus = v.findViewById(R.id.tv_leave_status);
+            tvDays = v.findViewById(R.id.tv_leave_days);
+            tvReason = v.findViewById(R.id.tv_leave_reason);
+            btnCancel = v.findViewById(R.id.btn_cancel_leave);
+        }
+    }
+}
@@ -18,20 +18,23 @@ import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.inout.attendancemanager.R;
 import com.inout.attendancemanager.activities.DashboardActivity;
 import com.inout.attendancemanager.models.Attendance;
 import com.inout.attendancemanager.models.AttendanceSummary;
 import com.inout.attendancemanager.models.Employee;
 import com.inout.attendancemanager.repositories.AttendanceRepository;
+import com.inout.attendancemanager.repositories.AttendanceSync;
+import com.inout.attendancemanager.repositories.LeaveRepository;
+import com.inout.attendancemanager.repositories.MonthSummaryRepository;
+import com.inout.attendancemanager.repositories.OfficeRepository;
 import com.inout.attendancemanager.utils.DateUtils;
+import com.inout.attendancemanager.utils.LocationBudget;
+import com.inout.attendancemanager.utils.LocationFixProvider;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -75,7 +78,6 @@ public class DashboardFragment extends Fragment {
     private MaterialCardView cardReports;
 
     private FirebaseFirestore firestore;
-    private FusedLocationProviderClient fusedLocationClient;
     private DashboardActivity dashboardActivity;
     private Employee currentEmployee;
     private String currentUserId;
@@ -103,7 +105,7 @@ public class DashboardFragment extends Fragment {
         setupInitialUI();
 
         if (currentUserId != null) {
-            attendanceRepo = new AttendanceRepository(currentUserId);
+            attendanceRepo = new AttendanceRepository(requireContext(), currentUserId);
             attendanceRepo.observeToday().observe(getViewLifecycleOwner(), att -> {
                 todayAttendance = att;
                 updatePunchCardUI();
@@ -111,12 +113,12 @@ public class DashboardFragment extends Fragment {
         }
 
         loadMonthSummary();
+        loadLeaveBalance();
         startCountdownTimer();
     }
 
     private void initFirebase() {
         firestore = FirebaseFirestore.getInstance();
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(requireContext());
         dashboardActivity = (DashboardActivity) getActivity();
 
         if (dashboardActivity != null) {
@@ -225,52 +227,31 @@ public class DashboardFragment extends Fragment {
         cardReports.setOnClickListener(v -> Toast.makeText(getContext(), "Reports - Coming Soon", Toast.LENGTH_SHORT).show());
     }
 
+    // Local store first, then a delta sync; the Firestore rollup is only used before the first sync
     private void loadMonthSummary() {
         if (currentUserId == null) return;
 
-        String currentMonth = DateUtils.getCurrentMonthId();
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_MONTH, 1);
-        Date monthStart = cal.getTime();
-
-        cal.add(Calendar.MONTH, 1);
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        Date monthEnd = cal.getTime();
-
-        firestore.collection("attendance")
-                .document(currentUserId)
-                .collection("days")
-                .whereGreaterThanOrEqualTo("createdAt", monthStart)
-                .whereLessThanOrEqualTo("createdAt", monthEnd)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    monthSummary = new AttendanceSummary();
-                    monthSummary.setMonth(currentMonth);
-
-                    int present = 0, absent = 0, weekoff = 0, missed = 0;
-
-                    for (QueryDocumentSnapshot doc : querySnapshot) {
-                        Attendance attendance = doc.toObject(Attendance.class);
-                        String status = attendance.getStatus();
-
-                        if ("present_complete".equals(status) || "present_in_progress".equals(status)) present++;
-                        else if ("absent".equals(status)) absent++;
-                        else if ("weekoff".equals(status)) weekoff++;
-                        else if ("missed".equals(status)) missed++;
-                    }
-
-                    monthSummary.setPresentDays(present);
-                    monthSummary.setAbsentDays(absent);
-                    monthSummary.setWeekoffDays(weekoff);
-                    monthSummary.setMissedPunchDays(missed);
-
-                    updateSummaryUI();
-                })
+        String monthId = DateUtils.getCurrentMonthId();
+        MonthSummaryRepository summaries = new MonthSummaryRepository(requireContext(), currentUserId);
+
+        summaries.loadLocal(monthId).addOnSuccessListener(this::showMonthSummary);
+
+        new AttendanceSync(requireContext(), currentUserId).syncAsync()
+                .continueWithTask(task -> task.isSuccessful()
+                        ? summaries.loadLocal(monthId)
+                        : summaries.load(monthId))
+                .addOnSuccessListener(this::showMonthSummary)
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Failed to load month summary", e);
                 });
     }
 
+    private void showMonthSummary(@Nullable AttendanceSummary summary) {
+        if (summary == null || !isAdded()) return;
+        monthSummary = summary;
+        updateSummaryUI();
+    }
+
     private void updateSummaryUI() {
         if (monthSummary != null) {
             tvPresentDays.setText(String.valueOf(monthSummary.getPresentDays()));
@@ -279,9 +260,28 @@ public class DashboardFragment extends Fragment {
             tvMissedDays.setText(String.valueOf(monthSummary.getMissedPunchDays()));
         }
 
-        tvTotalLeaves.setText("20");
-        tvUsedLeaves.setText("5");
-        tvRemainingLeaves.setText("15");
+    }
+
+    // One balance document; accrual for a new month is written on first read
+    private void loadLeaveBalance() {
+        if (currentUserId == null) return;
+
+        int year = Calendar.getInstance().get(Calendar.YEAR);
+        new LeaveRepository(currentUserId).loadBalance(year)
+                .addOnSuccessListener(balance -> {
+                    if (balance == null || !isAdded()) return;
+                    tvTotalLeaves.setText(formatDays(balance.getAccrued()));
+                    tvUsedLeaves.setText(formatDays(balance.getUsed()));
+                    tvRemainingLeaves.setText(formatDays(balance.remaining()));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load leave balance", e));
+    }
+
+    // Balances move in half days: "12" or "12.5"
+    static String formatDays(double days) {
+        return days == Math.rint(days)
+                ? String.valueOf((long) days)
+                : String.format(Locale.US, "%.1f", days);
     }
 
     private void updatePunchCardUI() {
@@ -352,9 +352,10 @@ public class DashboardFragment extends Fragment {
             return;
         }
 
+        // Any synced office will do when the employee has no office of their own
         if (currentEmployee == null
-                || currentEmployee.getOfficeLat() == 0.0
-                || currentEmployee.getOfficeLng() == 0.0) {
+                || (currentEmployee.getOfficeLat() == 0.0 || currentEmployee.getOfficeLng() == 0.0)
+                && OfficeRepository.get(requireContext()).index().size() == 0) {
             Toast.makeText(getContext(),
                     "Office location not set. Contact admin to set officeLat/officeLng.",
                     Toast.LENGTH_LONG).show();
@@ -364,6 +365,9 @@ public class DashboardFragment extends Fragment {
         // In production, load this from Firestore org settings
         boolean beaconRequired = false; // Set true to require beacon presence
 
+        // Start the fix now; the sheet joins the same request instead of starting its own
+        LocationFixProvider.get(requireContext()).acquire(LocationBudget.PUNCH);
+
         PunchBottomSheet.show(
                 this,
                 isPunchedIn,
@@ -371,7 +375,8 @@ public class DashboardFragment extends Fragment {
                 currentEmployee.getOfficeLng(),
                 500f,
                 currentUserId,
-                beaconRequired
+                beaconRequired,
+                currentEmployee.getOfficeId()
         );
     }
 
@@ -14,23 +14,48 @@ import androidx.fragment.app.FragmentManager;
 
 import com.inout.attendancemanager.R;
 import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.WorkSession;
 import com.inout.attendancemanager.utils.DateUtils;
 
 import java.util.Date;
+import java.util.List;
 
 public class DayDetailsBottomSheet extends DialogFragment {
 
     private static final String ARG_DATE_ID = "dateId";
-    private static final String ARG_IN_TIME = "inTime";
-    private static final String ARG_OUT_TIME = "outTime";
+    private static final String ARG_IN_TIMES = "inTimes";
+    private static final String ARG_OUT_TIMES = "outTimes";
+    private static final String ARG_SESSION_MIN = "sessionMinutes";
     private static final String ARG_TOTAL_MIN = "totalMinutes";
 
     public static DayDetailsBottomSheet show(@NonNull FragmentManager fm, Attendance att) {
         DayDetailsBottomSheet sheet = new DayDetailsBottomSheet();
         Bundle args = new Bundle();
         args.putString(ARG_DATE_ID, att.getDateId());
-        args.putLong(ARG_IN_TIME, att.getInTime() != null ? att.getInTime().getTime() : -1L);
-        args.putLong(ARG_OUT_TIME, att.getOutTime() != null ? att.getOutTime().getTime() : -1L);
+
+        List<WorkSession> sessions = att.getSessions();
+        if (sessions != null && !sessions.isEmpty()) {
+            int n = sessions.size();
+            long[] ins = new long[n];
+            long[] outs = new long[n];
+            long[] minutes = new long[n];
+            for (int i = 0; i < n; i++) {
+                WorkSession s = sessions.get(i);
+                ins[i] = s.getInTime() != null ? s.getInTime().getTime() : -1L;
+                outs[i] = s.getOutTime() != null ? s.getOutTime().getTime() : -1L;
+                minutes[i] = s.getMinutes();
+            }
+            args.putLongArray(ARG_IN_TIMES, ins);
+            args.putLongArray(ARG_OUT_TIMES, outs);
+            args.putLongArray(ARG_SESSION_MIN, minutes);
+        } else if (att.getInTime() != null) {
+            // Days recorded before the session log only know their last session
+            long in = att.getInTime().getTime();
+            long out = att.getOutTime() != null ? att.getOutTime().getTime() : -1L;
+            args.putLongArray(ARG_IN_TIMES, new long[]{in});
+            args.putLongArray(ARG_OUT_TIMES, new long[]{out});
+            args.putLongArray(ARG_SESSION_MIN, new long[]{out > 0 ? (out - in) / (1000 * 60) : 0});
+        }
         args.putLong(ARG_TOTAL_MIN, att.getTotalMinutes());
         sheet.setArguments(args);
         sheet.show(fm, "DayDetailsBottomSheet");
@@ -56,26 +81,33 @@ public class DayDetailsBottomSheet extends DialogFragment {
 
         String dateId = args.getString(ARG_DATE_ID, "");
         long total = args.getLong(ARG_TOTAL_MIN, 0L);
-        long inMillis = args.getLong(ARG_IN_TIME, -1L);
-        long outMillis = args.getLong(ARG_OUT_TIME, -1L);
+        long[] ins = args.getLongArray(ARG_IN_TIMES);
+        long[] outs = args.getLongArray(ARG_OUT_TIMES);
+        long[] minutes = args.getLongArray(ARG_SESSION_MIN);
 
         tvTitle.setText("Details • " + dateId);
         tvTotalWork.setText("Total Worked: " + DateUtils.formatDuration(total));
 
-        View sessionView = LayoutInflater.from(getContext()).inflate(R.layout.item_session_row, container, false);
-        TextView tvIn = sessionView.findViewById(R.id.tv_in_time);
-        TextView tvOut = sessionView.findViewById(R.id.tv_out_time);
-        TextView tvDur = sessionView.findViewById(R.id.tv_session_duration);
+        if (ins == null || outs == null || minutes == null) return;
+        LayoutInflater rowInflater = LayoutInflater.from(getContext());
+        for (int i = 0; i < ins.length; i++) {
+            View sessionView = rowInflater.inflate(R.layout.item_session_row, container, false);
+            TextView tvIn = sessionView.findViewById(R.id.tv_in_time);
+            TextView tvOut = sessionView.findViewById(R.id.tv_out_time);
+            TextView tvDur = sessionView.findViewById(R.id.tv_session_duration);
 
-        if (inMillis > 0) tvIn.setText(DateUtils.formatTime(new Date(inMillis)));
-        else tvIn.setText("--:--");
+            if (ins[i] > 0) tvIn.setText(DateUtils.formatTime(new Date(ins[i])));
+            else tvIn.setText("--:--");
 
-        if (outMillis > 0) tvOut.setText(DateUtils.formatTime(new Date(outMillis)));
-        else tvOut.setText("--:--");
+            if (outs[i] > 0) tvOut.setText(DateUtils.formatTime(new Date(outs[i])));
+            else tvOut.setText("--:--");
 
-        long dur = (inMillis > 0 && outMillis > 0) ? (outMillis - inMillis) / (1000 * 60) : 0;
-        tvDur.setText(DateUtils.formatDuration(dur));
+            // Open session shows its running time
+            long dur = outs[i] > 0 ? minutes[i]
+                    : (ins[i] > 0 ? Math.max(0L, System.currentTimeMillis() - ins[i]) / (1000 * 60) : 0);
+            tvDur.setText(DateUtils.formatDuration(dur));
 
-        container.addView(sessionView);
+            container.addView(sessionView);
+        }
     }
 }
@@ -1,18 +1,51 @@
 package com.inout.attendancemanager.fragments;
 
+import android.app.DatePickerDialog;
 import android.os.Bundle;
+import android.text.InputType;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.button.MaterialButton;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.inout.attendancemanager.R;
+import com.inout.attendancemanager.activities.DashboardActivity;
+import com.inout.attendancemanager.adapters.LeaveAdapter;
+import com.inout.attendancemanager.models.LeaveBalance;
+import com.inout.attendancemanager.models.LeaveRecord;
+import com.inout.attendancemanager.repositories.LeaveLedger;
+import com.inout.attendancemanager.repositories.LeaveRepository;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
 
 public class LeaveFragment extends Fragment {
 
+    private static final String TAG = "LeaveFragment";
+
+    private TextView tvBalance;
+    private TextView tvEmpty;
+    private MaterialButton btnApply;
+
+    private final List<LeaveRecord> records = new ArrayList<>();
+    private LeaveAdapter adapter;
+
+    private LeaveRepository leaves;
+
     public LeaveFragment() { }
 
     @Override
@@ -20,4 +53,134 @@ public class LeaveFragment extends Fragment {
                              @Nullable Bundle savedInstanceState) {
         return inflater.inflate(R.layout.fragment_leave, container, false);
     }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        tvBalance = view.findViewById(R.id.tv_leave_balance);
+        tvEmpty = view.findViewById(R.id.tv_no_leaves);
+        btnApply = view.findViewById(R.id.btn_apply_leave);
+        RecyclerView rv = view.findViewById(R.id.rv_leaves);
+        adapter = new LeaveAdapter(records, this::confirmCancel);
+        rv.setLayoutManager(new LinearLayoutManager(requireContext()));
+        rv.setAdapter(adapter);
+
+        DashboardActivity activity = (DashboardActivity) getActivity();
+        String userId = activity != null ? activity.getCurrentUserId() : null;
+        if (userId == null) {
+            btnApply.setEnabled(false);
+            return;
+        }
+        leaves = new LeaveRepository(userId);
+
+        btnApply.setOnClickListener(v -> pickFromDate());
+        leaves.observeRecords().observe(getViewLifecycleOwner(), snap -> {
+            if (snap.error != null) {
+                Log.e(TAG, "Leave records listener error", snap.error);
+                return;
+            }
+            records.clear();
+            records.addAll(LeaveRepository.toRecords(snap.value));
+            adapter.notifyDataSetChanged();
+            tvEmpty.setVisibility(records.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+        loadBalance();
+    }
+
+    private void loadBalance() {
+        int year = Calendar.getInstance().get(Calendar.YEAR);
+        leaves.loadBalance(year)
+                .addOnSuccessListener(this::showBalance)
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load leave balance", e));
+    }
+
+    private void showBalance(@Nullable LeaveBalance balance) {
+        if (balance == null || !isAdded()) return;
+        tvBalance.setText(String.format(Locale.US, "%s remaining • %s used • %s pending of %s accrued",
+                DashboardFragment.formatDays(balance.remaining()),
+                DashboardFragment.formatDays(balance.getUsed()),
+                DashboardFragment.formatDays(balance.getPending()),
+                DashboardFragment.formatDays(balance.getAccrued())));
+    }
+
+    private void pickFromDate() {
+        Calendar today = Calendar.getInstance();
+        DatePickerDialog dialog = new DatePickerDialog(requireContext(),
+                (view, year, month, day) -> pickToDate(dateId(year, month, day), year, month, day),
+                today.get(Calendar.YEAR), today.get(Calendar.MONTH), today.get(Calendar.DAY_OF_MONTH));
+        dialog.setTitle("From");
+        dialog.show();
+    }
+
+    private void pickToDate(String fromDateId, int year, int month, int day) {
+        Calendar from = Calendar.getInstance();
+        from.set(year, month, day, 0, 0, 0);
+        DatePickerDialog dialog = new DatePickerDialog(requireContext(),
+                (view, y, m, d) -> askReason(fromDateId, dateId(y, m, d)),
+                year, month, day);
+        dialog.getDatePicker().setMinDate(from.getTimeInMillis());
+        dialog.setTitle("To");
+        dialog.show();
+    }
+
+    private void askReason(String fromDateId, String toDateId) {
+        EditText input = new EditText(requireContext());
+        input.setHint(R.string.leave_reason_hint);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES);
+
+        double days = LeaveLedger.countDays(fromDateId, toDateId);
+        new AlertDialog.Builder(requireContext())
+                .setTitle(getString(R.string.apply_leave))
+                .setMessage(String.format(Locale.US, "%s → %s (%s working day(s))",
+                        fromDateId, toDateId, DashboardFragment.formatDays(days)))
+                .setView(input)
+                .setPositiveButton("Apply", (d, w) -> apply(fromDateId, toDateId, input.getText().toString().trim()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void apply(String fromDateId, String toDateId, String reason) {
+        btnApply.setEnabled(false);
+        leaves.apply("casual", fromDateId, toDateId, reason.isEmpty() ? null : reason)
+                .addOnCompleteListener(task -> {
+                    if (!isAdded()) return;
+                    btnApply.setEnabled(true);
+                    if (task.isSuccessful()) {
+                        Toast.makeText(getContext(), "Leave application submitted", Toast.LENGTH_SHORT).show();
+                        loadBalance();
+                    } else {
+                        Toast.makeText(getContext(), errorText(task.getException()), Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    private void confirmCancel(LeaveRecord record) {
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Cancel leave")
+                .setMessage("Withdraw the request for " + record.getFromDateId() + "?")
+                .setPositiveButton("Withdraw", (d, w) -> leaves.transition(record.getId(), LeaveLedger.STATUS_CANCELLED)
+                        .addOnCompleteListener(task -> {
+                            if (!isAdded()) return;
+                            if (task.isSuccessful()) loadBalance();
+                            else Toast.makeText(getContext(), errorText(task.getException()), Toast.LENGTH_LONG).show();
+                        }))
+                .setNegativeButton("Keep", null)
+                .show();
+    }
+
+    private static String errorText(@Nullable Exception e) {
+        if (e instanceof FirebaseFirestoreException) {
+            FirebaseFirestoreException fe = (FirebaseFirestoreException) e;
+            if (fe.getCode() == FirebaseFirestoreException.Code.FAILED_PRECONDITION
+                    || fe.getCode() == FirebaseFirestoreException.Code.INVALID_ARGUMENT) {
+                return fe.getMessage();
+            }
+        }
+        return "Something went wrong. Please try again.";
+    }
+
+    private static String dateId(int year, int month, int day) {
+        return String.format(Locale.US, "%04d-%02d-%02d", year, month + 1, day);
+    }
 }
@@ -5,6 +5,10 @@ import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.view.LayoutInflater;
@@ -15,32 +19,45 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
+import com.google.android.material.materialswitch.MaterialSwitch;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.inout.attendancemanager.R;
-import com.inout.attendancemanager.models.BeaconConfig;
 import com.inout.attendancemanager.models.BeaconScanResult;
+import com.inout.attendancemanager.models.OfficeLocation;
 import com.inout.attendancemanager.repositories.AttendanceRepository;
+import com.inout.attendancemanager.repositories.BeaconConfigRepository;
+import com.inout.attendancemanager.repositories.OfficeRepository;
+import com.inout.attendancemanager.utils.BackgroundBeaconScanner;
+import com.inout.attendancemanager.utils.BeaconCatalog;
 import com.inout.attendancemanager.utils.BeaconScanner;
+import com.inout.attendancemanager.utils.GeofenceDecision;
 import com.inout.attendancemanager.utils.GeofenceUtils;
+import com.inout.attendancemanager.utils.LocationBudget;
+import com.inout.attendancemanager.utils.LocationFixProvider;
+import com.inout.attendancemanager.utils.OfficeGeofencer;
+import com.inout.attendancemanager.utils.OfficeIndex;
+import com.inout.attendancemanager.utils.PunchReadiness;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class PunchBottomSheet extends BottomSheetDialogFragment {
 
+    private static final String TAG = "PunchBottomSheet";
+
     private static final String ARG_IS_IN   = "is_punched_in";
     private static final String ARG_OLAT    = "office_lat";
     private static final String ARG_OLNG    = "office_lng";
     private static final String ARG_UID     = "user_id";
     private static final String ARG_RADIUS  = "radius_m";
     private static final String ARG_BEACON_REQUIRED = "beacon_required";
+    private static final String ARG_OFFICE_ID = "office_id";
 
     private static final int BLUETOOTH_PERMISSION_REQUEST = 1002;
+    private static final int GEOFENCE_PERMISSION_REQUEST = 1003;
 
     private boolean isPunchedIn;
     private double officeLat;
@@ -48,11 +65,19 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
     private String userId;
     private float radiusM;
     private boolean beaconRequired;
+    private String officeId;
 
-    private FusedLocationProviderClient fused;
     private AttendanceRepository repo;
+    private BeaconConfigRepository beaconRepo;
+    private BeaconCatalog beacons;
     private BeaconScanner beaconScanner;
     private BeaconScanResult lastBeaconResult;
+    @Nullable private Location lastLocation;
+    private boolean preciseRequested;
+    private boolean beaconsRefreshed;
+    private PunchReadiness readiness;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable deadlineRunnable = () -> onReadiness(readiness.onDeadline(SystemClock.elapsedRealtime()));
 
     // UI
     private TextView tvTitle;
@@ -63,6 +88,8 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
     private CircularProgressIndicator progressBeacon;
     private MaterialButton btnConfirm;
     private MaterialButton btnBeacon;
+    private MaterialSwitch switchHandsFree;
+    private MaterialSwitch switchAutoGeofence;
     private MaterialButton btnCancel;
 
     public static void show(@NonNull androidx.fragment.app.Fragment parent,
@@ -71,7 +98,8 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
                             double officeLng,
                             float radiusMeters,
                             String userId,
-                            boolean beaconRequired) {
+                            boolean beaconRequired,
+                            @Nullable String officeId) {
         PunchBottomSheet sheet = new PunchBottomSheet();
         Bundle b = new Bundle();
         b.putBoolean(ARG_IS_IN, isPunchedIn);
@@ -80,6 +108,7 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
         b.putFloat(ARG_RADIUS, radiusMeters);
         b.putString(ARG_UID, userId);
         b.putBoolean(ARG_BEACON_REQUIRED, beaconRequired);
+        b.putString(ARG_OFFICE_ID, officeId);
         sheet.setArguments(b);
         sheet.show(parent.getParentFragmentManager(), "PunchBottomSheet");
     }
@@ -95,9 +124,19 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
             radiusM     = a.getFloat(ARG_RADIUS, 500f);
             userId      = a.getString(ARG_UID);
             beaconRequired = a.getBoolean(ARG_BEACON_REQUIRED, false);
+            officeId    = a.getString(ARG_OFFICE_ID);
         }
-        fused = LocationServices.getFusedLocationProviderClient(requireContext());
-        repo  = new AttendanceRepository(userId);
+        repo  = new AttendanceRepository(requireContext(), userId);
+
+        // Scan with what the device already has; a newer version applies when it arrives
+        beaconRepo = new BeaconConfigRepository(requireContext());
+        beacons = beaconRepo.cached(officeId);
+        beaconRepo.refresh(officeId)
+                .addOnSuccessListener(this::onBeaconsRefreshed)
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Beacon config refresh failed", e);
+                    onBeaconsRefreshed(beacons);
+                });
         setCancelable(true);
     }
 
@@ -114,13 +153,42 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
         setupInitialState();
         setupClickListeners();
 
-        // Start location check
+        // Both checks run at once; the buttons only change when readiness is settled
+        readiness = new PunchReadiness(beaconRequired, SystemClock.elapsedRealtime(), PunchReadiness.DEADLINE_MS);
+        handler.postDelayed(deadlineRunnable, PunchReadiness.DEADLINE_MS);
         checkLocation();
-
-        // Start beacon scan if needed
         checkBeacons();
     }
 
+    private void onReadiness(@Nullable PunchReadiness.Result result) {
+        if (result == null || getView() == null) return;
+        handler.removeCallbacks(deadlineRunnable);
+        Log.d(TAG, "Punch " + result);
+
+        // Whatever is still running can no longer change the outcome
+        if (result.locationCancelled()) {
+            LocationFixProvider.get(requireContext()).cancel();
+            progressLocation.setVisibility(View.GONE);
+        }
+        if (result.beaconCancelled() && beaconScanner != null) beaconScanner.stopScan();
+        progressBeacon.setVisibility(View.GONE);
+
+        boolean confirm = result.ready && (result.method == PunchReadiness.Method.LOCATION || beaconRequired);
+        btnConfirm.setEnabled(confirm);
+        btnConfirm.setAlpha(confirm ? 1f : 0.5f);
+        btnBeacon.setEnabled(result.beaconValid);
+        btnBeacon.setAlpha(result.beaconValid ? 1f : 0.5f);
+        if (result.timedOut && !result.ready) tvStatus.setText("Could not confirm you are at the office");
+    }
+
+    private void onLocationDone(GeofenceDecision.Verdict verdict) {
+        if (readiness != null) onReadiness(readiness.onLocation(verdict, SystemClock.elapsedRealtime()));
+    }
+
+    private void onBeaconDone(boolean valid) {
+        if (readiness != null) onReadiness(readiness.onBeacon(valid, SystemClock.elapsedRealtime()));
+    }
+
     private void initViews(View v) {
         tvTitle = v.findViewById(R.id.tv_punch_title);
         tvStatus = v.findViewById(R.id.tv_office_status);
@@ -131,6 +199,8 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
         btnConfirm = v.findViewById(R.id.btn_confirm_punch);
         btnBeacon = v.findViewById(R.id.btn_punch_beacon);
         btnCancel = v.findViewById(R.id.btn_cancel);
+        switchHandsFree = v.findViewById(R.id.switch_hands_free);
+        switchAutoGeofence = v.findViewById(R.id.switch_auto_geofence);
     }
 
     private void setupInitialState() {
@@ -151,53 +221,173 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
         btnConfirm.setOnClickListener(v -> doPunch(false));
         btnBeacon.setOnClickListener(v -> doPunch(true));
         btnCancel.setOnClickListener(v -> dismissAllowingStateLoss());
+
+        switchHandsFree.setChecked(BackgroundBeaconScanner.isEnabled(requireContext()));
+        switchHandsFree.setOnCheckedChangeListener((button, checked) -> {
+            if (!checked) {
+                BackgroundBeaconScanner.disable(requireContext());
+            } else if (!hasBluetoothPermissions()
+                    || !BackgroundBeaconScanner.enable(requireContext(), beacons.getConfigs())) {
+                BackgroundBeaconScanner.disable(requireContext());
+                button.setChecked(false);
+                Toast.makeText(getContext(), "Hands-free punching needs Bluetooth and scan permission",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        switchAutoGeofence.setChecked(OfficeGeofencer.isEnabled(requireContext()));
+        switchAutoGeofence.setOnCheckedChangeListener((button, checked) -> {
+            if (!checked) {
+                OfficeGeofencer.disable(requireContext());
+            } else if (!OfficeGeofencer.hasPermission(requireContext())) {
+                // Re-checked from onRequestPermissionsResult once granted
+                button.setChecked(false);
+                requestPermissions(geofencePermissions(), GEOFENCE_PERMISSION_REQUEST);
+            } else {
+                enableGeofence();
+            }
+        });
+    }
+
+    // The employee's own office, if it has coordinates; synced offices are fenced alongside it
+    private void enableGeofence() {
+        List<OfficeLocation> own = new ArrayList<>();
+        if (officeLat != 0.0 || officeLng != 0.0) {
+            own.add(new OfficeLocation(officeId != null ? officeId : "office", null, officeLat, officeLng, radiusM));
+        }
+        OfficeGeofencer.enable(requireContext(), own)
+                .addOnFailureListener(e -> {
+                    OfficeGeofencer.disable(requireContext());
+                    if (getView() == null) return;
+                    switchAutoGeofence.setChecked(false);
+                    Toast.makeText(getContext(), "Automatic punching needs the office location and "
+                            + "location access all the time", Toast.LENGTH_SHORT).show();
+                });
+    }
+
+    // Android 11+ grants background location only on its own, after foreground location
+    private String[] geofencePermissions() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                && ActivityCompat.checkSelfPermission(requireContext(), android.Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED) {
+            return new String[]{ android.Manifest.permission.ACCESS_BACKGROUND_LOCATION };
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return new String[]{
+                    android.Manifest.permission.ACCESS_FINE_LOCATION,
+                    android.Manifest.permission.ACCESS_BACKGROUND_LOCATION
+            };
+        }
+        return new String[]{ android.Manifest.permission.ACCESS_FINE_LOCATION };
     }
 
     private void checkLocation() {
-        if (officeLat == 0.0 || officeLng == 0.0) {
+        if (!hasOwnOffice() && OfficeRepository.get(requireContext()).index().size() == 0) {
             tvStatus.setText("Office location not set");
             chipDist.setText("Distance: -- m");
             progressLocation.setVisibility(View.GONE);
+            onLocationDone(GeofenceDecision.Verdict.OUTSIDE);
             return;
         }
 
-        fused.getLastLocation()
+        // Served from the shared fix when recent and accurate enough, else a fresh one within the deadline
+        acquireFix(LocationBudget.PUNCH);
+    }
+
+    private void acquireFix(LocationBudget budget) {
+        LocationFixProvider.get(requireContext()).acquire(budget)
                 .addOnSuccessListener(loc -> {
+                    if (getView() == null || readiness.isFinal()) return;
                     progressLocation.setVisibility(View.GONE);
-                    updateLocationStatus(loc);
+                    // A retry that found nothing better keeps the fix we had
+                    if (loc != null) lastLocation = loc;
+                    updateLocationStatus();
                 })
                 .addOnFailureListener(e -> {
+                    if (getView() == null || readiness.isFinal()) return;
                     progressLocation.setVisibility(View.GONE);
+                    if (lastLocation != null) {
+                        updateLocationStatus();
+                        return;
+                    }
                     tvStatus.setText("Location error");
                     chipDist.setText("Distance: -- m");
+                    onLocationDone(GeofenceDecision.Verdict.UNCERTAIN);
                 });
     }
 
-    private void updateLocationStatus(@Nullable Location location) {
+    private void updateLocationStatus() {
+        Location location = lastLocation;
         if (location == null) {
             tvStatus.setText("Location unavailable");
             chipDist.setText("Distance: -- m");
+            onLocationDone(GeofenceDecision.Verdict.UNCERTAIN);
             return;
         }
 
-        float dist = GeofenceUtils.distanceMeters(
-                location.getLatitude(), location.getLongitude(), officeLat, officeLng);
+        double lat = location.getLatitude();
+        double lng = location.getLongitude();
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1_000_000L;
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+
+        float dist = Float.POSITIVE_INFINITY;
+        GeofenceDecision decision = null;
+        String place = "office radius (" + (int) radiusM + " m)";
+        if (hasOwnOffice()) {
+            dist = GeofenceUtils.distanceMeters(lat, lng, officeLat, officeLng);
+            decision = GeofenceDecision.decide(dist, radiusM, location.hasAccuracy(), accuracy, ageMs);
+        }
+        // Outside their own office, an employee may still be at any other office the fix could be in
+        if (decision == null || decision.verdict != GeofenceDecision.Verdict.INSIDE) {
+            OfficeLocation other = OfficeRepository.get(requireContext()).index().match(lat, lng, accuracy);
+            if (other != null) {
+                float otherDist = GeofenceUtils.distanceMeters(lat, lng, other.getLat(), other.getLng());
+                GeofenceDecision otherDecision = GeofenceDecision.decide(otherDist, OfficeIndex.radiusOf(other),
+                        location.hasAccuracy(), accuracy, ageMs);
+                if (decision == null || otherDecision.probabilityInside > decision.probabilityInside) {
+                    decision = otherDecision;
+                    dist = otherDist;
+                    place = (other.getName() != null ? other.getName() : "office")
+                            + " (" + (int) OfficeIndex.radiusOf(other) + " m)";
+                }
+            }
+        }
 
-        chipDist.setText("Distance: " + Math.round(dist) + " m");
+        if (decision == null) {
+            chipDist.setText("Distance: -- m");
+            tvStatus.setText("Not at any office");
+            onLocationDone(GeofenceDecision.Verdict.OUTSIDE);
+            return;
+        }
 
-        if (dist <= radiusM) {
-            tvStatus.setText("Inside office radius (" + (int) radiusM + " m)");
-            if (!beaconRequired) {
-                btnConfirm.setEnabled(true);
-                btnConfirm.setAlpha(1f);
-            }
-        } else {
-            tvStatus.setText("Outside office radius (" + (int) radiusM + " m)");
-            btnConfirm.setEnabled(false);
-            btnConfirm.setAlpha(0.5f);
+        chipDist.setText("Distance: " + Math.round(dist) + " m"
+                + (location.hasAccuracy() ? " (±" + Math.round(accuracy) + " m)" : ""));
+        switch (decision.verdict) {
+            case INSIDE:
+                tvStatus.setText("Inside " + place);
+                break;
+            case OUTSIDE:
+                tvStatus.setText("Outside " + place);
+                break;
+            default:
+                // Once per sheet: a GPS-grade fix in the time left instead of failing
+                long remainingMs = readiness.remainingMs(SystemClock.elapsedRealtime());
+                if (!preciseRequested && remainingMs > 0) {
+                    preciseRequested = true;
+                    tvStatus.setText("Location uncertain, improving accuracy...");
+                    progressLocation.setVisibility(View.VISIBLE);
+                    acquireFix(LocationBudget.PRECISE.withDeadline(
+                            Math.min(remainingMs, LocationBudget.PRECISE.deadlineMs)));
+                    return;
+                }
+                tvStatus.setText("Location uncertain near " + place);
+                break;
         }
+        onLocationDone(decision.verdict);
+    }
 
-        updatePunchButtonStates();
+    private boolean hasOwnOffice() {
+        return officeLat != 0.0 && officeLng != 0.0;
     }
 
     private void checkBeacons() {
@@ -208,13 +398,27 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
         startBeaconScan();
     }
 
-    private void startBeaconScan() {
-        // TODO: Replace with beacons loaded from Firebase org settings
-        List<BeaconConfig> beacons = getSampleBeaconConfigs();
+    private void onBeaconsRefreshed(BeaconCatalog catalog) {
+        beaconsRefreshed = true;
+        if (catalog != beacons) {
+            beacons = catalog;
+            if (isAdded() && BackgroundBeaconScanner.isEnabled(requireContext())) {
+                BackgroundBeaconScanner.enable(requireContext(), catalog.getConfigs());
+            }
+        }
+        // Only a sheet that had nothing to scan for starts one now; a running scan keeps its set
+        if (getView() != null && beaconScanner == null && readiness != null && !readiness.isFinal()
+                && hasBluetoothPermissions()) {
+            startBeaconScan();
+        }
+    }
 
+    private void startBeaconScan() {
         if (beacons.isEmpty()) {
             progressBeacon.setVisibility(View.GONE);
             chipBeacon.setText("Beacon: not configured");
+            // Until the refresh answers, beacons may still turn up for this office
+            if (beaconsRefreshed) onBeaconDone(false);
             return;
         }
 
@@ -243,6 +447,7 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
             public void onScanError(String error) {
                 progressBeacon.setVisibility(View.GONE);
                 chipBeacon.setText("Beacon: " + error);
+                onBeaconDone(false);
             }
         });
 
@@ -252,27 +457,13 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
     private void updateBeaconStatus(BeaconScanResult result) {
         if (result.isValid()) {
             chipBeacon.setText("Beacon: " + result.getLabel() + " (" + result.getRssi() + " dBm)");
-            btnBeacon.setEnabled(true);
-            btnBeacon.setAlpha(1f);
-
-            if (beaconRequired) {
-                btnConfirm.setEnabled(true);
-                btnConfirm.setAlpha(1f);
-            }
+        } else if (readiness != null && readiness.isFinal()) {
+            // Stopped because the location check already settled the punch
+            chipBeacon.setText("Beacon: not needed");
         } else {
             chipBeacon.setText("Beacon: not found or too far");
-            btnBeacon.setEnabled(false);
-            btnBeacon.setAlpha(0.5f);
-        }
-
-        updatePunchButtonStates();
-    }
-
-    private void updatePunchButtonStates() {
-        if (beaconRequired && (lastBeaconResult == null || !lastBeaconResult.isValid())) {
-            btnConfirm.setEnabled(false);
-            btnConfirm.setAlpha(0.5f);
         }
+        onBeaconDone(result.isValid());
     }
 
     private void doPunch(boolean useBeacon) {
@@ -355,30 +546,20 @@ public class PunchBottomSheet extends BottomSheetDialogFragment {
             } else {
                 progressBeacon.setVisibility(View.GONE);
                 chipBeacon.setText("Beacon: permission denied");
+                onBeaconDone(false);
+            }
+        } else if (requestCode == GEOFENCE_PERMISSION_REQUEST) {
+            // Setting the switch runs the listener, which asks for what is still missing (R+: background)
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                switchAutoGeofence.setChecked(true);
             }
         }
     }
 
-    private List<BeaconConfig> getSampleBeaconConfigs() {
-        // NOTE: Replace with Firestore-backed configs in production
-        List<BeaconConfig> configs = new ArrayList<>();
-
-        BeaconConfig config = new BeaconConfig();
-        config.setBeaconId("office-main");
-        config.setUuid("e2c56db5-dffb-48d2-b060-d0f5a71096e0");
-        config.setMajor(1);
-        config.setMinor(1);
-        config.setRssiThreshold(-70);
-        config.setLabel("Office Main");
-        config.setEnabled(true);
-        configs.add(config);
-
-        return configs;
-    }
-
     @Override
     public void onDestroy() {
         super.onDestroy();
+        handler.removeCallbacks(deadlineRunnable);
         if (beaconScanner != null) {
             beaconScanner.stopScan();
         }
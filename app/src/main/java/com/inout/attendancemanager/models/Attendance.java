@@ -1,6 +1,7 @@
 package com.inout.attendancemanager.models;
 
 import java.util.Date;
+import java.util.List;
 
 public class Attendance {
     private String userId;
@@ -10,8 +11,12 @@ public class Attendance {
     private Date inTime;             // start of the current/last session
     private Date outTime;            // end of current session; null while active
 
+    // Append-only session log; openSession indexes the running one (null when closed)
+    private List<WorkSession> sessions;
+    private Integer openSession;
+
     // Aggregates and status
-    private long totalMinutes;
+    private long totalMinutes;       // running sum of closed sessions
     private String status; // "present_in_progress", "present_complete", "absent", "weekoff", "missed"
 
     // Device/meta
@@ -26,6 +31,11 @@ public class Attendance {
     private Date firstInTime;        // first check-in of the day (for display)
     private Date lastOutTime;        // latest check-out of the day (for display)
 
+    // Optional beacon audit fields
+    private String beaconId;
+    private Integer beaconRssi;
+    private Date beaconSeenAt;
+
     public Attendance() {}
 
     public String getUserId() { return userId; }
@@ -40,6 +50,12 @@ public class Attendance {
     public Date getOutTime() { return outTime; }
     public void setOutTime(Date outTime) { this.outTime = outTime; }
 
+    public List<WorkSession> getSessions() { return sessions; }
+    public void setSessions(List<WorkSession> sessions) { this.sessions = sessions; }
+
+    public Integer getOpenSession() { return openSession; }
+    public void setOpenSession(Integer openSession) { this.openSession = openSession; }
+
     public long getTotalMinutes() { return totalMinutes; }
     public void setTotalMinutes(long totalMinutes) { this.totalMinutes = totalMinutes; }
 
@@ -69,4 +85,13 @@ public class Attendance {
 
     public Date getLastOutTime() { return lastOutTime; }
     public void setLastOutTime(Date lastOutTime) { this.lastOutTime = lastOutTime; }
+
+    public String getBeaconId() { return beaconId; }
+    public void setBeaconId(String beaconId) { this.beaconId = beaconId; }
+
+    public Integer getBeaconRssi() { return beaconRssi; }
+    public void setBeaconRssi(Integer beaconRssi) { this.beaconRssi = beaconRssi; }
+
+    public Date getBeaconSeenAt() { return beaconSeenAt; }
+    public void setBeaconSeenAt(Date beaconSeenAt) { this.beaconSeenAt = beaconSeenAt; }
 }
@@ -2,11 +2,20 @@ package com.inout.attendancemanager.models;
 
 public class BeaconConfig {
     private String beaconId;
-    private String uuid;
-    private int major;
-    private int minor;
+    // "ibeacon" (default), "eddystone_uid" or "altbeacon"
+    private String frameType;
+    private String uuid; // iBeacon UUID, AltBeacon ID1
+    private int major;   // ID2 for AltBeacon
+    private int minor;   // ID3 for AltBeacon
+    private String namespaceId; // Eddystone-UID, 20 hex digits
+    private String instanceId;  // Eddystone-UID, 12 hex digits
+    private Integer companyId;  // AltBeacon manufacturer; needed for hardware filtering
     private int rssiThreshold; // e.g., -70
+    private Double maxDistanceMeters; // when set, used instead of rssiThreshold
     private String label;
+    // Background duty cycle: "low_power" (default) or "balanced", and how long results are batched
+    private String backgroundScanMode;
+    private Long backgroundReportDelayMs;
     private boolean enabled;
 
     public BeaconConfig() {}
@@ -15,6 +24,9 @@ public class BeaconConfig {
     public String getBeaconId() { return beaconId; }
     public void setBeaconId(String beaconId) { this.beaconId = beaconId; }
 
+    public String getFrameType() { return frameType; }
+    public void setFrameType(String frameType) { this.frameType = frameType; }
+
     public String getUuid() { return uuid; }
     public void setUuid(String uuid) { this.uuid = uuid; }
 
@@ -24,12 +36,30 @@ public class BeaconConfig {
     public int getMinor() { return minor; }
     public void setMinor(int minor) { this.minor = minor; }
 
+    public String getNamespaceId() { return namespaceId; }
+    public void setNamespaceId(String namespaceId) { this.namespaceId = namespaceId; }
+
+    public String getInstanceId() { return instanceId; }
+    public void setInstanceId(String instanceId) { this.instanceId = instanceId; }
+
+    public Integer getCompanyId() { return companyId; }
+    public void setCompanyId(Integer companyId) { this.companyId = companyId; }
+
     public int getRssiThreshold() { return rssiThreshold; }
     public void setRssiThreshold(int rssiThreshold) { this.rssiThreshold = rssiThreshold; }
 
+    public Double getMaxDistanceMeters() { return maxDistanceMeters; }
+    public void setMaxDistanceMeters(Double maxDistanceMeters) { this.maxDistanceMeters = maxDistanceMeters; }
+
     public String getLabel() { return label; }
     public void setLabel(String label) { this.label = label; }
 
+    public String getBackgroundScanMode() { return backgroundScanMode; }
+    public void setBackgroundScanMode(String backgroundScanMode) { this.backgroundScanMode = backgroundScanMode; }
+
+    public Long getBackgroundReportDelayMs() { return backgroundReportDelayMs; }
+    public void setBackgroundReportDelayMs(Long backgroundReportDelayMs) { this.backgroundReportDelayMs = backgroundReportDelayMs; }
+
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
 }
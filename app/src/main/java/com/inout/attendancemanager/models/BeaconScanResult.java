@@ -5,18 +5,29 @@ public class BeaconScanResult {
     private final int rssi;
     private final String label;
     private final boolean isValid;
+    private final double distanceMeters; // estimated; -1 when unknown
+    private final double confidence;     // 0..1
 
     public BeaconScanResult(String beaconId, int rssi, String label, boolean isValid) {
+        this(beaconId, rssi, label, isValid, -1, 0);
+    }
+
+    public BeaconScanResult(String beaconId, int rssi, String label, boolean isValid,
+                            double distanceMeters, double confidence) {
         this.beaconId = beaconId;
         this.rssi = rssi;
         this.label = label;
         this.isValid = isValid;
+        this.distanceMeters = distanceMeters;
+        this.confidence = confidence;
     }
 
     public String getBeaconId() { return beaconId; }
     public int getRssi() { return rssi; }
     public String getLabel() { return label; }
     public boolean isValid() { return isValid; }
+    public double getDistanceMeters() { return distanceMeters; }
+    public double getConfidence() { return confidence; }
 
     public static BeaconScanResult invalid() {
         return new BeaconScanResult(null, -999, null, false);
@@ -24,7 +24,7 @@ public class Employee {
     private String designation;
     private String joinDate;
     private String reportingManager;
-    private String officeLocation;
+    private String officeLocation;  // free-text label picked at registration, e.g. "Head Office - Mumbai"
     private String emergencyContactName;
     private String emergencyContactPhone;
     private String profileImageUrl;
@@ -42,6 +42,8 @@ public class Employee {
     // New fields:
     private double officeLat;
     private double officeLng;
+    // offices/{officeId} the employee punches at (beacons, geofence); set by admin alongside officeLat/officeLng
+    private String officeId;
 
     // Empty constructor for Firestore
     public Employee() {}
@@ -110,4 +112,6 @@ public class Employee {
     public void setOfficeLat(double officeLat) { this.officeLat = officeLat; }
     public double getOfficeLng() { return officeLng; }
     public void setOfficeLng(double officeLng) { this.officeLng = officeLng; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
 }
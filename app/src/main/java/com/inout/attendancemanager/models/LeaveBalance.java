@@ -0,0 +1,38 @@
+package com.inout.attendancemanager.models;
+
+/**
+ * Running leave totals for one year in leaves/{uid}/balances/{yyyy}, kept up to date by
+ * increments on every accrual and leave transition.
+ */
+public class LeaveBalance {
+    private int year;
+    private double accrued;           // earned so far this year
+    private double used;              // approved leave
+    private double pending;           // requested, not yet decided
+    private int accruedThroughMonth;  // 1-12; accrual has been applied up to this month
+    private int eligibleFromMonth;    // 1-12; first month that accrues (join month in the join year)
+
+    public LeaveBalance() {}
+
+    public double remaining() {
+        return accrued - used - pending;
+    }
+
+    public int getYear() { return year; }
+    public void setYear(int year) { this.year = year; }
+
+    public double getAccrued() { return accrued; }
+    public void setAccrued(double accrued) { this.accrued = accrued; }
+
+    public double getUsed() { return used; }
+    public void setUsed(double used) { this.used = used; }
+
+    public double getPending() { return pending; }
+    public void setPending(double pending) { this.pending = pending; }
+
+    public int getAccruedThroughMonth() { return accruedThroughMonth; }
+    public void setAccruedThroughMonth(int accruedThroughMonth) { this.accruedThroughMonth = accruedThroughMonth; }
+
+    public int getEligibleFromMonth() { return eligibleFromMonth; }
+    public void setEligibleFromMonth(int eligibleFromMonth) { this.eligibleFromMonth = eligibleFromMonth; }
+}
@@ -0,0 +1,52 @@
+package com.inout.attendancemanager.models;
+
+import java.util.Date;
+
+/**
+ * A leave request in leaves/{uid}/records/{id}. Status moves pending -> approved/rejected/cancelled,
+ * or approved -> cancelled; every move is mirrored in the year's LeaveBalance.
+ */
+public class LeaveRecord {
+    private String id;
+    private String userId;
+    private String type;        // "casual", "sick"
+    private String fromDateId;  // yyyy-MM-dd, inclusive
+    private String toDateId;    // yyyy-MM-dd, inclusive
+    private double days;        // working days charged against the balance
+    private String reason;
+    private String status;      // pending, approved, rejected, cancelled
+    private Date createdAt;
+    private Date updatedAt;
+
+    public LeaveRecord() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getFromDateId() { return fromDateId; }
+    public void setFromDateId(String fromDateId) { this.fromDateId = fromDateId; }
+
+    public String getToDateId() { return toDateId; }
+    public void setToDateId(String toDateId) { this.toDateId = toDateId; }
+
+    public double getDays() { return days; }
+    public void setDays(double days) { this.days = days; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+}
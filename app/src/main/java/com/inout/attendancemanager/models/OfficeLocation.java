@@ -0,0 +1,52 @@
+package com.inout.attendancemanager.models;
+
+import java.util.Objects;
+
+public class OfficeLocation {
+    private String officeId;
+    private String name;
+    private double lat;
+    private double lng;
+    private float radiusMeters;
+    private boolean deleted; // tombstone, so incremental sync can see removals
+
+    public OfficeLocation() {}
+
+    public OfficeLocation(String officeId, String name, double lat, double lng, float radiusMeters) {
+        this.officeId = officeId;
+        this.name = name;
+        this.lat = lat;
+        this.lng = lng;
+        this.radiusMeters = radiusMeters;
+    }
+
+    // Getters and setters
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; }
+
+    public double getLng() { return lng; }
+    public void setLng(double lng) { this.lng = lng; }
+
+    public float getRadiusMeters() { return radiusMeters; }
+    public void setRadiusMeters(float radiusMeters) { this.radiusMeters = radiusMeters; }
+
+    public boolean isDeleted() { return deleted; }
+    public void setDeleted(boolean deleted) { this.deleted = deleted; }
+
+    // Same stored fields; sync uses it to tell a re-read office from a changed one
+    public boolean sameAs(OfficeLocation other) {
+        return other != null
+                && Objects.equals(officeId, other.officeId)
+                && Objects.equals(name, other.name)
+                && Double.compare(lat, other.lat) == 0
+                && Double.compare(lng, other.lng) == 0
+                && Float.compare(radiusMeters, other.radiusMeters) == 0
+                && deleted == other.deleted;
+    }
+}
@@ -0,0 +1,68 @@
+package com.inout.attendancemanager.models;
+
+/**
+ * A single punch recorded in the local journal before it is merged into
+ * attendance/{uid}/days/{dateId}.
+ */
+public class PunchEntry {
+    public static final String TYPE_IN = "in";
+    public static final String TYPE_OUT = "out";
+
+    private String id;
+    private String userId;
+    private String dateId;    // yyyy-MM-dd at the time of the punch
+    private String type;      // TYPE_IN or TYPE_OUT
+    private long timestamp;   // device wall clock, millis
+
+    // Device/meta
+    private String deviceId;
+    private Double latitude;
+    private Double longitude;
+
+    // Optional beacon audit fields
+    private String beaconId;
+    private Integer beaconRssi;
+
+    // Empty constructor for Gson
+    public PunchEntry() {}
+
+    public PunchEntry(String id, String userId, String dateId, String type, long timestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.dateId = dateId;
+        this.type = type;
+        this.timestamp = timestamp;
+    }
+
+    public boolean isIn() { return TYPE_IN.equals(type); }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getDateId() { return dateId; }
+    public void setDateId(String dateId) { this.dateId = dateId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public String getBeaconId() { return beaconId; }
+    public void setBeaconId(String beaconId) { this.beaconId = beaconId; }
+
+    public Integer getBeaconRssi() { return beaconRssi; }
+    public void setBeaconRssi(Integer beaconRssi) { this.beaconRssi = beaconRssi; }
+}
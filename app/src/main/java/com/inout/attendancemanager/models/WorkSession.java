@@ -0,0 +1,33 @@
+package com.inout.attendancemanager.models;
+
+import java.util.Date;
+
+/**
+ * One IN/OUT pair of a day. Sessions are only ever appended; the open one is
+ * closed in place by the next OUT.
+ */
+public class WorkSession {
+    private Date inTime;
+    private Date outTime;      // null while the session is open
+    private long minutes;      // set when the session is closed
+    private String method;     // "manual", "beacon"
+
+    public WorkSession() {}
+
+    public WorkSession(Date inTime, String method) {
+        this.inTime = inTime;
+        this.method = method;
+    }
+
+    public Date getInTime() { return inTime; }
+    public void setInTime(Date inTime) { this.inTime = inTime; }
+
+    public Date getOutTime() { return outTime; }
+    public void setOutTime(Date outTime) { this.outTime = outTime; }
+
+    public long getMinutes() { return minutes; }
+    public void setMinutes(long minutes) { this.minutes = minutes; }
+
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+}
@@ -0,0 +1,48 @@
+package com.inout.attendancemanager.receivers;
+
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanResult;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.core.content.IntentCompat;
+
+import com.inout.attendancemanager.utils.BackgroundBeaconScanner;
+
+import java.util.ArrayList;
+
+/**
+ * Receives batched results of the background beacon scan; the system may start the process just for this.
+ */
+public class BeaconScanReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "BeaconScanReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!BackgroundBeaconScanner.ACTION_SCAN_RESULTS.equals(intent.getAction())) return;
+
+        int error = intent.getIntExtra(BluetoothLeScanner.EXTRA_ERROR_CODE, 0);
+        if (error != 0) {
+            Log.e(TAG, "Background scan error: " + error);
+            return;
+        }
+        ArrayList<ScanResult> results = IntentCompat.getParcelableArrayListExtra(intent,
+                BluetoothLeScanner.EXTRA_LIST_SCAN_RESULT, ScanResult.class);
+        if (results == null || results.isEmpty()) return;
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        BackgroundBeaconScanner.EXECUTOR.execute(() -> {
+            try {
+                BackgroundBeaconScanner.handleBatch(appContext, results);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to handle beacon batch", e);
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+}
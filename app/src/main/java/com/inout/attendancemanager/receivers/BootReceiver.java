@@ -0,0 +1,37 @@
+package com.inout.attendancemanager.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.inout.attendancemanager.utils.BackgroundBeaconScanner;
+import com.inout.attendancemanager.utils.OfficeGeofencer;
+
+/**
+ * Re-arms automatic punching after a reboot or an app update, both of which drop the office
+ * geofences and the background beacon scan without the app being opened.
+ */
+public class BootReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "BootReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action) && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) return;
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        OfficeGeofencer.EXECUTOR.execute(() -> {
+            try {
+                BackgroundBeaconScanner.restoreIfEnabled(appContext);
+                OfficeGeofencer.restoreBlocking(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to restore automatic punching", e);
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.inout.attendancemanager.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofenceStatusCodes;
+import com.google.android.gms.location.GeofencingEvent;
+import com.inout.attendancemanager.utils.OfficeGeofencer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives office geofence transitions from Play services; the system may start the process just for this.
+ */
+public class GeofenceReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "GeofenceReceiver";
+
+    public static final String ACTION_GEOFENCE_EVENT = "com.inout.attendancemanager.action.GEOFENCE_EVENT";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!ACTION_GEOFENCE_EVENT.equals(intent.getAction())) return;
+
+        GeofencingEvent event = GeofencingEvent.fromIntent(intent);
+        if (event == null) return;
+        if (event.hasError()) {
+            Log.e(TAG, "Geofence error: " + GeofenceStatusCodes.getStatusCodeString(event.getErrorCode()));
+            return;
+        }
+        List<String> requestIds = new ArrayList<>();
+        if (event.getTriggeringGeofences() != null) {
+            for (Geofence fence : event.getTriggeringGeofences()) requestIds.add(fence.getRequestId());
+        }
+        if (requestIds.isEmpty()) return;
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        OfficeGeofencer.EXECUTOR.execute(() -> {
+            try {
+                OfficeGeofencer.handleTransition(appContext, event.getGeofenceTransition(), requestIds,
+                        event.getTriggeringLocation());
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to handle geofence transition", e);
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which Firestore layout a user's attendance is stored in: one document per day (default) or one
+ * bundled document per month. The layout belongs to the user, as the "layout" field of
+ * attendance/{uid}, so all of their devices agree; {@link MonthBundleMigrator} publishes it and
+ * each device caches it in preferences, refreshed by {@link #refresh} before syncing or replaying.
+ * While the migrator copies days it also sets "migrating" there, and {@link #refreshForWrite}
+ * holds replays back until it is done. Day documents are written through {@link PreconditionDayStore}
+ * instead of a transaction once "preconditionWrites" is published there the same way.
+ */
+public final class AttendanceLayout {
+
+    private AttendanceLayout() {}
+
+    static final String FIELD_LAYOUT = "layout";
+    static final String FIELD_MIGRATING = "migrating";
+    /*
+     * Set to true on attendance/{uid} (see publishPreconditionWrites) only once the Firestore rules
+     * reject day writes that skip a revision; without them PreconditionDayStore overwrites
+     * concurrent sessions from a stale cache. The day documents need exactly these conditions, added
+     * with && to whatever access checks the project's rules already make there:
+     *
+     *   match /attendance/{uid}/days/{dateId} {
+     *     allow create: if request.resource.data.revision == 1;
+     *     allow update: if request.resource.data.revision == resource.data.revision + 1;
+     *   }
+     *
+     * FirestoreDayStore bumps the revision on every write too, so devices still on the
+     * transaction keep working under the rule. Setting it back to false reverts to the transaction.
+     */
+    static final String FIELD_PRECONDITION_WRITES = "preconditionWrites";
+    private static final long REFRESH_TIMEOUT_S = 15;
+
+    public static boolean isMonthBundles(Context context) {
+        return Constants.LAYOUT_MONTH_BUNDLES.equals(prefs(context)
+                .getString(Constants.PREF_ATTENDANCE_LAYOUT, Constants.LAYOUT_DAY_DOCS));
+    }
+
+    // Layout name as stored in preferences
+    public static String name(Context context) {
+        return isMonthBundles(context) ? Constants.LAYOUT_MONTH_BUNDLES : Constants.LAYOUT_DAY_DOCS;
+    }
+
+    public static void setMonthBundles(Context context, boolean enabled) {
+        prefs(context).edit()
+                .putString(Constants.PREF_ATTENDANCE_LAYOUT,
+                        enabled ? Constants.LAYOUT_MONTH_BUNDLES : Constants.LAYOUT_DAY_DOCS)
+                .apply();
+    }
+
+    // Records the layout on the user's document, for their other devices to pick up; ends any migration
+    public static Task<Void> publish(String userId, boolean monthBundles) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_LAYOUT, monthBundles ? Constants.LAYOUT_MONTH_BUNDLES : Constants.LAYOUT_DAY_DOCS);
+        fields.put(FIELD_MIGRATING, false);
+        return userRef(userId).set(fields, SetOptions.merge());
+    }
+
+    // For whoever deploys the rule above; devices pick it up on their next refresh
+    public static Task<Void> publishPreconditionWrites(String userId, boolean enabled) {
+        return userRef(userId).set(Collections.singletonMap(FIELD_PRECONDITION_WRITES, enabled), SetOptions.merge());
+    }
+
+    public static boolean usesPreconditionWrites(Context context) {
+        return prefs(context).getBoolean(Constants.PREF_PRECONDITION_WRITES, false);
+    }
+
+    static Task<Void> setMigrating(String userId, boolean migrating) {
+        return userRef(userId).set(Collections.singletonMap(FIELD_MIGRATING, migrating), SetOptions.merge());
+    }
+
+    // Adopts the user's published layout on this device; returns whether it is month bundles
+    @WorkerThread
+    public static boolean refresh(Context context, String userId) throws Exception {
+        return adopt(context, fetch(userId));
+    }
+
+    // As refresh(), but fails while a migration is copying days so the caller retries its writes
+    // afterwards, against the layout the migration ends on
+    @WorkerThread
+    public static boolean refreshForWrite(Context context, String userId) throws Exception {
+        DocumentSnapshot doc = fetch(userId);
+        if (Boolean.TRUE.equals(doc.getBoolean(FIELD_MIGRATING))) {
+            throw new IllegalStateException("Attendance layout migration in progress");
+        }
+        return adopt(context, doc);
+    }
+
+    private static DocumentSnapshot fetch(String userId) throws Exception {
+        return Tasks.await(userRef(userId).get(Source.SERVER), REFRESH_TIMEOUT_S, TimeUnit.SECONDS);
+    }
+
+    private static boolean adopt(Context context, DocumentSnapshot doc) {
+        String layout = doc.getString(FIELD_LAYOUT);
+        // Users nobody has migrated have no field and stay on day documents
+        boolean monthBundles = Constants.LAYOUT_MONTH_BUNDLES.equals(layout);
+        if (monthBundles != isMonthBundles(context)) setMonthBundles(context, monthBundles);
+        boolean precondition = Boolean.TRUE.equals(doc.getBoolean(FIELD_PRECONDITION_WRITES));
+        if (precondition != usesPreconditionWrites(context)) {
+            prefs(context).edit().putBoolean(Constants.PREF_PRECONDITION_WRITES, precondition).apply();
+        }
+        return monthBundles;
+    }
+
+    // Day documents stay on the transaction unless the user has preconditionWrites published
+    public static FirestoreDayStore dayStore(Context context) {
+        if (isMonthBundles(context)) return new MonthBundleDayStore();
+        return usesPreconditionWrites(context) ? new PreconditionDayStore() : new FirestoreDayStore();
+    }
+
+    private static DocumentReference userRef(String userId) {
+        return FirebaseFirestore.getInstance().collection(Constants.COLLECTION_ATTENDANCE).document(userId);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
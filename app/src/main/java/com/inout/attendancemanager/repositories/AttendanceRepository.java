@@ -1,52 +1,68 @@
 package com.inout.attendancemanager.repositories;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.MediatorLiveData;
 
 import com.google.android.gms.tasks.Task;
-import com.google.firebase.Timestamp;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Source;
 import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+import com.inout.attendancemanager.utils.Constants;
 import com.inout.attendancemanager.utils.DateUtils;
+import com.inout.attendancemanager.workers.PunchReplayWorker;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AttendanceRepository {
+    // Journal appends are serialized so two quick taps validate against each other
+    private static final Executor PUNCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
     private final FirebaseFirestore db;
+    private final Context context;
+    private final PunchJournal journal;
     private final String userId;
+    private final boolean monthBundles;
+    // Document snapshots returned to loadMonth, for the history benchmark
+    @VisibleForTesting
+    final AtomicInteger snapshotsRead = new AtomicInteger();
 
-    public AttendanceRepository(String userId) {
+    public AttendanceRepository(Context context, String userId) {
         this.db = FirebaseFirestore.getInstance();
+        this.context = context.getApplicationContext();
+        this.journal = PunchJournal.get(context);
         this.userId = userId;
+        this.monthBundles = AttendanceLayout.isMonthBundles(context);
     }
 
+    // Shares the day's snapshot listener with other observers; pending journal entries are projected on top.
+    // Rebinds to the new day at local midnight.
+    @MainThread
     public LiveData<Attendance> observeToday() {
-        MutableLiveData<Attendance> live = new MutableLiveData<>();
-        String dateId = DateUtils.getTodayDateId();
-        db.collection("attendance")
-                .document(userId)
-                .collection("days")
-                .document(dateId)
-                .addSnapshotListener((snap, e) -> {
-                    if (e != null) {
-                        live.setValue(null);
-                        return;
-                    }
-                    if (snap != null && snap.exists()) {
-                        Attendance att = snap.toObject(Attendance.class);
-                        if (att != null) att.setDateId(dateId);
-                        live.setValue(att);
-                    } else {
-                        live.setValue(null);
-                    }
-                });
-        return live;
+        return new TodayLiveData();
     }
 
     // Backward-compatible manual punchIn
@@ -56,135 +72,210 @@ public class AttendanceRepository {
 
     // New punchIn with optional beacon metadata
     public Task<Void> punchIn(String deviceId, Double lat, Double lng, String beaconId, Integer beaconRssi) {
+        return record(PunchEntry.TYPE_IN, deviceId, lat, lng, beaconId, beaconRssi);
+    }
+
+    // Backward-compatible manual punchOut
+    public Task<Void> punchOut(String deviceId, Double lat, Double lng) {
+        return punchOut(deviceId, lat, lng, null, null);
+    }
+
+    // New punchOut with optional beacon metadata
+    public Task<Void> punchOut(String deviceId, Double lat, Double lng, String beaconId, Integer beaconRssi) {
+        return record(PunchEntry.TYPE_OUT, deviceId, lat, lng, beaconId, beaconRssi);
+    }
+
+    // Validates against the cached day + pending journal, appends, and confirms without waiting on the network.
+    private Task<Void> record(String type, String deviceId, Double lat, Double lng,
+                              String beaconId, Integer beaconRssi) {
         String dateId = DateUtils.getTodayDateId();
-        DocumentReference docRef = db.collection("attendance")
-                .document(userId)
-                .collection("days")
-                .document(dateId);
+        PunchEntry entry = new PunchEntry(UUID.randomUUID().toString(), userId, dateId, type,
+                System.currentTimeMillis());
+        entry.setDeviceId(deviceId);
+        entry.setLatitude(lat);
+        entry.setLongitude(lng);
+        entry.setBeaconId(beaconId);
+        entry.setBeaconRssi(beaconRssi);
 
-        return db.runTransaction(transaction -> {
-            DocumentSnapshot snap = transaction.get(docRef);
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("userId", userId);
-            updates.put("dateId", dateId);
-            updates.put("deviceId", deviceId);
-            updates.put("method", beaconId != null ? "beacon" : "manual");
-            updates.put("updatedAt", FieldValue.serverTimestamp());
-            updates.put("status", "present_in_progress");
-
-            // Optional beacon audit fields
-            if (beaconId != null) {
-                updates.put("beaconId", beaconId);
-                updates.put("beaconRssi", beaconRssi);
-                updates.put("beaconSeenAt", FieldValue.serverTimestamp());
+        return loadBaseDay(dateId).continueWith(PUNCH_EXECUTOR, task -> {
+            Attendance projected = project(task.getResult(), dateId);
+            try {
+                PunchMerger.apply(projected, entry);
+            } catch (PunchRejectedException e) {
+                throw new FirebaseFirestoreException(e.getMessage(), toCode(e.getReason()));
             }
+            journal.append(entry);
+            PunchReplayWorker.enqueue(context);
+            return null;
+        });
+    }
 
-            if (!snap.exists()) {
-                // First punch of the day
-                updates.put("createdAt", FieldValue.serverTimestamp());
-                // Start current session
-                updates.put("inTime", FieldValue.serverTimestamp());
-                updates.put("outTime", null);
-                // Display helpers
-                updates.put("firstInTime", FieldValue.serverTimestamp());
-                updates.put("lastOutTime", null);
-                // Aggregates
-                updates.put("totalMinutes", 0L);
-                if (lat != null && lng != null) {
-                    updates.put("latitude", lat);
-                    updates.put("longitude", lng);
-                }
-                transaction.set(docRef, updates, SetOptions.merge());
-                return null;
-            }
+    // Local cache first; only go to the server when nothing has been cached yet.
+    private Task<Attendance> loadBaseDay(String dateId) {
+        DocumentReference docRef = readRef(dateId);
+        return docRef.get(Source.CACHE)
+                .continueWithTask(task -> task.isSuccessful() ? task : docRef.get())
+                .continueWith(task -> task.isSuccessful() ? toDay(task.getResult(), dateId) : null);
+    }
 
-            Attendance old = snap.toObject(Attendance.class);
-            // If already in an active session (outTime == null), block double IN
-            if (old.getInTime() != null && old.getOutTime() == null) {
-                throw new FirebaseFirestoreException("Already punched in",
-                        FirebaseFirestoreException.Code.ABORTED);
-            }
+    // All recorded days of a month: one document read with month bundles, one per day otherwise.
+    public Task<List<Attendance>> loadMonth(String monthId) {
+        if (monthBundles) {
+            return monthRef(monthId).get().continueWith(task -> {
+                if (task.getResult().exists()) snapshotsRead.incrementAndGet();
+                return MonthBundleDayStore.daysOf(task.getResult());
+            });
+        }
 
-            // Begin a new session; keep firstInTime from the first ever IN
-            updates.put("inTime", FieldValue.serverTimestamp());
-            updates.put("outTime", null);
-            if (snap.getTimestamp("firstInTime") == null) {
-                updates.put("firstInTime", FieldValue.serverTimestamp());
-            }
-            if (lat != null && lng != null) {
-                updates.put("latitude", lat);
-                updates.put("longitude", lng);
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection("days")
+                .whereGreaterThanOrEqualTo(FieldPath.documentId(), monthId + "-01")
+                .whereLessThanOrEqualTo(FieldPath.documentId(), monthId + "-31")
+                .get()
+                .continueWith(task -> {
+                    snapshotsRead.addAndGet(task.getResult().size());
+                    List<Attendance> days = new ArrayList<>();
+                    for (QueryDocumentSnapshot doc : task.getResult()) {
+                        Attendance day = doc.toObject(Attendance.class);
+                        day.setDateId(doc.getId());
+                        days.add(day);
+                    }
+                    return days;
+                });
+    }
+
+    // Several months in parallel, oldest first
+    public Task<List<Attendance>> loadHistory(List<String> monthIds) {
+        List<Task<List<Attendance>>> months = new ArrayList<>();
+        for (String monthId : monthIds) months.add(loadMonth(monthId));
+        return Tasks.whenAllSuccess(months).continueWith(task -> {
+            List<Attendance> all = new ArrayList<>();
+            for (Object month : task.getResult()) {
+                for (Object day : (List<?>) month) all.add((Attendance) day);
             }
-            transaction.update(docRef, updates);
-            return null;
+            Collections.sort(all, (a, b) -> a.getDateId().compareTo(b.getDateId()));
+            return all;
         });
     }
 
-    // Backward-compatible manual punchOut
-    public Task<Void> punchOut(String deviceId, Double lat, Double lng) {
-        return punchOut(deviceId, lat, lng, null, null);
+    @Nullable
+    private Attendance toDay(@Nullable DocumentSnapshot snap, String dateId) {
+        if (snap == null || !snap.exists()) return null;
+        if (monthBundles) return MonthBundleDayStore.dayOf(snap, dateId);
+        Attendance att = snap.toObject(Attendance.class);
+        if (att != null) att.setDateId(dateId);
+        return att;
     }
 
-    // New punchOut with optional beacon metadata
-    public Task<Void> punchOut(String deviceId, Double lat, Double lng, String beaconId, Integer beaconRssi) {
-        String dateId = DateUtils.getTodayDateId();
-        DocumentReference docRef = db.collection("attendance")
+    @Nullable
+    private Attendance project(@Nullable Attendance remote, String dateId) {
+        List<PunchEntry> pending = journal.pending(userId, dateId);
+        if (pending.isEmpty()) return remote;
+        return PunchMerger.mergeAll(remote, pending).day;
+    }
+
+    // Document holding the day in the active layout
+    private DocumentReference readRef(String dateId) {
+        if (monthBundles) return monthRef(MonthSummaryCalculator.monthIdOf(dateId));
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
                 .document(userId)
                 .collection("days")
                 .document(dateId);
+    }
 
-        return db.runTransaction(transaction -> {
-            DocumentSnapshot snap = transaction.get(docRef);
-            if (!snap.exists()) {
-                throw new FirebaseFirestoreException("No punch-in record",
-                        FirebaseFirestoreException.Code.NOT_FOUND);
-            }
-            Attendance old = snap.toObject(Attendance.class);
-            if (old.getInTime() == null) {
-                throw new FirebaseFirestoreException("No active session",
-                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
-            }
-            if (old.getOutTime() != null) {
-                throw new FirebaseFirestoreException("Already punched out",
-                        FirebaseFirestoreException.Code.ABORTED);
-            }
+    private DocumentReference monthRef(String monthId) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection(MonthBundleDayStore.MONTHS)
+                .document(monthId);
+    }
 
-            Timestamp now = Timestamp.now();
-            long deltaMillis = now.toDate().getTime() - old.getInTime().getTime();
-            long prevMinutes = old.getTotalMinutes();
-            long newTotalMinutes = prevMinutes + (deltaMillis / (1000 * 60));
-
-            Map<String, Object> updates = new HashMap<>();
-            // Close current session
-            updates.put("outTime", now);
-            // Update display helper
-            updates.put("lastOutTime", now);
-            // Meta + aggregates
-            updates.put("updatedAt", now);
-            updates.put("totalMinutes", newTotalMinutes);
-            updates.put("deviceId", deviceId);
-            updates.put("method", beaconId != null ? "beacon" : "manual");
-
-            // Optional beacon audit fields
-            if (beaconId != null) {
-                updates.put("beaconId", beaconId);
-                updates.put("beaconRssi", beaconRssi);
-                updates.put("beaconSeenAt", now);
+    private final class TodayLiveData extends MediatorLiveData<Attendance> {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final Runnable rollover = this::rolloverIfNeeded;
+        private final PunchJournal.Listener journalListener = this::refresh;
+        // Wall-clock or zone changes move midnight; the timer is rescheduled for them
+        private final BroadcastReceiver clockReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                DateUtils.invalidate();
+                rolloverIfNeeded();
             }
+        };
 
-            if (lat != null && lng != null) {
-                updates.put("latitude", lat);
-                updates.put("longitude", lng);
-            }
+        private volatile String dateId;
+        @Nullable private LiveData<SnapshotRegistry.Snapshot<DocumentSnapshot>> source;
+        // Last server state
+        @Nullable private volatile Attendance remote;
+        private boolean loaded;
+
+        TodayLiveData() {
+            bind(DateUtils.getTodayDateId());
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            journal.addListener(journalListener);
+            IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            ContextCompat.registerReceiver(context, clockReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+            // Covers a night spent in the background as well as punches journaled meanwhile
+            rolloverIfNeeded();
+            if (loaded) refresh();
+        }
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            journal.removeListener(journalListener);
+            context.unregisterReceiver(clockReceiver);
+            mainHandler.removeCallbacks(rollover);
+        }
+
+        private void bind(String newDateId) {
+            if (source != null) removeSource(source);
+            dateId = newDateId;
+            remote = null;
+            loaded = false;
+
+            LiveData<SnapshotRegistry.Snapshot<DocumentSnapshot>> next =
+                    SnapshotRegistry.get().document(readRef(newDateId));
+            source = next;
+            addSource(next, snap -> {
+                remote = snap.error != null ? null : toDay(snap.value, newDateId);
+                loaded = true;
+                setValue(project(remote, newDateId));
+            });
 
-            // 9h target
-            if (newTotalMinutes >= 540) {
-                updates.put("status", "present_complete");
-            } else {
-                updates.put("status", "present_in_progress");
+            // The previous day stays on screen until the cache answers, so the switch doesn't blank the card
+            if (!loaded) {
+                readRef(newDateId).get(Source.CACHE).addOnCompleteListener(task -> {
+                    if (loaded || !newDateId.equals(dateId)) return;
+                    remote = task.isSuccessful() ? toDay(task.getResult(), newDateId) : null;
+                    setValue(project(remote, newDateId));
+                });
             }
-            transaction.update(docRef, updates);
-            return null;
-        });
+        }
+
+        private void rolloverIfNeeded() {
+            String today = DateUtils.getTodayDateId();
+            if (!today.equals(dateId)) bind(today);
+            mainHandler.removeCallbacks(rollover);
+            if (hasActiveObservers()) mainHandler.postDelayed(rollover, DateUtils.millisUntilNextMidnight());
+        }
+
+        private void refresh() {
+            postValue(project(remote, dateId));
+        }
+    }
+
+    private static FirebaseFirestoreException.Code toCode(PunchRejectedException.Reason reason) {
+        switch (reason) {
+            case NO_PUNCH_IN_RECORD: return FirebaseFirestoreException.Code.NOT_FOUND;
+            case NO_ACTIVE_SESSION: return FirebaseFirestoreException.Code.FAILED_PRECONDITION;
+            default: return FirebaseFirestoreException.Code.ABORTED;
+        }
     }
 }
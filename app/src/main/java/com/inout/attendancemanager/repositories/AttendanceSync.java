@@ -0,0 +1,100 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Delta pull from Firestore into {@link LocalAttendanceStore}: only documents whose updatedAt is at
+ * or after the stored watermark are fetched, in updatedAt order, so an interrupted sync resumes.
+ */
+public class AttendanceSync {
+
+    private static final int PAGE_SIZE = 200;
+    // Keeps network waits off the store's read executor
+    private static final Executor SYNC_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final LocalAttendanceStore store;
+    private final String userId;
+
+    public AttendanceSync(Context context, String userId) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+        this.store = LocalAttendanceStore.get(context);
+        this.userId = userId;
+    }
+
+    public Task<Integer> syncAsync() {
+        return Tasks.call(SYNC_EXECUTOR, this::sync);
+    }
+
+    // Returns the number of days written locally
+    @WorkerThread
+    public int sync() throws Exception {
+        // Another of the user's devices may have migrated them since the last sync
+        boolean monthBundles = AttendanceLayout.refresh(context, userId);
+        String layout = AttendanceLayout.name(context);
+        long watermark = store.getWatermark(userId, layout);
+
+        // >= rather than >: documents sharing the boundary timestamp are re-read, never skipped
+        Query query = db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection(monthBundles ? MonthBundleDayStore.MONTHS : "days")
+                .orderBy("updatedAt");
+        if (watermark >= 0) {
+            query = query.whereGreaterThanOrEqualTo("updatedAt", new Timestamp(new Date(watermark)));
+        }
+
+        int stored = 0;
+        DocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            QuerySnapshot snap = Tasks.await(page.limit(PAGE_SIZE).get(Source.SERVER));
+
+            List<Attendance> days = new ArrayList<>();
+            long newest = watermark;
+            for (QueryDocumentSnapshot doc : snap) {
+                if (monthBundles) {
+                    days.addAll(MonthBundleDayStore.daysOf(doc));
+                } else {
+                    Attendance day = doc.toObject(Attendance.class);
+                    day.setDateId(doc.getId());
+                    days.add(day);
+                }
+                Timestamp updatedAt = doc.getTimestamp("updatedAt");
+                if (updatedAt != null) newest = Math.max(newest, updatedAt.toDate().getTime());
+            }
+
+            // Pages arrive in updatedAt order, so the watermark can advance page by page
+            store.upsert(userId, days);
+            if (newest > watermark) store.setWatermark(userId, layout, newest);
+            stored += days.size();
+
+            if (snap.size() < PAGE_SIZE) break;
+            last = snap.getDocuments().get(snap.size() - 1);
+        }
+        // Mark a user with no history yet as synced
+        if (watermark < 0 && stored == 0) store.setWatermark(userId, layout, 0L);
+        return stored;
+    }
+}
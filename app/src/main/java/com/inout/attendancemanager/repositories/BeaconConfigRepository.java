@@ -0,0 +1,106 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.inout.attendancemanager.models.BeaconConfig;
+import com.inout.attendancemanager.utils.BeaconCatalog;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Beacon configs per office in office_locations/{officeId}/beacons, stamped with the office
+ * document's beaconsVersion. The device keeps the last set it fetched, so {@link #cached} never
+ * touches the network; {@link #refresh} reads the one office document and only fetches the
+ * beacons when the version moved. Each version is compiled into a {@link BeaconCatalog} once.
+ */
+public class BeaconConfigRepository {
+
+    private static final String TAG = "BeaconConfigRepository";
+
+    public static final String BEACONS = "beacons";
+    public static final String FIELD_BEACONS_VERSION = "beaconsVersion";
+
+    // Compiled catalogs by office, shared by every scan in the process
+    private static final Map<String, BeaconCatalog> compiled = new HashMap<>();
+    private static final Gson gson = new Gson();
+
+    private final Context context;
+    private final FirebaseFirestore db;
+
+    public BeaconConfigRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    // Last fetched set for the office, EMPTY before the first refresh
+    public BeaconCatalog cached(@Nullable String officeId) {
+        if (officeId == null) return BeaconCatalog.EMPTY;
+        long version = prefs().getLong(Constants.PREF_BEACON_CONFIGS_VERSION + officeId, 0);
+        synchronized (compiled) {
+            BeaconCatalog catalog = compiled.get(officeId);
+            if (catalog != null && catalog.getVersion() == version) return catalog;
+        }
+        List<BeaconConfig> configs = parse(prefs().getString(Constants.PREF_BEACON_CONFIGS + officeId, null));
+        return remember(officeId, BeaconCatalog.compile(version, configs));
+    }
+
+    // Resolves to the office's current catalog, fetching the beacons only for a new version
+    public Task<BeaconCatalog> refresh(@Nullable String officeId) {
+        if (officeId == null) return Tasks.forResult(BeaconCatalog.EMPTY);
+        DocumentReference office = db.collection(Constants.COLLECTION_OFFICE_LOCATIONS).document(officeId);
+        return office.get().continueWithTask(task -> {
+            DocumentSnapshot snap = task.getResult();
+            Long remote = snap != null ? snap.getLong(FIELD_BEACONS_VERSION) : null;
+            BeaconCatalog current = cached(officeId);
+            if (remote == null || remote == current.getVersion()) return Tasks.forResult(current);
+
+            return office.collection(BEACONS).get().continueWith(beaconsTask -> {
+                List<BeaconConfig> configs = new ArrayList<>();
+                for (QueryDocumentSnapshot doc : beaconsTask.getResult()) {
+                    BeaconConfig config = doc.toObject(BeaconConfig.class);
+                    if (config.getBeaconId() == null) config.setBeaconId(doc.getId());
+                    configs.add(config);
+                }
+                prefs().edit()
+                        .putString(Constants.PREF_BEACON_CONFIGS + officeId, gson.toJson(configs))
+                        .putLong(Constants.PREF_BEACON_CONFIGS_VERSION + officeId, remote)
+                        .apply();
+                Log.d(TAG, "Beacons for " + officeId + " updated to v" + remote + ": " + configs.size());
+                return remember(officeId, BeaconCatalog.compile(remote, configs));
+            });
+        });
+    }
+
+    private static BeaconCatalog remember(String officeId, BeaconCatalog catalog) {
+        synchronized (compiled) {
+            compiled.put(officeId, catalog);
+        }
+        return catalog;
+    }
+
+    private static List<BeaconConfig> parse(@Nullable String json) {
+        if (json == null) return new ArrayList<>();
+        List<BeaconConfig> configs = gson.fromJson(json, new TypeToken<List<BeaconConfig>>() {}.getType());
+        return configs != null ? configs : new ArrayList<>();
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
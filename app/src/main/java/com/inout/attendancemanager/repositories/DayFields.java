@@ -0,0 +1,126 @@
+package com.inout.attendancemanager.repositories;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FieldValue;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.WorkSession;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field mapping for a day, shared by the day-document and month-bundle layouts.
+ * Bundled days live inside a map field, where toObject() cannot be used.
+ */
+final class DayFields {
+
+    private DayFields() {}
+
+    static Map<String, Object> toMap(Attendance day) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("userId", day.getUserId());
+        updates.put("dateId", day.getDateId());
+        updates.put("deviceId", day.getDeviceId());
+        updates.put("method", day.getMethod());
+        updates.put("status", day.getStatus());
+        updates.put("createdAt", day.getCreatedAt());
+        updates.put("updatedAt", FieldValue.serverTimestamp());
+
+        // Current session + display helpers
+        updates.put("inTime", day.getInTime());
+        updates.put("outTime", day.getOutTime());
+        updates.put("firstInTime", day.getFirstInTime());
+        updates.put("lastOutTime", day.getLastOutTime());
+
+        // Session log + aggregates
+        if (day.getSessions() != null) {
+            List<Map<String, Object>> sessions = new ArrayList<>(day.getSessions().size());
+            for (WorkSession session : day.getSessions()) {
+                Map<String, Object> m = new HashMap<>();
+                m.put("inTime", session.getInTime());
+                m.put("outTime", session.getOutTime());
+                m.put("minutes", session.getMinutes());
+                m.put("method", session.getMethod());
+                sessions.add(m);
+            }
+            updates.put("sessions", sessions);
+        }
+        updates.put("openSession", day.getOpenSession());
+        updates.put("totalMinutes", day.getTotalMinutes());
+
+        if (day.getBeaconId() != null) {
+            updates.put("beaconId", day.getBeaconId());
+            updates.put("beaconRssi", day.getBeaconRssi());
+            updates.put("beaconSeenAt", day.getBeaconSeenAt());
+        }
+        if (day.getLatitude() != 0.0 || day.getLongitude() != 0.0) {
+            updates.put("latitude", day.getLatitude());
+            updates.put("longitude", day.getLongitude());
+        }
+        return updates;
+    }
+
+    @Nullable
+    static Attendance fromMap(String dateId, @Nullable Object raw) {
+        if (!(raw instanceof Map)) return null;
+        Map<?, ?> m = (Map<?, ?>) raw;
+
+        Attendance day = new Attendance();
+        day.setDateId(dateId);
+        day.setUserId(string(m.get("userId")));
+        day.setDeviceId(string(m.get("deviceId")));
+        day.setMethod(string(m.get("method")));
+        day.setStatus(string(m.get("status")));
+        day.setCreatedAt(date(m.get("createdAt")));
+        day.setUpdatedAt(date(m.get("updatedAt")));
+        day.setInTime(date(m.get("inTime")));
+        day.setOutTime(date(m.get("outTime")));
+        day.setFirstInTime(date(m.get("firstInTime")));
+        day.setLastOutTime(date(m.get("lastOutTime")));
+        day.setSessions(sessions(m.get("sessions")));
+        Object open = m.get("openSession");
+        day.setOpenSession(open instanceof Number ? ((Number) open).intValue() : null);
+        day.setTotalMinutes(number(m.get("totalMinutes")).longValue());
+        day.setBeaconId(string(m.get("beaconId")));
+        Object rssi = m.get("beaconRssi");
+        day.setBeaconRssi(rssi instanceof Number ? ((Number) rssi).intValue() : null);
+        day.setBeaconSeenAt(date(m.get("beaconSeenAt")));
+        day.setLatitude(number(m.get("latitude")).doubleValue());
+        day.setLongitude(number(m.get("longitude")).doubleValue());
+        return day;
+    }
+
+    @Nullable
+    private static List<WorkSession> sessions(Object raw) {
+        if (!(raw instanceof List)) return null;
+        List<WorkSession> sessions = new ArrayList<>();
+        for (Object item : (List<?>) raw) {
+            if (!(item instanceof Map)) continue;
+            Map<?, ?> m = (Map<?, ?>) item;
+            WorkSession session = new WorkSession(date(m.get("inTime")), string(m.get("method")));
+            session.setOutTime(date(m.get("outTime")));
+            session.setMinutes(number(m.get("minutes")).longValue());
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    private static String string(Object o) {
+        return o instanceof String ? (String) o : null;
+    }
+
+    private static Number number(Object o) {
+        return o instanceof Number ? (Number) o : 0;
+    }
+
+    private static Date date(Object o) {
+        if (o instanceof Timestamp) return ((Timestamp) o).toDate();
+        if (o instanceof Date) return (Date) o;
+        return null;
+    }
+}
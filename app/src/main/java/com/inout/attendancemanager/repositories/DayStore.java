@@ -0,0 +1,15 @@
+package com.inout.attendancemanager.repositories;
+
+import com.inout.attendancemanager.models.PunchEntry;
+
+import java.util.List;
+
+/**
+ * Backend the punch replayer merges journal entries into.
+ * Implementations read the current day, run {@link PunchMerger#mergeAll} and
+ * write the result back atomically.
+ */
+public interface DayStore {
+
+    PunchMerger.Result commit(String userId, String dateId, List<PunchEntry> entries) throws Exception;
+}
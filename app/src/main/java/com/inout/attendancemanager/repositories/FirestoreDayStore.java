@@ -0,0 +1,128 @@
+package com.inout.attendancemanager.repositories;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DayStore backed by attendance/{uid}/days/{dateId}. One transaction per batch:
+ * a single read of the day, all entries merged locally, a single write of the day
+ * plus its month rollup in attendance/{uid}/summaries/{yyyy-MM}.
+ * Every write bumps the day's revision, which {@link PreconditionDayStore} checks against.
+ * Blocking; call from a background thread.
+ */
+public class FirestoreDayStore implements DayStore {
+
+    static final String FIELD_REVISION = "revision";
+
+    protected final FirebaseFirestore db;
+    // Transaction function runs, including retries after contention
+    private final AtomicInteger transactionAttempts = new AtomicInteger();
+
+    public FirestoreDayStore() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public FirestoreDayStore(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public PunchMerger.Result commit(String userId, String dateId, List<PunchEntry> entries) throws Exception {
+        DocumentReference docRef = dayRef(userId, dateId);
+
+        return Tasks.await(db.runTransaction(transaction -> {
+            transactionAttempts.incrementAndGet();
+            DocumentSnapshot snap = transaction.get(docRef);
+            Attendance current = null;
+            if (snap.exists()) {
+                current = snap.toObject(Attendance.class);
+                if (current != null) current.setDateId(dateId);
+            }
+
+            PunchMerger.Result result = PunchMerger.mergeAll(current, entries);
+            if (result.changed()) {
+                Map<String, Object> fields = DayFields.toMap(result.day);
+                fields.put(FIELD_REVISION, revisionOf(snap) + 1);
+                transaction.set(docRef, fields, SetOptions.merge());
+
+                Map<String, Long> delta = MonthSummaryCalculator.delta(current, result.day);
+                if (!delta.isEmpty()) {
+                    transaction.set(summaryRef(userId, dateId), toIncrements(dateId, delta), SetOptions.merge());
+                }
+            }
+            return result;
+        }));
+    }
+
+    // Every stored day of the month, read inside the transaction so a commit to any of them retries it
+    List<Attendance> readMonth(Transaction transaction, String userId, String monthId)
+            throws FirebaseFirestoreException {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(Integer.parseInt(monthId.substring(0, 4)), Integer.parseInt(monthId.substring(5, 7)) - 1, 1);
+        int length = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
+
+        List<Attendance> days = new ArrayList<>();
+        for (int d = 1; d <= length; d++) {
+            String dateId = String.format(Locale.US, "%s-%02d", monthId, d);
+            // Missing days are read too: creating one later also fails the transaction
+            DocumentSnapshot snap = transaction.get(dayRef(userId, dateId));
+            Attendance day = snap.exists() ? snap.toObject(Attendance.class) : null;
+            if (day != null) {
+                day.setDateId(dateId);
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    public int getTransactionAttempts() {
+        return transactionAttempts.get();
+    }
+
+    static long revisionOf(DocumentSnapshot snap) {
+        Long revision = snap.exists() ? snap.getLong(FIELD_REVISION) : null;
+        return revision != null ? revision : 0L;
+    }
+
+    DocumentReference dayRef(String userId, String dateId) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection("days")
+                .document(dateId);
+    }
+
+    DocumentReference summaryRef(String userId, String dateId) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection(MonthSummaryRepository.SUMMARIES)
+                .document(MonthSummaryCalculator.monthIdOf(dateId));
+    }
+
+    static Map<String, Object> toIncrements(String dateId, Map<String, Long> delta) {
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Long> e : delta.entrySet()) {
+            updates.put(e.getKey(), FieldValue.increment(e.getValue()));
+        }
+        updates.put("month", MonthSummaryCalculator.monthIdOf(dateId));
+        updates.put("updatedAt", FieldValue.serverTimestamp());
+        return updates;
+    }
+}
@@ -0,0 +1,57 @@
+package com.inout.attendancemanager.repositories;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.AttendanceSummary;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DayStore kept entirely in memory; used to exercise the replayer without Firestore.
+ */
+public class InMemoryDayStore implements DayStore {
+
+    private final Map<String, Attendance> days = new HashMap<>();
+    private final Map<String, AttendanceSummary> summaries = new HashMap<>();
+    private int commits;
+
+    @Override
+    public synchronized PunchMerger.Result commit(String userId, String dateId, List<PunchEntry> entries) {
+        String key = userId + "/" + dateId;
+        Attendance current = days.get(key);
+        PunchMerger.Result result = PunchMerger.mergeAll(current, entries);
+        if (result.changed()) {
+            days.put(key, result.day);
+            String monthKey = userId + "/" + MonthSummaryCalculator.monthIdOf(dateId);
+            AttendanceSummary summary = summaries.get(monthKey);
+            if (summary == null) {
+                summary = new AttendanceSummary();
+                summary.setMonth(MonthSummaryCalculator.monthIdOf(dateId));
+                summaries.put(monthKey, summary);
+            }
+            MonthSummaryCalculator.apply(summary, MonthSummaryCalculator.delta(current, result.day));
+            commits++;
+        }
+        return result;
+    }
+
+    @Nullable
+    public synchronized Attendance get(String userId, String dateId) {
+        return days.get(userId + "/" + dateId);
+    }
+
+    @Nullable
+    public synchronized AttendanceSummary getSummary(String userId, String monthId) {
+        return summaries.get(userId + "/" + monthId);
+    }
+
+    public synchronized void put(String userId, String dateId, Attendance day) {
+        days.put(userId + "/" + dateId, day);
+    }
+
+    public synchronized int getCommitCount() { return commits; }
+}
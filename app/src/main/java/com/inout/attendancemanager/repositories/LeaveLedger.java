@@ -0,0 +1,110 @@
+package com.inout.attendancemanager.repositories;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.LeaveBalance;
+import com.inout.attendancemanager.models.LeaveRecord;
+import com.inout.attendancemanager.utils.Constants;
+
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure leave rules: monthly accrual and the balance change of each status transition.
+ * LeaveRepository applies the returned deltas as increments; {@link #fromRecords} is the
+ * full recompute used to verify them.
+ */
+public final class LeaveLedger {
+
+    // Annual entitlement, accrued evenly per month
+    public static final double ANNUAL_DAYS = 20.0;
+
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    // Field names in leaves/{uid}/balances/{yyyy}
+    public static final String FIELD_ACCRUED = "accrued";
+    public static final String FIELD_USED = "used";
+    public static final String FIELD_PENDING = "pending";
+    public static final String FIELD_THROUGH_MONTH = "accruedThroughMonth";
+    public static final String FIELD_ELIGIBLE_FROM = "eligibleFromMonth";
+
+    private LeaveLedger() {}
+
+    // Entitlement earned from eligibleFromMonth through throughMonth, rounded down to half days
+    public static double accruedThrough(int eligibleFromMonth, int throughMonth) {
+        int months = Math.max(0, throughMonth - eligibleFromMonth + 1);
+        return Math.floor(ANNUAL_DAYS * months / 12.0 * 2) / 2;
+    }
+
+    // First accruing month of the year; joinDate is dd/MM/yyyy as captured at registration
+    public static int eligibleFromMonth(int year, @Nullable String joinDate) {
+        if (joinDate == null) return 1;
+        String[] parts = joinDate.trim().split("/");
+        if (parts.length != 3) return 1;
+        try {
+            int joinMonth = Integer.parseInt(parts[1]);
+            int joinYear = Integer.parseInt(parts[2]);
+            if (joinYear < year) return 1;
+            if (joinYear > year) return 13;
+            return Math.max(1, Math.min(12, joinMonth));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // Working days (Mon-Fri) in an inclusive yyyy-MM-dd range
+    public static double countDays(String fromDateId, String toDateId) {
+        LocalDate from = LocalDate.parse(fromDateId);
+        LocalDate to = LocalDate.parse(toDateId);
+        int days = 0;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY) days++;
+        }
+        return days;
+    }
+
+    // Balance change when a leave of `days` moves from one status to another (from == null for a new request)
+    public static Map<String, Double> delta(@Nullable String from, String to, double days) {
+        Map<String, Double> d = new HashMap<>();
+        if (from == null && Constants.STATUS_PENDING.equals(to)) {
+            d.put(FIELD_PENDING, days);
+        } else if (Constants.STATUS_PENDING.equals(from) && Constants.STATUS_APPROVED.equals(to)) {
+            d.put(FIELD_PENDING, -days);
+            d.put(FIELD_USED, days);
+        } else if (Constants.STATUS_PENDING.equals(from)
+                && (Constants.STATUS_REJECTED.equals(to) || STATUS_CANCELLED.equals(to))) {
+            d.put(FIELD_PENDING, -days);
+        } else if (Constants.STATUS_APPROVED.equals(from) && STATUS_CANCELLED.equals(to)) {
+            d.put(FIELD_USED, -days);
+        } else {
+            throw new IllegalStateException("Cannot move leave from " + from + " to " + to);
+        }
+        return d;
+    }
+
+    // Recomputes a year's balance from its records
+    public static LeaveBalance fromRecords(int year, int eligibleFromMonth, int throughMonth,
+                                           List<LeaveRecord> records) {
+        LeaveBalance b = new LeaveBalance();
+        b.setYear(year);
+        b.setEligibleFromMonth(eligibleFromMonth);
+        b.setAccruedThroughMonth(throughMonth);
+        b.setAccrued(accruedThrough(eligibleFromMonth, throughMonth));
+        for (LeaveRecord r : records) {
+            if (Constants.STATUS_PENDING.equals(r.getStatus())) b.setPending(b.getPending() + r.getDays());
+            else if (Constants.STATUS_APPROVED.equals(r.getStatus())) b.setUsed(b.getUsed() + r.getDays());
+        }
+        return b;
+    }
+
+    // Balances are sums of half days, so a tiny epsilon is enough
+    public static boolean same(LeaveBalance a, LeaveBalance b) {
+        return Math.abs(a.getAccrued() - b.getAccrued()) < 0.01
+                && Math.abs(a.getUsed() - b.getUsed()) < 0.01
+                && Math.abs(a.getPending() - b.getPending()) < 0.01;
+    }
+}
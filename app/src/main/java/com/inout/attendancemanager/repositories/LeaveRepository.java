@@ -0,0 +1,291 @@
+package com.inout.attendancemanager.repositories;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.Transaction;
+import com.inout.attendancemanager.models.LeaveBalance;
+import com.inout.attendancemanager.models.LeaveRecord;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Leave records in leaves/{uid}/records and the running balance per year in leaves/{uid}/balances/{yyyy}.
+ * Every status change updates the record and increments the balance in one transaction, so reading
+ * a balance is a single document; {@link #verify} recomputes it from the records.
+ */
+public class LeaveRepository {
+
+    private static final String TAG = "LeaveRepository";
+
+    public static final String RECORDS = "records";
+    public static final String BALANCES = "balances";
+
+    private final FirebaseFirestore db;
+    private final String userId;
+
+    public LeaveRepository(String userId) {
+        this.db = FirebaseFirestore.getInstance();
+        this.userId = userId;
+    }
+
+    // One read; accrual is only written when a month has passed since the last one
+    public Task<LeaveBalance> loadBalance(int year) {
+        int through = throughMonth(year);
+        return balanceRef(year).get().continueWithTask(task -> {
+            DocumentSnapshot snap = task.getResult();
+            LeaveBalance balance = snap != null && snap.exists() ? snap.toObject(LeaveBalance.class) : null;
+            if (balance != null && balance.getAccruedThroughMonth() >= through) {
+                return Tasks.forResult(balance);
+            }
+            return accrue(year, through);
+        });
+    }
+
+    private Task<LeaveBalance> accrue(int year, int through) {
+        DocumentReference ref = balanceRef(year);
+        return db.runTransaction(transaction -> {
+            Map<String, Object> fields = new HashMap<>();
+            LeaveBalance balance = accrued(transaction, year, through, fields);
+            if (!fields.isEmpty()) transaction.set(ref, fields, SetOptions.merge());
+            return balance;
+        });
+    }
+
+    /**
+     * The year's balance with accrual brought up to `through`, creating it if need be; the fields
+     * to merge into the balance document are added to `fields`. Only reads, so callers can write after.
+     */
+    private LeaveBalance accrued(Transaction transaction, int year, int through, Map<String, Object> fields)
+            throws FirebaseFirestoreException {
+        DocumentSnapshot snap = transaction.get(balanceRef(year));
+        LeaveBalance balance = snap.exists() ? snap.toObject(LeaveBalance.class) : null;
+        if (balance == null) {
+            // Eligibility comes from the stored profile, never from a screen that has not loaded it yet
+            DocumentSnapshot employee = transaction.get(
+                    db.collection(Constants.COLLECTION_EMPLOYEES).document(userId));
+            balance = new LeaveBalance();
+            balance.setYear(year);
+            balance.setEligibleFromMonth(LeaveLedger.eligibleFromMonth(year, employee.getString("joinDate")));
+        }
+        if (balance.getAccruedThroughMonth() < through) {
+            // Written absolutely: used/pending are untouched by the merge
+            balance.setAccrued(LeaveLedger.accruedThrough(balance.getEligibleFromMonth(), through));
+            balance.setAccruedThroughMonth(through);
+
+            fields.put("year", year);
+            fields.put(LeaveLedger.FIELD_ELIGIBLE_FROM, balance.getEligibleFromMonth());
+            fields.put(LeaveLedger.FIELD_ACCRUED, balance.getAccrued());
+            fields.put(LeaveLedger.FIELD_THROUGH_MONTH, through);
+            fields.put("updatedAt", FieldValue.serverTimestamp());
+        }
+        return balance;
+    }
+
+    // Fails with FAILED_PRECONDITION when the remaining balance does not cover the request
+    public Task<LeaveRecord> apply(String type, String fromDateId, String toDateId, @Nullable String reason) {
+        int year = yearOf(fromDateId);
+        if (year != yearOf(toDateId)) {
+            return Tasks.forException(new FirebaseFirestoreException(
+                    "Leave cannot span two years", FirebaseFirestoreException.Code.INVALID_ARGUMENT));
+        }
+        double days = LeaveLedger.countDays(fromDateId, toDateId);
+        if (days <= 0) {
+            return Tasks.forException(new FirebaseFirestoreException(
+                    "No working days in the selected range", FirebaseFirestoreException.Code.INVALID_ARGUMENT));
+        }
+
+        DocumentReference recordRef = recordsRef().document();
+        DocumentReference balanceRef = balanceRef(year);
+        int through = throughMonth(year);
+        return db.runTransaction(transaction -> {
+            // A first request of the year (or month) accrues in the same write
+            Map<String, Object> balanceFields = new HashMap<>();
+            LeaveBalance balance = accrued(transaction, year, through, balanceFields);
+            if (balance.remaining() < days) {
+                throw new FirebaseFirestoreException("Insufficient leave balance",
+                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+
+            LeaveRecord record = new LeaveRecord();
+            record.setId(recordRef.getId());
+            record.setUserId(userId);
+            record.setType(type);
+            record.setFromDateId(fromDateId);
+            record.setToDateId(toDateId);
+            record.setDays(days);
+            record.setReason(reason);
+            record.setStatus(Constants.STATUS_PENDING);
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("id", record.getId());
+            fields.put("userId", userId);
+            fields.put("type", type);
+            fields.put("fromDateId", fromDateId);
+            fields.put("toDateId", toDateId);
+            fields.put("days", days);
+            fields.put("reason", reason);
+            fields.put("status", Constants.STATUS_PENDING);
+            fields.put("createdAt", FieldValue.serverTimestamp());
+            fields.put("updatedAt", FieldValue.serverTimestamp());
+            transaction.set(recordRef, fields);
+            balanceFields.putAll(toIncrements(LeaveLedger.delta(null, Constants.STATUS_PENDING, days)));
+            transaction.set(balanceRef, balanceFields, SetOptions.merge());
+            return record;
+        });
+    }
+
+    // Approve, reject or cancel; used by the employee (cancel) and by admins (approve/reject)
+    public Task<LeaveRecord> transition(String leaveId, String newStatus) {
+        DocumentReference recordRef = recordsRef().document(leaveId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot snap = transaction.get(recordRef);
+            LeaveRecord record = snap.exists() ? snap.toObject(LeaveRecord.class) : null;
+            if (record == null) {
+                throw new FirebaseFirestoreException("Leave not found", FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+
+            Map<String, Double> delta;
+            try {
+                delta = LeaveLedger.delta(record.getStatus(), newStatus, record.getDays());
+            } catch (IllegalStateException e) {
+                throw new FirebaseFirestoreException(e.getMessage(),
+                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("status", newStatus);
+            fields.put("updatedAt", FieldValue.serverTimestamp());
+            transaction.update(recordRef, fields);
+            transaction.set(balanceRef(yearOf(record.getFromDateId())), toIncrements(delta), SetOptions.merge());
+            record.setStatus(newStatus);
+            return record;
+        });
+    }
+
+    // Newest first; shares one listener with every other observer of this user's leaves
+    public LiveData<SnapshotRegistry.Snapshot<QuerySnapshot>> observeRecords() {
+        Query query = recordsRef().orderBy("fromDateId", Query.Direction.DESCENDING);
+        return SnapshotRegistry.get().query("leaves." + userId, query);
+    }
+
+    public static List<LeaveRecord> toRecords(@Nullable QuerySnapshot snap) {
+        List<LeaveRecord> records = new ArrayList<>();
+        if (snap == null) return records;
+        for (QueryDocumentSnapshot doc : snap) {
+            LeaveRecord record = doc.toObject(LeaveRecord.class);
+            record.setId(doc.getId());
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Recomputes the year's balance from its records and repairs the stored one if they differ.
+     * Records are re-read inside the transaction so a concurrent transition cannot cause a false repair.
+     * Transactions cannot run the records query, so a record created after it would be missed; every
+     * apply and transition stamps the balance's updatedAt, and the repair is skipped when that moved
+     * after the query. Resolves true when the ledger was consistent or changed under us (the next
+     * run checks it again).
+     */
+    public Task<Boolean> verify(int year) {
+        DocumentReference balanceRef = balanceRef(year);
+        return balanceRef.get(Source.SERVER).continueWithTask(before -> {
+            Timestamp listedAt = before.getResult().getTimestamp("updatedAt");
+            return recordsRef()
+                    .whereGreaterThanOrEqualTo("fromDateId", year + "-01-01")
+                    .whereLessThanOrEqualTo("fromDateId", year + "-12-31")
+                    .get(Source.SERVER)
+                    .continueWithTask(task -> {
+                        List<DocumentReference> refs = new ArrayList<>();
+                        for (QueryDocumentSnapshot doc : task.getResult()) refs.add(doc.getReference());
+
+                        return db.runTransaction(transaction -> {
+                            DocumentSnapshot snap = transaction.get(balanceRef);
+                            LeaveBalance stored = snap.exists() ? snap.toObject(LeaveBalance.class) : null;
+                            if (stored == null) return true;
+                            if (!Objects.equals(listedAt, snap.getTimestamp("updatedAt"))) {
+                                Log.d(TAG, "Leave balance " + userId + "/" + year + " changed while verifying");
+                                return true;
+                            }
+
+                            List<LeaveRecord> records = new ArrayList<>();
+                            for (DocumentReference ref : refs) {
+                                LeaveRecord record = transaction.get(ref).toObject(LeaveRecord.class);
+                                if (record != null) records.add(record);
+                            }
+                            LeaveBalance expected = LeaveLedger.fromRecords(year, stored.getEligibleFromMonth(),
+                                    stored.getAccruedThroughMonth(), records);
+                            if (LeaveLedger.same(stored, expected)) return true;
+
+                            Log.w(TAG, "Leave balance " + userId + "/" + year + " drifted: stored "
+                                    + stored.getAccrued() + "/" + stored.getUsed() + "/" + stored.getPending()
+                                    + ", expected " + expected.getAccrued() + "/" + expected.getUsed()
+                                    + "/" + expected.getPending());
+                            Map<String, Object> fields = new HashMap<>();
+                            fields.put(LeaveLedger.FIELD_ACCRUED, expected.getAccrued());
+                            fields.put(LeaveLedger.FIELD_USED, expected.getUsed());
+                            fields.put(LeaveLedger.FIELD_PENDING, expected.getPending());
+                            fields.put("updatedAt", FieldValue.serverTimestamp());
+                            transaction.set(balanceRef, fields, SetOptions.merge());
+                            return false;
+                        });
+                    });
+        });
+    }
+
+    private static Map<String, Object> toIncrements(Map<String, Double> delta) {
+        Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Double> e : delta.entrySet()) {
+            fields.put(e.getKey(), FieldValue.increment(e.getValue()));
+        }
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    // Months of the year that have started: all of a past year, none of a future one
+    private static int throughMonth(int year) {
+        Calendar now = Calendar.getInstance();
+        int currentYear = now.get(Calendar.YEAR);
+        if (year < currentYear) return 12;
+        if (year > currentYear) return 0;
+        return now.get(Calendar.MONTH) + 1;
+    }
+
+    private static int yearOf(String dateId) {
+        return Integer.parseInt(dateId.substring(0, 4));
+    }
+
+    private CollectionReference recordsRef() {
+        return db.collection(Constants.COLLECTION_LEAVES).document(userId).collection(RECORDS);
+    }
+
+    private DocumentReference balanceRef(int year) {
+        return db.collection(Constants.COLLECTION_LEAVES)
+                .document(userId)
+                .collection(BALANCES)
+                .document(String.valueOf(year));
+    }
+}
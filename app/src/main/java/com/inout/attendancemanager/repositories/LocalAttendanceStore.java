@@ -0,0 +1,205 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.WorkerThread;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.WorkSession;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device SQLite mirror of attendance/{uid}/days, filled by {@link AttendanceSync}.
+ * Month and range reads are answered locally. Calls block, so UI reads go through {@link #EXECUTOR}.
+ */
+public class LocalAttendanceStore {
+
+    public static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final String DB_NAME = "attendance_cache.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String T_DAYS = "days";
+    private static final String T_SYNC = "sync_state";
+
+    private static final Type SESSIONS_TYPE = new TypeToken<List<WorkSession>>() {}.getType();
+
+    private static LocalAttendanceStore instance;
+
+    public static synchronized LocalAttendanceStore get(Context context) {
+        if (instance == null) instance = new LocalAttendanceStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Helper helper;
+    private final Gson gson = new Gson();
+
+    private LocalAttendanceStore(Context context) {
+        this.helper = new Helper(context);
+    }
+
+    @WorkerThread
+    public void upsert(String userId, Collection<Attendance> days) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Attendance day : days) {
+                db.insertWithOnConflict(T_DAYS, null, toValues(userId, day), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Inclusive yyyy-MM-dd range, oldest first
+    @WorkerThread
+    public List<Attendance> range(String userId, String fromDateId, String toDateId) {
+        return query("user_id = ? AND date_id BETWEEN ? AND ?", userId, fromDateId, toDateId);
+    }
+
+    @WorkerThread
+    public List<Attendance> month(String userId, String monthId) {
+        return range(userId, monthId + "-01", monthId + "-31");
+    }
+
+    @WorkerThread
+    public List<Attendance> withStatus(String userId, String status, String fromDateId, String toDateId) {
+        return query("user_id = ? AND status = ? AND date_id BETWEEN ? AND ?",
+                userId, status, fromDateId, toDateId);
+    }
+
+    // Millis of the newest updatedAt pulled for this user and layout, or -1 before the first sync
+    @WorkerThread
+    public long getWatermark(String userId, String layout) {
+        try (Cursor c = helper.getReadableDatabase().query(T_SYNC, new String[]{"watermark"},
+                "user_id = ? AND layout = ?", new String[]{userId, layout}, null, null, null)) {
+            return c.moveToFirst() ? c.getLong(0) : -1L;
+        }
+    }
+
+    @WorkerThread
+    public void setWatermark(String userId, String layout, long watermark) {
+        ContentValues v = new ContentValues();
+        v.put("user_id", userId);
+        v.put("layout", layout);
+        v.put("watermark", watermark);
+        helper.getWritableDatabase().insertWithOnConflict(T_SYNC, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private List<Attendance> query(String selection, String... args) {
+        List<Attendance> days = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(T_DAYS, null, selection, args,
+                null, null, "date_id ASC")) {
+            while (c.moveToNext()) days.add(fromCursor(c));
+        }
+        return days;
+    }
+
+    private ContentValues toValues(String userId, Attendance day) {
+        ContentValues v = new ContentValues();
+        v.put("user_id", userId);
+        v.put("date_id", day.getDateId());
+        v.put("status", day.getStatus());
+        v.put("total_minutes", day.getTotalMinutes());
+        putDate(v, "in_time", day.getInTime());
+        putDate(v, "out_time", day.getOutTime());
+        putDate(v, "first_in_time", day.getFirstInTime());
+        putDate(v, "last_out_time", day.getLastOutTime());
+        putDate(v, "created_at", day.getCreatedAt());
+        putDate(v, "updated_at", day.getUpdatedAt());
+        v.put("method", day.getMethod());
+        v.put("device_id", day.getDeviceId());
+        v.put("sessions", day.getSessions() != null ? gson.toJson(day.getSessions(), SESSIONS_TYPE) : null);
+        v.put("open_session", day.getOpenSession());
+        return v;
+    }
+
+    private Attendance fromCursor(Cursor c) {
+        Attendance day = new Attendance();
+        day.setUserId(c.getString(c.getColumnIndexOrThrow("user_id")));
+        day.setDateId(c.getString(c.getColumnIndexOrThrow("date_id")));
+        day.setStatus(c.getString(c.getColumnIndexOrThrow("status")));
+        day.setTotalMinutes(c.getLong(c.getColumnIndexOrThrow("total_minutes")));
+        day.setInTime(getDate(c, "in_time"));
+        day.setOutTime(getDate(c, "out_time"));
+        day.setFirstInTime(getDate(c, "first_in_time"));
+        day.setLastOutTime(getDate(c, "last_out_time"));
+        day.setCreatedAt(getDate(c, "created_at"));
+        day.setUpdatedAt(getDate(c, "updated_at"));
+        day.setMethod(c.getString(c.getColumnIndexOrThrow("method")));
+        day.setDeviceId(c.getString(c.getColumnIndexOrThrow("device_id")));
+
+        int sessions = c.getColumnIndexOrThrow("sessions");
+        if (!c.isNull(sessions)) day.setSessions(gson.fromJson(c.getString(sessions), SESSIONS_TYPE));
+        int open = c.getColumnIndexOrThrow("open_session");
+        day.setOpenSession(c.isNull(open) ? null : c.getInt(open));
+        return day;
+    }
+
+    private static void putDate(ContentValues v, String column, Date date) {
+        if (date != null) v.put(column, date.getTime());
+        else v.putNull(column);
+    }
+
+    private static Date getDate(Cursor c, String column) {
+        int i = c.getColumnIndexOrThrow(column);
+        return c.isNull(i) ? null : new Date(c.getLong(i));
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            // The primary key doubles as the (user, dateId) index for month/range scans
+            db.execSQL("CREATE TABLE " + T_DAYS + " ("
+                    + "user_id TEXT NOT NULL, "
+                    + "date_id TEXT NOT NULL, "
+                    + "status TEXT, "
+                    + "total_minutes INTEGER NOT NULL DEFAULT 0, "
+                    + "in_time INTEGER, "
+                    + "out_time INTEGER, "
+                    + "first_in_time INTEGER, "
+                    + "last_out_time INTEGER, "
+                    + "created_at INTEGER, "
+                    + "updated_at INTEGER, "
+                    + "method TEXT, "
+                    + "device_id TEXT, "
+                    + "sessions TEXT, "
+                    + "open_session INTEGER, "
+                    + "PRIMARY KEY (user_id, date_id))");
+            db.execSQL("CREATE INDEX idx_days_status ON " + T_DAYS + " (user_id, status, date_id)");
+
+            db.execSQL("CREATE TABLE " + T_SYNC + " ("
+                    + "user_id TEXT NOT NULL, "
+                    + "layout TEXT NOT NULL, "
+                    + "watermark INTEGER NOT NULL, "
+                    + "PRIMARY KEY (user_id, layout))");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Pure cache: rebuild and let the next sync refill it
+            db.execSQL("DROP TABLE IF EXISTS " + T_DAYS);
+            db.execSQL("DROP TABLE IF EXISTS " + T_SYNC);
+            onCreate(db);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.inout.attendancemanager.repositories;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DayStore for the bundled layout: every day of a month is an entry of the
+ * "days" map in attendance/{uid}/months/{yyyy-MM}, so a month costs one read.
+ */
+public class MonthBundleDayStore extends FirestoreDayStore {
+
+    public static final String MONTHS = "months";
+    public static final String FIELD_DAYS = "days";
+
+    @Override
+    public PunchMerger.Result commit(String userId, String dateId, List<PunchEntry> entries) throws Exception {
+        DocumentReference monthRef = monthRef(userId, MonthSummaryCalculator.monthIdOf(dateId));
+
+        return Tasks.await(db.runTransaction(transaction -> {
+            DocumentSnapshot snap = transaction.get(monthRef);
+            Attendance current = snap.exists() ? dayOf(snap, dateId) : null;
+
+            PunchMerger.Result result = PunchMerger.mergeAll(current, entries);
+            if (result.changed()) {
+                // Merge writes only this day's entry of the map
+                Map<String, Object> bundle = new HashMap<>();
+                bundle.put(FIELD_DAYS, Collections.singletonMap(dateId, DayFields.toMap(result.day)));
+                bundle.put("updatedAt", FieldValue.serverTimestamp());
+                transaction.set(monthRef, bundle, SetOptions.merge());
+
+                Map<String, Long> delta = MonthSummaryCalculator.delta(current, result.day);
+                if (!delta.isEmpty()) {
+                    transaction.set(summaryRef(userId, dateId), toIncrements(dateId, delta), SetOptions.merge());
+                }
+            }
+            return result;
+        }));
+    }
+
+    @Override
+    List<Attendance> readMonth(Transaction transaction, String userId, String monthId)
+            throws FirebaseFirestoreException {
+        return daysOf(transaction.get(monthRef(userId, monthId)));
+    }
+
+    DocumentReference monthRef(String userId, String monthId) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection(MONTHS)
+                .document(monthId);
+    }
+
+    static Attendance dayOf(DocumentSnapshot monthSnap, String dateId) {
+        return DayFields.fromMap(dateId, monthSnap.get(FieldPath.of(FIELD_DAYS, dateId)));
+    }
+
+    // Every day stored in the bundle, oldest first
+    static List<Attendance> daysOf(DocumentSnapshot monthSnap) {
+        List<Attendance> days = new ArrayList<>();
+        Object raw = monthSnap.exists() ? monthSnap.get(FIELD_DAYS) : null;
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) raw).entrySet()) {
+                Attendance day = DayFields.fromMap(String.valueOf(e.getKey()), e.getValue());
+                if (day != null) days.add(day);
+            }
+        }
+        Collections.sort(days, (a, b) -> a.getDateId().compareTo(b.getDateId()));
+        return days;
+    }
+}
@@ -0,0 +1,152 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Copies a user's day documents into month bundles, then switches the user to the bundled layout:
+ * published on their attendance document for their other devices, and cached on this one.
+ * Day documents are left in place so older app versions keep working and the move can be rolled back.
+ *
+ * Replays are held back ("migrating" on the attendance document) while the months are copied, one
+ * transaction per month over its day documents and bundle, so a punch committed meanwhile makes
+ * that month retry. A second pass after publishing picks up replays that checked the layout just
+ * before the hold. Only days the bundle lacks, or holds an older copy of, are written, so running
+ * the migration again never undoes punches made on the bundles since.
+ */
+public class MonthBundleMigrator {
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final String userId;
+    private final FirestoreDayStore dayDocs;
+    private final MonthBundleDayStore bundles = new MonthBundleDayStore();
+
+    public MonthBundleMigrator(Context context, String userId) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+        this.userId = userId;
+        this.dayDocs = new FirestoreDayStore(db);
+    }
+
+    // Resolves with the number of month documents written
+    public Task<Integer> migrate() {
+        Set<String> written = Collections.synchronizedSet(new TreeSet<>());
+        return AttendanceLayout.setMigrating(userId, true)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    return copyMonths(written);
+                })
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    // Only once every bundle is written, so no device reads a half-built month
+                    return AttendanceLayout.publish(userId, true);
+                })
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    AttendanceLayout.setMonthBundles(context, true);
+                    return copyMonths(written);
+                })
+                .continueWithTask(task -> {
+                    if (task.isSuccessful()) return Tasks.forResult(written.size());
+                    // Don't leave the user's replays held back; a failed run can simply be repeated
+                    Exception failure = task.getException();
+                    return AttendanceLayout.setMigrating(userId, false).continueWith(cleared -> {
+                        throw failure;
+                    });
+                });
+    }
+
+    private Task<Void> copyMonths(Set<String> written) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection("days")
+                .get()
+                .continueWithTask(task -> {
+                    Set<String> monthIds = new TreeSet<>();
+                    for (QueryDocumentSnapshot doc : task.getResult()) {
+                        monthIds.add(MonthSummaryCalculator.monthIdOf(doc.getId()));
+                    }
+                    List<Task<Boolean>> copies = new ArrayList<>();
+                    for (String monthId : monthIds) {
+                        copies.add(copyMonth(monthId).addOnSuccessListener(wrote -> {
+                            if (wrote) written.add(monthId);
+                        }));
+                    }
+                    return Tasks.whenAll(copies);
+                });
+    }
+
+    // Resolves with whether the bundle was written
+    private Task<Boolean> copyMonth(String monthId) {
+        DocumentReference monthRef = bundles.monthRef(userId, monthId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot bundle = transaction.get(monthRef);
+            List<Attendance> days = dayDocs.readMonth(transaction, userId, monthId);
+
+            Map<String, Attendance> bundled = new HashMap<>();
+            for (Attendance day : MonthBundleDayStore.daysOf(bundle)) bundled.put(day.getDateId(), day);
+
+            Map<String, Object> copies = new HashMap<>();
+            boolean replaced = false;
+            for (Attendance day : days) {
+                Attendance current = bundled.get(day.getDateId());
+                if (!supersedes(day, current)) continue;
+                copies.put(day.getDateId(), DayFields.toMap(day));
+                replaced |= current != null;
+            }
+            if (copies.isEmpty()) return false;
+
+            if (bundle.exists()) {
+                // update() replaces each copied day's entry whole; a merge would keep fields the copy lacks
+                Map<String, Object> updates = new HashMap<>();
+                for (Map.Entry<String, Object> e : copies.entrySet()) {
+                    updates.put(MonthBundleDayStore.FIELD_DAYS + "." + e.getKey(), e.getValue());
+                }
+                updates.put("updatedAt", FieldValue.serverTimestamp());
+                transaction.update(monthRef, updates);
+            } else {
+                Map<String, Object> fresh = new HashMap<>();
+                fresh.put(MonthBundleDayStore.FIELD_DAYS, copies);
+                fresh.put("updatedAt", FieldValue.serverTimestamp());
+                transaction.set(monthRef, fresh);
+            }
+            if (replaced) {
+                // The rollup counted the bundled copy; have it rebuilt from the bundle on next open
+                transaction.set(dayDocs.summaryRef(userId, monthId),
+                        Collections.singletonMap(MonthSummaryRepository.FIELD_COMPLETE, false), SetOptions.merge());
+            }
+            return true;
+        });
+    }
+
+    // A day document is copied over the bundle's entry only if it changed after that entry was
+    // written: every bundle write, including the copy itself, stamps the entry with the server time
+    static boolean supersedes(Attendance dayDoc, @Nullable Attendance bundled) {
+        if (bundled == null) return true;
+        Date bundledAt = bundled.getUpdatedAt();
+        Date dayAt = dayDoc.getUpdatedAt();
+        return bundledAt == null || (dayAt != null && dayAt.after(bundledAt));
+    }
+}
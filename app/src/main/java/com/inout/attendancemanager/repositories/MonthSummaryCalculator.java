@@ -0,0 +1,81 @@
+package com.inout.attendancemanager.repositories;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.AttendanceSummary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pure rollup math for attendance/{uid}/summaries/{yyyy-MM}.
+ * Writers apply {@link #delta} as increments; the rebuild tool uses {@link #fromDays}.
+ */
+public final class MonthSummaryCalculator {
+
+    // Field names match AttendanceSummary so the document maps straight onto it
+    public static final String FIELD_PRESENT = "presentDays";
+    public static final String FIELD_ABSENT = "absentDays";
+    public static final String FIELD_WEEKOFF = "weekoffDays";
+    public static final String FIELD_MISSED = "missedPunchDays";
+    public static final String FIELD_MINUTES = "totalWorkingMinutes";
+
+    private MonthSummaryCalculator() {}
+
+    public static String monthIdOf(String dateId) {
+        return dateId.substring(0, 7);
+    }
+
+    // Counter field a day status contributes to, or null if it is not counted
+    @Nullable
+    public static String bucket(@Nullable String status) {
+        if (status == null) return null;
+        switch (status) {
+            case "present_complete":
+            case "present_in_progress":
+                return FIELD_PRESENT;
+            case "absent": return FIELD_ABSENT;
+            case "weekoff": return FIELD_WEEKOFF;
+            case "missed": return FIELD_MISSED;
+            default: return null;
+        }
+    }
+
+    // Non-zero counter changes caused by a day moving from before to after (either may be null)
+    public static Map<String, Long> delta(@Nullable Attendance before, @Nullable Attendance after) {
+        Map<String, Long> out = new LinkedHashMap<>();
+        String oldBucket = before != null ? bucket(before.getStatus()) : null;
+        String newBucket = after != null ? bucket(after.getStatus()) : null;
+
+        if (oldBucket != null && !oldBucket.equals(newBucket)) out.put(oldBucket, -1L);
+        if (newBucket != null && !newBucket.equals(oldBucket)) out.put(newBucket, 1L);
+
+        long minutes = (after != null ? after.getTotalMinutes() : 0L)
+                - (before != null ? before.getTotalMinutes() : 0L);
+        if (minutes != 0L) out.put(FIELD_MINUTES, minutes);
+        return out;
+    }
+
+    public static void apply(AttendanceSummary summary, Map<String, Long> delta) {
+        for (Map.Entry<String, Long> e : delta.entrySet()) {
+            long d = e.getValue();
+            switch (e.getKey()) {
+                case FIELD_PRESENT: summary.setPresentDays((int) (summary.getPresentDays() + d)); break;
+                case FIELD_ABSENT: summary.setAbsentDays((int) (summary.getAbsentDays() + d)); break;
+                case FIELD_WEEKOFF: summary.setWeekoffDays((int) (summary.getWeekoffDays() + d)); break;
+                case FIELD_MISSED: summary.setMissedPunchDays((int) (summary.getMissedPunchDays() + d)); break;
+                case FIELD_MINUTES: summary.setTotalWorkingMinutes(summary.getTotalWorkingMinutes() + d); break;
+            }
+        }
+    }
+
+    public static AttendanceSummary fromDays(String monthId, Iterable<Attendance> days) {
+        AttendanceSummary summary = new AttendanceSummary();
+        summary.setMonth(monthId);
+        for (Attendance day : days) {
+            apply(summary, delta(null, day));
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,97 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.inout.attendancemanager.models.AttendanceSummary;
+import com.inout.attendancemanager.utils.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the per-month rollup kept in attendance/{uid}/summaries/{yyyy-MM}.
+ * The rollup is maintained incrementally by the day writers; {@link #rebuild}
+ * recomputes it from the stored days in whichever layout is active and marks it complete.
+ * A rollup without the mark was started by increments alone, which never counted the days
+ * stored before it, so it is rebuilt on first open.
+ */
+public class MonthSummaryRepository {
+
+    public static final String SUMMARIES = "summaries";
+    // Set only by rebuild(); the writers' merged increments leave it as it is
+    static final String FIELD_COMPLETE = "complete";
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final String userId;
+
+    public MonthSummaryRepository(Context context, String userId) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+        this.userId = userId;
+    }
+
+    // Computed from the local store without network; null until the first sync has finished
+    public Task<AttendanceSummary> loadLocal(String monthId) {
+        LocalAttendanceStore store = LocalAttendanceStore.get(context);
+        String layout = AttendanceLayout.name(context);
+        return Tasks.call(LocalAttendanceStore.EXECUTOR, () -> {
+            if (store.getWatermark(userId, layout) < 0) return null;
+            return MonthSummaryCalculator.fromDays(monthId, store.month(userId, monthId));
+        });
+    }
+
+    // One document read; months whose rollup was never rebuilt are rebuilt once on first open
+    public Task<AttendanceSummary> load(String monthId) {
+        return summaryRef(monthId).get().continueWithTask(task -> {
+            DocumentSnapshot snap = task.getResult();
+            if (snap != null && snap.exists() && Boolean.TRUE.equals(snap.getBoolean(FIELD_COMPLETE))) {
+                AttendanceSummary summary = snap.toObject(AttendanceSummary.class);
+                if (summary != null) {
+                    summary.setMonth(monthId);
+                    return Tasks.forResult(summary);
+                }
+            }
+            return rebuild(monthId);
+        });
+    }
+
+    // Recomputes the month from its stored days and overwrites the rollup. The days are read in the
+    // same transaction, so a punch committed meanwhile makes it retry rather than losing the increment
+    public Task<AttendanceSummary> rebuild(String monthId) {
+        FirestoreDayStore store = AttendanceLayout.dayStore(context);
+        DocumentReference ref = summaryRef(monthId);
+        return db.runTransaction(transaction -> {
+            AttendanceSummary summary = MonthSummaryCalculator.fromDays(monthId,
+                    store.readMonth(transaction, userId, monthId));
+            transaction.set(ref, toFields(summary));
+            return summary;
+        });
+    }
+
+    private static Map<String, Object> toFields(AttendanceSummary summary) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("month", summary.getMonth());
+        fields.put(MonthSummaryCalculator.FIELD_PRESENT, summary.getPresentDays());
+        fields.put(MonthSummaryCalculator.FIELD_ABSENT, summary.getAbsentDays());
+        fields.put(MonthSummaryCalculator.FIELD_WEEKOFF, summary.getWeekoffDays());
+        fields.put(MonthSummaryCalculator.FIELD_MISSED, summary.getMissedPunchDays());
+        fields.put(MonthSummaryCalculator.FIELD_MINUTES, summary.getTotalWorkingMinutes());
+        fields.put(FIELD_COMPLETE, true);
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    private DocumentReference summaryRef(String monthId) {
+        return db.collection(Constants.COLLECTION_ATTENDANCE)
+                .document(userId)
+                .collection(SUMMARIES)
+                .document(monthId);
+    }
+}
@@ -0,0 +1,168 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.inout.attendancemanager.models.OfficeLocation;
+import com.inout.attendancemanager.utils.Constants;
+import com.inout.attendancemanager.utils.OfficeIndex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Every office in office_locations, kept on the device and served as an {@link OfficeIndex}.
+ * Sync is a delta pull like {@link AttendanceSync}: offices whose updatedAt is at or after the
+ * stored watermark, in updatedAt order; an office with deleted set is dropped. The index is rebuilt
+ * only when a pull changed something, and lookups never wait on the network.
+ */
+public class OfficeRepository {
+
+    private static final String TAG = "OfficeRepository";
+    private static final String FILE_NAME = "offices.json";
+    private static final int PAGE_SIZE = 200;
+    private static final Executor SYNC_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static OfficeRepository instance;
+
+    public static synchronized OfficeRepository get(Context context) {
+        if (instance == null) {
+            instance = new OfficeRepository(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    // What goes to disk: the offices and the updatedAt they are current to
+    private static final class Snapshot {
+        long watermark = -1;
+        List<OfficeLocation> offices = new ArrayList<>();
+    }
+
+    private final File file;
+    private final Gson gson = new Gson();
+    // Only touched on SYNC_EXECUTOR
+    private final Map<String, OfficeLocation> offices = new LinkedHashMap<>();
+    private long watermark = -1;
+    private boolean loaded;
+    private volatile OfficeIndex index = OfficeIndex.EMPTY;
+
+    private OfficeRepository(File file) {
+        this.file = file;
+    }
+
+    // Current index; EMPTY until the stored offices have been loaded
+    public OfficeIndex index() {
+        return index;
+    }
+
+    // Publishes the stored offices, then pulls changes; the index is usable even if the pull fails
+    public Task<Integer> syncAsync() {
+        return Tasks.call(SYNC_EXECUTOR, this::sync);
+    }
+
+    // Returns the number of offices added, changed or removed
+    @WorkerThread
+    private int sync() throws Exception {
+        load();
+
+        Query query = FirebaseFirestore.getInstance()
+                .collection(Constants.COLLECTION_OFFICE_LOCATIONS)
+                .orderBy("updatedAt");
+        if (watermark >= 0) {
+            query = query.whereGreaterThanOrEqualTo("updatedAt", new Timestamp(new Date(watermark)));
+        }
+
+        int changed = 0;
+        long newest = watermark;
+        DocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            QuerySnapshot snap = Tasks.await(page.limit(PAGE_SIZE).get(Source.SERVER));
+            for (QueryDocumentSnapshot doc : snap) {
+                OfficeLocation office = doc.toObject(OfficeLocation.class);
+                office.setOfficeId(doc.getId());
+                if (office.isDeleted()) {
+                    if (offices.remove(doc.getId()) != null) changed++;
+                } else if (!office.sameAs(offices.put(doc.getId(), office))) {
+                    changed++;
+                }
+                Timestamp updatedAt = doc.getTimestamp("updatedAt");
+                if (updatedAt != null) newest = Math.max(newest, updatedAt.toDate().getTime());
+            }
+            if (snap.size() < PAGE_SIZE) break;
+            last = snap.getDocuments().get(snap.size() - 1);
+        }
+
+        // Boundary documents are re-read every time but only count when their fields differ,
+        // so an unchanged pull neither rewrites the file nor rebuilds the index
+        if (changed > 0 || newest != watermark || watermark < 0) {
+            watermark = Math.max(newest, 0L);
+            save();
+            if (changed > 0) index = new OfficeIndex(new ArrayList<>(offices.values()));
+        }
+        Log.d(TAG, "Offices synced: " + changed + " changed, " + offices.size() + " total");
+        return changed;
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!file.exists()) return;
+        try (Reader r = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Snapshot snapshot = gson.fromJson(r, Snapshot.class);
+            if (snapshot == null) return;
+            for (OfficeLocation office : snapshot.offices) offices.put(office.getOfficeId(), office);
+            watermark = snapshot.watermark;
+            index = new OfficeIndex(snapshot.offices);
+        } catch (IOException | JsonParseException e) {
+            // Start over with a full pull rather than trust a damaged file
+            Log.w(TAG, "Discarding stored offices", e);
+            offices.clear();
+            watermark = -1;
+        }
+    }
+
+    // Write to a sibling file and rename so a crash never leaves half an office list
+    private void save() throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.watermark = watermark;
+        snapshot.offices = new ArrayList<>(offices.values());
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp, false)) {
+            Writer w = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
+            gson.toJson(snapshot, w);
+            w.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace stored offices");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.inout.attendancemanager.repositories;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single round-trip day writes: entries are merged onto the cached day and written in one batch
+ * that expects the cached revision, with totalMinutes and the rollup as server-side increments.
+ * The client SDK has no update-time precondition, so the revision check lives in the rules quoted
+ * at {@link AttendanceLayout#FIELD_PRECONDITION_WRITES}; {@link AttendanceLayout#dayStore} only
+ * hands this store out to users with that flag published.
+ * A rejected write (someone else moved the day on) falls back to the transaction in
+ * {@link FirestoreDayStore}, as do uncached or pre-revision days.
+ */
+public class PreconditionDayStore extends FirestoreDayStore {
+
+    // Offline, commit() only resolves once the server acknowledges; the write itself stays queued
+    private static final long COMMIT_TIMEOUT_S = 30;
+
+    private final AtomicInteger fastCommits = new AtomicInteger();
+    private final AtomicInteger fallbacks = new AtomicInteger();
+
+    public PreconditionDayStore() {
+        super();
+    }
+
+    public PreconditionDayStore(FirebaseFirestore db) {
+        super(db);
+    }
+
+    @Override
+    public PunchMerger.Result commit(String userId, String dateId, List<PunchEntry> entries) throws Exception {
+        DocumentReference docRef = dayRef(userId, dateId);
+
+        DocumentSnapshot cached;
+        try {
+            cached = Tasks.await(docRef.get(Source.CACHE));
+        } catch (ExecutionException e) {
+            return fallback(userId, dateId, entries);
+        }
+        if (cached.exists() && cached.getLong(FIELD_REVISION) == null) {
+            return fallback(userId, dateId, entries);
+        }
+
+        Attendance current = null;
+        if (cached.exists()) {
+            current = cached.toObject(Attendance.class);
+            if (current != null) current.setDateId(dateId);
+        }
+
+        PunchMerger.Result result = PunchMerger.mergeAll(current, entries);
+        if (!result.rejected.isEmpty()) {
+            // The cache may be behind; only the server state may reject a punch
+            return fallback(userId, dateId, entries);
+        }
+        if (!result.changed()) return result;
+
+        long before = current != null ? current.getTotalMinutes() : 0L;
+        Map<String, Object> fields = DayFields.toMap(result.day);
+        fields.put(FIELD_REVISION, revisionOf(cached) + 1);
+        fields.put("totalMinutes", FieldValue.increment(result.day.getTotalMinutes() - before));
+
+        WriteBatch batch = db.batch();
+        if (cached.exists()) {
+            // update() also requires the document to still exist
+            batch.update(docRef, fields);
+        } else {
+            batch.set(docRef, fields);
+        }
+        Map<String, Long> delta = MonthSummaryCalculator.delta(current, result.day);
+        if (!delta.isEmpty()) {
+            batch.set(summaryRef(userId, dateId), toIncrements(dateId, delta), SetOptions.merge());
+        }
+
+        try {
+            Tasks.await(batch.commit(), COMMIT_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (!isConflict(e.getCause())) throw e;
+            return fallback(userId, dateId, entries);
+        }
+        fastCommits.incrementAndGet();
+        return result;
+    }
+
+    public int getFastCommits() {
+        return fastCommits.get();
+    }
+
+    public int getFallbacks() {
+        return fallbacks.get();
+    }
+
+    private PunchMerger.Result fallback(String userId, String dateId, List<PunchEntry> entries) throws Exception {
+        fallbacks.incrementAndGet();
+        return super.commit(userId, dateId, entries);
+    }
+
+    // Failed revision check (rules) or a day deleted under us
+    private static boolean isConflict(Throwable t) {
+        if (!(t instanceof FirebaseFirestoreException)) return false;
+        FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) t).getCode();
+        return code == FirebaseFirestoreException.Code.PERMISSION_DENIED
+                || code == FirebaseFirestoreException.Code.NOT_FOUND
+                || code == FirebaseFirestoreException.Code.FAILED_PRECONDITION
+                || code == FirebaseFirestoreException.Code.ABORTED;
+    }
+}
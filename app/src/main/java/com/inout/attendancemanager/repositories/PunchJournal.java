@@ -0,0 +1,145 @@
+package com.inout.attendancemanager.repositories;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Durable append-only journal of punches (one JSON line per entry, fsync'd on append).
+ * Entries stay here until the replayer has merged them into Firestore.
+ */
+public class PunchJournal {
+
+    private static final String FILE_NAME = "punch_journal.log";
+
+    public interface Listener {
+        void onJournalChanged();
+    }
+
+    private static PunchJournal instance;
+
+    public static synchronized PunchJournal get(Context context) {
+        if (instance == null) {
+            instance = new PunchJournal(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private final File file;
+    private final Gson gson = new Gson();
+    private final List<PunchEntry> pending = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public PunchJournal(File file) {
+        this.file = file;
+        load();
+    }
+
+    public void append(PunchEntry entry) throws IOException {
+        synchronized (this) {
+            try (FileOutputStream fos = new FileOutputStream(file, true)) {
+                Writer w = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
+                w.write(gson.toJson(entry));
+                w.write('\n');
+                w.flush();
+                fos.getFD().sync();
+            }
+            pending.add(entry);
+        }
+        notifyListeners();
+    }
+
+    public synchronized List<PunchEntry> pending() {
+        return new ArrayList<>(pending);
+    }
+
+    public synchronized List<PunchEntry> pending(String userId, String dateId) {
+        List<PunchEntry> out = new ArrayList<>();
+        for (PunchEntry e : pending) {
+            if (userId.equals(e.getUserId()) && dateId.equals(e.getDateId())) out.add(e);
+        }
+        return out;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public void remove(Collection<PunchEntry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        Set<String> ids = new HashSet<>();
+        for (PunchEntry e : entries) ids.add(e.getId());
+
+        synchronized (this) {
+            List<PunchEntry> remaining = new ArrayList<>();
+            for (PunchEntry e : pending) {
+                if (!ids.contains(e.getId())) remaining.add(e);
+            }
+            rewrite(remaining);
+            pending.clear();
+            pending.addAll(remaining);
+        }
+        notifyListeners();
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    private void notifyListeners() {
+        for (Listener l : listeners) l.onJournalChanged();
+    }
+
+    // Write to a sibling file and rename so a crash never leaves a half-written journal
+    private void rewrite(List<PunchEntry> entries) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp, false)) {
+            Writer w = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
+            for (PunchEntry e : entries) {
+                w.write(gson.toJson(e));
+                w.write('\n');
+            }
+            w.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace punch journal");
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (BufferedReader r = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    PunchEntry e = gson.fromJson(line, PunchEntry.class);
+                    if (e != null && e.getId() != null) pending.add(e);
+                } catch (JsonParseException ignored) {
+                    // Torn write from a crash mid-append; the punch was never confirmed
+                }
+            }
+        } catch (IOException ignored) {
+            // Unreadable journal behaves as empty; the next append recreates it
+        }
+    }
+}
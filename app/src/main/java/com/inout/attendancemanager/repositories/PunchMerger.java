@@ -0,0 +1,212 @@
+package com.inout.attendancemanager.repositories;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.PunchEntry;
+import com.inout.attendancemanager.models.WorkSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Pure day rules shared by the punch journal, the replayer and every DayStore.
+ * Mirrors the checks the Firestore transactions used to do: a second IN while a
+ * session is open is blocked and an OUT without an open IN is rejected.
+ * Each IN appends a session; an OUT closes the one at openSession and adds its
+ * minutes to totalMinutes, so earlier sessions are never revisited.
+ */
+public final class PunchMerger {
+
+    // 9h target
+    public static final long TARGET_MINUTES = 540L;
+
+    public static final String STATUS_IN_PROGRESS = "present_in_progress";
+    public static final String STATUS_COMPLETE = "present_complete";
+
+    private PunchMerger() {}
+
+    public static class Result {
+        @Nullable public final Attendance day;
+        public final List<PunchEntry> applied;
+        public final List<PunchEntry> rejected;
+        public final List<PunchRejectedException> errors;
+
+        Result(@Nullable Attendance day, List<PunchEntry> applied,
+               List<PunchEntry> rejected, List<PunchRejectedException> errors) {
+            this.day = day;
+            this.applied = Collections.unmodifiableList(applied);
+            this.rejected = Collections.unmodifiableList(rejected);
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        public boolean changed() { return !applied.isEmpty(); }
+    }
+
+    // Applies entries in order on a copy of current; rejected entries are skipped, not fatal.
+    public static Result mergeAll(@Nullable Attendance current, List<PunchEntry> entries) {
+        Attendance day = current != null ? copy(current) : null;
+        List<PunchEntry> applied = new ArrayList<>();
+        List<PunchEntry> rejected = new ArrayList<>();
+        List<PunchRejectedException> errors = new ArrayList<>();
+
+        for (PunchEntry e : entries) {
+            try {
+                day = apply(day, e);
+                applied.add(e);
+            } catch (PunchRejectedException ex) {
+                rejected.add(e);
+                errors.add(ex);
+            }
+        }
+        return new Result(day, applied, rejected, errors);
+    }
+
+    // Applies a single entry in place (day may be null for the first punch) and returns the day.
+    public static Attendance apply(@Nullable Attendance day, PunchEntry e) throws PunchRejectedException {
+        return e.isIn() ? applyIn(day, e) : applyOut(day, e);
+    }
+
+    private static Attendance applyIn(@Nullable Attendance day, PunchEntry e) throws PunchRejectedException {
+        Date at = new Date(e.getTimestamp());
+
+        if (day == null) {
+            // First punch of the day
+            day = new Attendance();
+            day.setUserId(e.getUserId());
+            day.setDateId(e.getDateId());
+            day.setCreatedAt(at);
+            day.setFirstInTime(at);
+            day.setLastOutTime(null);
+            day.setTotalMinutes(0L);
+        } else if (isOpen(day)) {
+            // If already in an active session (outTime == null), block double IN
+            throw new PunchRejectedException("Already punched in",
+                    PunchRejectedException.Reason.ALREADY_PUNCHED_IN);
+        }
+
+        // Begin a new session; keep firstInTime from the first ever IN
+        List<WorkSession> sessions = sessionsOf(day);
+        sessions.add(new WorkSession(at, methodOf(e)));
+        day.setOpenSession(sessions.size() - 1);
+        day.setInTime(at);
+        day.setOutTime(null);
+        if (day.getFirstInTime() == null) day.setFirstInTime(at);
+        day.setStatus(STATUS_IN_PROGRESS);
+        applyMeta(day, e, at);
+        return day;
+    }
+
+    private static Attendance applyOut(@Nullable Attendance day, PunchEntry e) throws PunchRejectedException {
+        if (day == null) {
+            throw new PunchRejectedException("No punch-in record",
+                    PunchRejectedException.Reason.NO_PUNCH_IN_RECORD);
+        }
+        List<WorkSession> sessions = sessionsOf(day);
+        if (sessions.isEmpty()) {
+            throw new PunchRejectedException("No active session",
+                    PunchRejectedException.Reason.NO_ACTIVE_SESSION);
+        }
+        Integer open = day.getOpenSession();
+        if (open == null || open < 0 || open >= sessions.size()) {
+            throw new PunchRejectedException("Already punched out",
+                    PunchRejectedException.Reason.ALREADY_PUNCHED_OUT);
+        }
+
+        Date at = new Date(e.getTimestamp());
+        WorkSession session = sessions.get(open);
+        long deltaMillis = Math.max(0L, at.getTime() - session.getInTime().getTime());
+        long sessionMinutes = deltaMillis / (1000 * 60);
+        long newTotalMinutes = day.getTotalMinutes() + sessionMinutes;
+
+        // Close current session
+        session.setOutTime(at);
+        session.setMinutes(sessionMinutes);
+        day.setOpenSession(null);
+        day.setOutTime(at);
+        day.setLastOutTime(at);
+        day.setTotalMinutes(newTotalMinutes);
+        day.setStatus(newTotalMinutes >= TARGET_MINUTES ? STATUS_COMPLETE : STATUS_IN_PROGRESS);
+        applyMeta(day, e, at);
+        return day;
+    }
+
+    // Days written before sessions existed only carry the last inTime/outTime; that becomes session 0.
+    private static List<WorkSession> sessionsOf(Attendance day) {
+        if (day.getSessions() == null) {
+            List<WorkSession> sessions = new ArrayList<>();
+            if (day.getInTime() != null) {
+                WorkSession last = new WorkSession(day.getInTime(), day.getMethod());
+                last.setOutTime(day.getOutTime());
+                if (day.getOutTime() != null) {
+                    last.setMinutes(Math.max(0L, day.getOutTime().getTime() - day.getInTime().getTime()) / (1000 * 60));
+                } else {
+                    day.setOpenSession(0);
+                }
+                sessions.add(last);
+            }
+            day.setSessions(sessions);
+        }
+        return day.getSessions();
+    }
+
+    private static String methodOf(PunchEntry e) {
+        return e.getBeaconId() != null ? "beacon" : "manual";
+    }
+
+    private static void applyMeta(Attendance day, PunchEntry e, Date at) {
+        day.setDeviceId(e.getDeviceId());
+        day.setMethod(methodOf(e));
+        day.setUpdatedAt(at);
+
+        if (e.getBeaconId() != null) {
+            day.setBeaconId(e.getBeaconId());
+            day.setBeaconRssi(e.getBeaconRssi());
+            day.setBeaconSeenAt(at);
+        }
+        if (e.getLatitude() != null && e.getLongitude() != null) {
+            day.setLatitude(e.getLatitude());
+            day.setLongitude(e.getLongitude());
+        }
+    }
+
+    public static boolean isOpen(@Nullable Attendance day) {
+        return day != null && day.getInTime() != null && day.getOutTime() == null;
+    }
+
+    public static Attendance copy(Attendance src) {
+        Attendance c = new Attendance();
+        c.setUserId(src.getUserId());
+        c.setDateId(src.getDateId());
+        c.setInTime(src.getInTime());
+        c.setOutTime(src.getOutTime());
+        c.setTotalMinutes(src.getTotalMinutes());
+        c.setStatus(src.getStatus());
+        c.setDeviceId(src.getDeviceId());
+        c.setMethod(src.getMethod());
+        c.setLatitude(src.getLatitude());
+        c.setLongitude(src.getLongitude());
+        c.setCreatedAt(src.getCreatedAt());
+        c.setUpdatedAt(src.getUpdatedAt());
+        c.setFirstInTime(src.getFirstInTime());
+        c.setLastOutTime(src.getLastOutTime());
+        c.setBeaconId(src.getBeaconId());
+        c.setBeaconRssi(src.getBeaconRssi());
+        c.setBeaconSeenAt(src.getBeaconSeenAt());
+        c.setOpenSession(src.getOpenSession());
+        if (src.getSessions() != null) {
+            // The open session is mutated on OUT, so sessions are copied too
+            List<WorkSession> sessions = new ArrayList<>(src.getSessions().size());
+            for (WorkSession s : src.getSessions()) {
+                WorkSession sc = new WorkSession(s.getInTime(), s.getMethod());
+                sc.setOutTime(s.getOutTime());
+                sc.setMinutes(s.getMinutes());
+                sessions.add(sc);
+            }
+            c.setSessions(sessions);
+        }
+        return c;
+    }
+}
@@ -0,0 +1,25 @@
+package com.inout.attendancemanager.repositories;
+
+/**
+ * Thrown when a punch violates the day rules (double IN, OUT without IN, ...).
+ */
+public class PunchRejectedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        ALREADY_PUNCHED_IN,
+        NO_PUNCH_IN_RECORD,
+        NO_ACTIVE_SESSION,
+        ALREADY_PUNCHED_OUT
+    }
+
+    private final Reason reason;
+
+    public PunchRejectedException(String message, Reason reason) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() { return reason; }
+}
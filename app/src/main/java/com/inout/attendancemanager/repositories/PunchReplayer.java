@@ -0,0 +1,67 @@
+package com.inout.attendancemanager.repositories;
+
+import com.inout.attendancemanager.models.PunchEntry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains the punch journal into a DayStore, one batch per user/day.
+ * Entries are removed from the journal only after their batch committed, so a
+ * failed or interrupted replay simply retries the remainder next time.
+ */
+public class PunchReplayer {
+
+    public static final int MAX_BATCH_SIZE = 20;
+
+    public static class Report {
+        public int batches;
+        public final List<PunchEntry> applied = new ArrayList<>();
+        public final List<PunchEntry> rejected = new ArrayList<>();
+        public final List<PunchRejectedException> errors = new ArrayList<>();
+    }
+
+    private final PunchJournal journal;
+    private final DayStore store;
+
+    public PunchReplayer(PunchJournal journal, DayStore store) {
+        this.journal = journal;
+        this.store = store;
+    }
+
+    public synchronized Report replay() throws Exception {
+        Report report = new Report();
+
+        // Keep journal order inside each day; days are independent documents
+        Map<String, List<PunchEntry>> byDay = new LinkedHashMap<>();
+        for (PunchEntry e : journal.pending()) {
+            String key = e.getUserId() + "/" + e.getDateId();
+            List<PunchEntry> list = byDay.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                byDay.put(key, list);
+            }
+            list.add(e);
+        }
+
+        for (List<PunchEntry> dayEntries : byDay.values()) {
+            PunchEntry first = dayEntries.get(0);
+            for (int from = 0; from < dayEntries.size(); from += MAX_BATCH_SIZE) {
+                List<PunchEntry> batch = dayEntries.subList(from, Math.min(from + MAX_BATCH_SIZE, dayEntries.size()));
+                PunchMerger.Result result = store.commit(first.getUserId(), first.getDateId(), batch);
+
+                List<PunchEntry> done = new ArrayList<>(result.applied);
+                done.addAll(result.rejected);
+                journal.remove(done);
+
+                report.batches++;
+                report.applied.addAll(result.applied);
+                report.rejected.addAll(result.rejected);
+                report.errors.addAll(result.errors);
+            }
+        }
+        return report;
+    }
+}
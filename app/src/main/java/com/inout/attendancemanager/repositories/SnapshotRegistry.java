@@ -0,0 +1,163 @@
+package com.inout.attendancemanager.repositories;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One Firestore snapshot listener per document path (or query key), shared by every screen
+ * that observes it. The listener is attached while any observer is active and removed once
+ * none has been active for the grace period, so rotations and tab switches reuse it.
+ */
+public final class SnapshotRegistry {
+
+    public static final long DEFAULT_GRACE_MS = 5_000L;
+
+    private static SnapshotRegistry instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Shared<?>> entries = new HashMap<>();
+    private long graceMillis = DEFAULT_GRACE_MS;
+    private int attachedCount;
+
+    private SnapshotRegistry() {}
+
+    public static synchronized SnapshotRegistry get() {
+        if (instance == null) instance = new SnapshotRegistry();
+        return instance;
+    }
+
+    /** Latest snapshot or error from the shared listener. */
+    public static final class Snapshot<S> {
+        @Nullable public final S value;
+        @Nullable public final FirebaseFirestoreException error;
+
+        Snapshot(@Nullable S value, @Nullable FirebaseFirestoreException error) {
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    private interface Source<S> {
+        ListenerRegistration listen(EventListener<S> listener);
+    }
+
+    @MainThread
+    public LiveData<Snapshot<DocumentSnapshot>> document(DocumentReference ref) {
+        return obtain(ref.getPath(), ref::addSnapshotListener);
+    }
+
+    // Queries have no stable identity, so callers name them
+    @MainThread
+    public LiveData<Snapshot<QuerySnapshot>> query(String key, Query query) {
+        return obtain("query:" + key, query::addSnapshotListener);
+    }
+
+    @MainThread
+    public void setGracePeriod(long millis) {
+        graceMillis = Math.max(0L, millis);
+    }
+
+    // Diagnostics: Firestore listeners currently attached
+    @MainThread
+    public int getListenerCount() {
+        return attachedCount;
+    }
+
+    // Diagnostics: observers per key, including ones in their grace period
+    @MainThread
+    public Map<String, Integer> getSubscriberCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, Shared<?>> e : entries.entrySet()) {
+            counts.put(e.getKey(), e.getValue().subscribers.size());
+        }
+        return counts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> LiveData<Snapshot<S>> obtain(String key, Source<S> source) {
+        Shared<S> shared = (Shared<S>) entries.get(key);
+        if (shared == null) {
+            shared = new Shared<>(key, source);
+            entries.put(key, shared);
+        }
+        return shared;
+    }
+
+    private final class Shared<S> extends LiveData<Snapshot<S>> {
+        private final String key;
+        private final Source<S> source;
+        private final Set<Observer<?>> subscribers = new HashSet<>();
+        private final Runnable detach = this::detachIfIdle;
+        @Nullable private ListenerRegistration registration;
+
+        Shared(String key, Source<S> source) {
+            this.key = key;
+            this.source = source;
+        }
+
+        @Override
+        public void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super Snapshot<S>> observer) {
+            subscribers.add(observer);
+            entries.put(key, this);
+            super.observe(owner, observer);
+        }
+
+        @Override
+        public void observeForever(@NonNull Observer<? super Snapshot<S>> observer) {
+            subscribers.add(observer);
+            entries.put(key, this);
+            super.observeForever(observer);
+        }
+
+        // Also reached when an owner is destroyed
+        @Override
+        public void removeObserver(@NonNull Observer<? super Snapshot<S>> observer) {
+            super.removeObserver(observer);
+            subscribers.remove(observer);
+        }
+
+        @Override
+        protected void onActive() {
+            mainHandler.removeCallbacks(detach);
+            if (registration == null) {
+                registration = source.listen((value, error) -> setValue(new Snapshot<>(value, error)));
+                attachedCount++;
+            }
+        }
+
+        @Override
+        protected void onInactive() {
+            mainHandler.postDelayed(detach, graceMillis);
+        }
+
+        private void detachIfIdle() {
+            if (hasActiveObservers()) return;
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+                attachedCount--;
+            }
+            if (!hasObservers() && entries.get(key) == this) entries.remove(key);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.inout.attendancemanager.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer hand-off of raw advertisements from the BLE callback
+ * thread to the beacon worker. Lock-free and allocation-free: a power-of-two ring of parallel
+ * arrays published with ordered stores. When the worker falls behind, new adverts are dropped
+ * and counted rather than blocking the producer.
+ */
+public final class AdvertQueue {
+
+    public interface Sink {
+        void accept(long elapsedMs, int rssi, byte[] scanRecord);
+    }
+
+    private final int mask;
+    private final long[] times;
+    private final int[] rssis;
+    private final byte[][] records;
+    private final AtomicLong head = new AtomicLong();  // next slot to read; consumer-owned
+    private final AtomicLong tail = new AtomicLong();  // next slot to write; producer-owned
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    public AdvertQueue(int capacity) {
+        int size = 2;
+        while (size < capacity) size <<= 1;
+        mask = size - 1;
+        times = new long[size];
+        rssis = new int[size];
+        records = new byte[size][];
+    }
+
+    // Producer thread only; false (and counted) when full
+    public boolean offer(long elapsedMs, int rssi, byte[] scanRecord) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int slot = (int) t & mask;
+        times[slot] = elapsedMs;
+        rssis[slot] = rssi;
+        records[slot] = scanRecord;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    // Consumer thread only; hands over everything published so far and returns how many
+    public int drain(Sink sink) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            byte[] record = records[slot];
+            records[slot] = null;
+            sink.accept(times[slot], rssis[slot], record);
+            head.lazySet(i + 1);
+        }
+        return (int) (t - h);
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+}
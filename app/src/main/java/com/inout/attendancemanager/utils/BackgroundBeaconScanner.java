@@ -0,0 +1,274 @@
+package com.inout.attendancemanager.utils;
+
+import android.app.PendingIntent;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.app.ActivityCompat;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.inout.attendancemanager.models.BeaconConfig;
+import com.inout.attendancemanager.receivers.BeaconScanReceiver;
+import com.inout.attendancemanager.repositories.AttendanceRepository;
+import com.inout.attendancemanager.workers.BeaconExitWorker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands-free punching: a filtered, batched BLE scan whose results the system delivers to
+ * {@link BeaconScanReceiver} through a PendingIntent, so the app process need not stay alive.
+ * Each batch feeds {@link BeaconPresence}; an enter punches in, and {@link BeaconExitWorker}
+ * punches out once no configured beacon has been seen for the exit timeout.
+ * The system drops PendingIntent scans on reboot; {@link #restoreIfEnabled} re-arms after boot
+ * (from BootReceiver) and on next launch.
+ */
+public final class BackgroundBeaconScanner {
+
+    private static final String TAG = "BackgroundBeaconScanner";
+
+    public static final String ACTION_SCAN_RESULTS = "com.inout.attendancemanager.action.BEACON_SCAN_RESULTS";
+    public static final String MODE_LOW_POWER = "low_power";
+    public static final String MODE_BALANCED = "balanced";
+
+    static final long DEFAULT_REPORT_DELAY_MS = 60_000L;
+    // Never exit sooner than this, however short the batches
+    static final long MIN_EXIT_AFTER_MS = 10 * 60_000L;
+    private static final long PUNCH_TIMEOUT_S = 8;
+
+    // Batches are handled off the receiver's main thread, one at a time
+    public static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final Gson gson = new Gson();
+
+    private BackgroundBeaconScanner() {}
+
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(Constants.PREF_HANDS_FREE_BEACON, false);
+    }
+
+    // Returns false when the scan could not be started (no BLE, no permission, nothing to filter on)
+    public static boolean enable(Context context, List<BeaconConfig> configs) {
+        prefs(context).edit()
+                .putBoolean(Constants.PREF_HANDS_FREE_BEACON, true)
+                .putString(Constants.PREF_BACKGROUND_BEACONS, gson.toJson(configs))
+                .apply();
+        return start(context, configs);
+    }
+
+    public static void disable(Context context) {
+        prefs(context).edit()
+                .putBoolean(Constants.PREF_HANDS_FREE_BEACON, false)
+                .remove(Constants.PREF_BEACON_PRESENCE)
+                .apply();
+        BeaconExitWorker.cancel(context);
+        BluetoothLeScanner scanner = scanner(context);
+        if (scanner == null || !hasScanPermission(context)) return;
+        try {
+            scanner.stopScan(pendingIntent(context));
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception stopping background scan", e);
+        }
+    }
+
+    public static void restoreIfEnabled(Context context) {
+        if (isEnabled(context)) start(context, loadConfigs(context));
+    }
+
+    private static boolean start(Context context, List<BeaconConfig> configs) {
+        List<ScanFilter> filters = BeaconScanFilters.build(configs);
+        // Screen-off scans without filters deliver nothing on Android 8.1+, so don't pretend
+        if (filters.isEmpty()) {
+            Log.w(TAG, "No beacon filters; background scanning not started");
+            return false;
+        }
+        BluetoothLeScanner scanner = scanner(context);
+        if (scanner == null || !hasScanPermission(context)) return false;
+
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(scanMode(configs))
+                .setReportDelay(reportDelayMs(configs))
+                .build();
+        try {
+            PendingIntent intent = pendingIntent(context);
+            // Restarting replaces the previous registration instead of failing as already started
+            scanner.stopScan(intent);
+            int error = scanner.startScan(filters, settings, intent);
+            if (error != 0) {
+                Log.e(TAG, "Background scan failed to start: " + error);
+                return false;
+            }
+            Log.d(TAG, "Background scan started: " + filters.size() + " filters, batched every "
+                    + reportDelayMs(configs) + "ms");
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception starting background scan", e);
+            return false;
+        }
+    }
+
+    // One delivered batch; runs on EXECUTOR
+    @WorkerThread
+    public static void handleBatch(Context context, List<ScanResult> results) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !isEnabled(context)) return;
+
+        List<BeaconConfig> configs = loadConfigs(context);
+        BeaconTable table = new BeaconTable(configs);
+        BeaconFrameParser parser = new BeaconFrameParser();
+        BeaconKey key = new BeaconKey();
+        BeaconRangeEstimator ranges = new BeaconRangeEstimator(table.size());
+        long[] lastSeen = new long[table.size()];
+        long elapsedNow = SystemClock.elapsedRealtime();
+        long now = System.currentTimeMillis();
+
+        for (ScanResult result : results) {
+            if (result.getScanRecord() == null) continue;
+            if (!parser.parse(result.getScanRecord().getBytes(), key)) continue;
+            int index = table.lookup(key);
+            if (index < 0) continue;
+            ranges.add(index, result.getRssi(), key.txPower);
+            // Batched results carry their own receive time
+            long seenAt = now - (elapsedNow - TimeUnit.NANOSECONDS.toMillis(result.getTimestampNanos()));
+            lastSeen[index] = Math.max(lastSeen[index], seenAt);
+        }
+
+        int best = -1;
+        for (int i = 0; i < table.size(); i++) {
+            if (ranges.samples(i) == 0 || !BeaconDecisionPipeline.isValid(table.config(i), ranges, i)) continue;
+            if (best < 0 || ranges.distance(i) < ranges.distance(best)) best = i;
+        }
+        if (best < 0) return;
+
+        BeaconConfig config = table.config(best);
+        BeaconPresence presence = loadPresence(context);
+        BeaconPresence.Transition t = presence.onSighting(config.getBeaconId(), lastSeen[best]);
+        savePresence(context, presence);
+        BeaconExitWorker.schedule(context, exitAfterMs(configs));
+
+        if (t == BeaconPresence.Transition.ENTER) {
+            punch(context, user.getUid(), true, config.getBeaconId(), ranges.medianRssi(best));
+        }
+    }
+
+    // Called by BeaconExitWorker once the exit timeout has passed since it was scheduled
+    @WorkerThread
+    public static void checkExit(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !isEnabled(context)) return;
+
+        long exitAfterMs = exitAfterMs(loadConfigs(context));
+        BeaconPresence presence = loadPresence(context);
+        BeaconPresence.Transition t = presence.onCheck(System.currentTimeMillis(), exitAfterMs);
+        if (t != BeaconPresence.Transition.EXIT) return;
+        savePresence(context, presence);
+        punch(context, user.getUid(), false, presence.getBeaconId(), null);
+    }
+
+    // The repository journals the punch; replay takes over if Firestore is unreachable now
+    private static void punch(Context context, String userId, boolean in, String beaconId,
+                              @Nullable Integer rssi) {
+        String deviceId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        AttendanceRepository repo = new AttendanceRepository(context, userId);
+        try {
+            Tasks.await(in
+                    ? repo.punchIn(deviceId, null, null, beaconId, rssi)
+                    : repo.punchOut(deviceId, null, null, beaconId, rssi), PUNCH_TIMEOUT_S, TimeUnit.SECONDS);
+            Log.d(TAG, "Hands-free punch " + (in ? "in" : "out") + " at " + beaconId);
+        } catch (Exception e) {
+            // Local rule violations and timeouts only; punches the server rejects on replay are
+            // reported through PunchRejections
+            Log.w(TAG, "Hands-free punch " + (in ? "in" : "out") + " not recorded", e);
+        }
+    }
+
+    // The most eager config wins: one scan serves them all
+    static int scanMode(List<BeaconConfig> configs) {
+        for (BeaconConfig c : configs) {
+            if (c.isEnabled() && MODE_BALANCED.equals(c.getBackgroundScanMode())) {
+                return ScanSettings.SCAN_MODE_BALANCED;
+            }
+        }
+        return ScanSettings.SCAN_MODE_LOW_POWER;
+    }
+
+    static long reportDelayMs(List<BeaconConfig> configs) {
+        long delay = Long.MAX_VALUE;
+        for (BeaconConfig c : configs) {
+            if (c.isEnabled() && c.getBackgroundReportDelayMs() != null && c.getBackgroundReportDelayMs() > 0) {
+                delay = Math.min(delay, c.getBackgroundReportDelayMs());
+            }
+        }
+        return delay == Long.MAX_VALUE ? DEFAULT_REPORT_DELAY_MS : delay;
+    }
+
+    // Three missed batches, and never less than MIN_EXIT_AFTER_MS
+    static long exitAfterMs(List<BeaconConfig> configs) {
+        return Math.max(MIN_EXIT_AFTER_MS, 3 * reportDelayMs(configs));
+    }
+
+    private static List<BeaconConfig> loadConfigs(Context context) {
+        String json = prefs(context).getString(Constants.PREF_BACKGROUND_BEACONS, null);
+        if (json == null) return new ArrayList<>();
+        List<BeaconConfig> configs = gson.fromJson(json, new TypeToken<List<BeaconConfig>>() {}.getType());
+        return configs != null ? configs : new ArrayList<>();
+    }
+
+    private static BeaconPresence loadPresence(Context context) {
+        String json = prefs(context).getString(Constants.PREF_BEACON_PRESENCE, null);
+        BeaconPresence presence = json != null ? gson.fromJson(json, BeaconPresence.class) : null;
+        return presence != null ? presence : new BeaconPresence();
+    }
+
+    private static void savePresence(Context context, BeaconPresence presence) {
+        prefs(context).edit().putString(Constants.PREF_BEACON_PRESENCE, gson.toJson(presence)).commit();
+    }
+
+    private static PendingIntent pendingIntent(Context context) {
+        Intent intent = new Intent(context, BeaconScanReceiver.class).setAction(ACTION_SCAN_RESULTS);
+        // The system fills in the results, so the intent has to stay mutable on S+
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) flags |= PendingIntent.FLAG_MUTABLE;
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+
+    @Nullable
+    private static BluetoothLeScanner scanner(Context context) {
+        BluetoothManager manager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        BluetoothAdapter adapter = manager != null ? manager.getAdapter() : null;
+        if (adapter == null || !adapter.isEnabled()) return null;
+        return adapter.getBluetoothLeScanner();
+    }
+
+    private static boolean hasScanPermission(Context context) {
+        String permission = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                ? android.Manifest.permission.BLUETOOTH_SCAN
+                : android.Manifest.permission.ACCESS_FINE_LOCATION;
+        return ActivityCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,44 @@
+package com.inout.attendancemanager.utils;
+
+import android.bluetooth.le.ScanFilter;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One version of an office's beacon set, compiled once into the lookup table and hardware scan
+ * filters every scan of that version reuses. Immutable, so scans on any thread can share it.
+ */
+public final class BeaconCatalog {
+
+    public static final BeaconCatalog EMPTY = compile(0, new ArrayList<>());
+
+    private final long version;
+    private final List<BeaconConfig> configs;
+    private final BeaconTable table;
+    private final List<ScanFilter> scanFilters;
+
+    private BeaconCatalog(long version, List<BeaconConfig> configs) {
+        this.version = version;
+        this.configs = Collections.unmodifiableList(new ArrayList<>(configs));
+        this.table = new BeaconTable(this.configs);
+        this.scanFilters = Collections.unmodifiableList(BeaconScanFilters.build(this.configs));
+    }
+
+    public static BeaconCatalog compile(long version, List<BeaconConfig> configs) {
+        return new BeaconCatalog(version, configs != null ? configs : new ArrayList<>());
+    }
+
+    public long getVersion() { return version; }
+    public List<BeaconConfig> getConfigs() { return configs; }
+    public BeaconTable getTable() { return table; }
+    public List<ScanFilter> getScanFilters() { return scanFilters; }
+
+    // Beacons a scan could match
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.inout.attendancemanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a scan has seen enough of a configured beacon to stop early: either
+ * {@link Policy#requiredSightings} readings at or above its threshold within {@link Policy#windowMs},
+ * or a smoothed RSSI at least {@link Policy#strongMarginDb} above the threshold.
+ * State is kept in flat arrays indexed like {@link BeaconTable}, so sightings don't allocate.
+ */
+public final class BeaconConfirmation {
+
+    public static final class Policy {
+        // Never confirms early: the scan runs until its timeout, as it always did
+        public static final Policy FULL_WINDOW = new Policy(Integer.MAX_VALUE, 0L, Integer.MAX_VALUE);
+        public static final Policy EARLY_EXIT = new Policy(3, 1_500L, 6);
+
+        public final int requiredSightings;
+        public final long windowMs;
+        public final int strongMarginDb;
+
+        public Policy(int requiredSightings, long windowMs, int strongMarginDb) {
+            this.requiredSightings = requiredSightings;
+            this.windowMs = windowMs;
+            this.strongMarginDb = strongMarginDb;
+        }
+
+        boolean isFullWindow() {
+            return requiredSightings == Integer.MAX_VALUE && strongMarginDb == Integer.MAX_VALUE;
+        }
+    }
+
+    // Weight of the newest reading in the smoothed RSSI
+    private static final float ALPHA = 0.3f;
+    // The smoothed value alone is not trusted from a single reading
+    private static final int MIN_SMOOTHED_SAMPLES = 2;
+
+    private final Policy policy;
+    private final int ring;
+    private final long[] sightingTimes;  // ring of qualifying sighting times per beacon
+    private final int[] sightingHeads;
+    private final int[] sightingCounts;
+    private final float[] smoothed;
+    private final int[] samples;
+
+    public BeaconConfirmation(Policy policy, int beacons) {
+        this.policy = policy;
+        this.ring = policy.isFullWindow() ? 1 : Math.max(1, policy.requiredSightings);
+        this.sightingTimes = new long[beacons * ring];
+        this.sightingHeads = new int[beacons];
+        this.sightingCounts = new int[beacons];
+        this.smoothed = new float[beacons];
+        this.samples = new int[beacons];
+    }
+
+    public void reset() {
+        Arrays.fill(sightingHeads, 0);
+        Arrays.fill(sightingCounts, 0);
+        Arrays.fill(samples, 0);
+    }
+
+    // True once beacon `index` is confirmed; call for every sighting, not just new maxima
+    public boolean onSighting(int index, int rssi, int threshold, long nowMs) {
+        if (policy.isFullWindow()) return false;
+
+        float s = samples[index] == 0 ? rssi : smoothed[index] + ALPHA * (rssi - smoothed[index]);
+        smoothed[index] = s;
+        samples[index]++;
+        if (samples[index] >= MIN_SMOOTHED_SAMPLES && s >= threshold + policy.strongMarginDb) return true;
+
+        if (rssi < threshold) return false;
+        int base = index * ring;
+        sightingTimes[base + sightingHeads[index]] = nowMs;
+        sightingHeads[index] = (sightingHeads[index] + 1) % ring;
+        if (sightingCounts[index] < ring) sightingCounts[index]++;
+        if (sightingCounts[index] < policy.requiredSightings) return false;
+
+        // The ring holds the last requiredSightings times; the oldest sits at the head
+        long oldest = sightingTimes[base + sightingHeads[index]];
+        return nowMs - oldest <= policy.windowMs;
+    }
+}
@@ -0,0 +1,121 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+import com.inout.attendancemanager.models.BeaconScanResult;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The beacon decision path with no Bluetooth types in it: raw advertisement in, filtered reading,
+ * confirmation and best result out. {@link BeaconScanner} drives it from live scan results and
+ * {@link BeaconScanReplayer} from recordings, so both reach the same decisions.
+ */
+public final class BeaconDecisionPipeline {
+
+    // Two agreeing readings; a lone sample never validates a punch
+    static final double MIN_CONFIDENCE = 0.4;
+
+    public interface Listener {
+        // A beacon's filtered reading or validity changed
+        void onBeaconUpdated(BeaconScanResult result, int samples);
+    }
+
+    private final BeaconFrameParser parser = new BeaconFrameParser();
+    private final BeaconKey key = new BeaconKey();
+    private final BeaconTable table;
+    private final BeaconConfirmation confirmation;
+    private final BeaconRangeEstimator ranges;
+    // Latest filtered reading per configured beacon, indexed like the table
+    private final BeaconScanResult[] found;
+    @Nullable private Listener listener;
+    private int matchedCount;
+
+    public BeaconDecisionPipeline(List<BeaconConfig> configs, BeaconConfirmation.Policy policy) {
+        this(new BeaconTable(configs), policy);
+    }
+
+    // Shares a table compiled once per beacon set, e.g. {@link BeaconCatalog#getTable()}
+    public BeaconDecisionPipeline(BeaconTable table, BeaconConfirmation.Policy policy) {
+        this.table = table;
+        confirmation = new BeaconConfirmation(policy, table.size());
+        ranges = new BeaconRangeEstimator(table.size());
+        found = new BeaconScanResult[table.size()];
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    public void reset() {
+        Arrays.fill(found, null);
+        confirmation.reset();
+        ranges.reset();
+        matchedCount = 0;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Feeds one advertisement's raw scan record, in any supported frame format.
+     * Returns true when it confirmed a valid beacon, i.e. the scan can end now.
+     * Only a change in the filtered reading allocates.
+     */
+    public boolean onAdvertisement(long elapsedMs, int rssi, @Nullable byte[] scanRecord) {
+        if (!parser.parse(scanRecord, key)) return false;
+        int index = table.lookup(key);
+        if (index < 0) return false;
+        matchedCount++;
+
+        BeaconConfig config = table.config(index);
+        ranges.add(index, rssi, key.txPower);
+        int threshold = rssiThreshold(config, ranges.txPower(index));
+        // Every sighting counts towards confirmation, not only new maxima
+        boolean confirmed = confirmation.onSighting(index, rssi, threshold, elapsedMs);
+
+        // Validity follows the filtered reading, never a single sample
+        int median = ranges.medianRssi(index);
+        boolean isValid = isValid(config, ranges, index);
+
+        BeaconScanResult existing = found[index];
+        if (existing == null || existing.getRssi() != median || existing.isValid() != isValid) {
+            BeaconScanResult result = new BeaconScanResult(config.getBeaconId(), median, config.getLabel(),
+                    isValid, ranges.distance(index), ranges.confidence(index));
+            found[index] = result;
+            if (listener != null) listener.onBeaconUpdated(result, ranges.samples(index));
+        }
+
+        return confirmed && isValid;
+    }
+
+    // Nearest valid beacon, or BeaconScanResult.invalid()
+    public BeaconScanResult best() {
+        BeaconScanResult best = null;
+        for (BeaconScanResult result : found) {
+            if (result != null && result.isValid()
+                    && (best == null || result.getDistanceMeters() < best.getDistanceMeters())) {
+                best = result;
+            }
+        }
+        return best != null ? best : BeaconScanResult.invalid();
+    }
+
+    // Shared with the background scanner so both judge a beacon the same way
+    static boolean isValid(BeaconConfig config, BeaconRangeEstimator ranges, int index) {
+        if (ranges.confidence(index) < MIN_CONFIDENCE) return false;
+        return config.getMaxDistanceMeters() != null
+                ? ranges.distance(index) <= config.getMaxDistanceMeters()
+                : ranges.medianRssi(index) >= rssiThreshold(config, ranges.txPower(index));
+    }
+
+    // A distance limit is compared in RSSI at this beacon's calibrated TX power
+    static int rssiThreshold(BeaconConfig config, int txPower) {
+        return config.getMaxDistanceMeters() != null
+                ? BeaconRangeEstimator.rssiAt(config.getMaxDistanceMeters(), txPower)
+                : config.getRssiThreshold();
+    }
+}
@@ -0,0 +1,25 @@
+package com.inout.attendancemanager.utils;
+
+/**
+ * Decodes one beacon format from a single AD structure of a raw scan record. {@link BeaconFrameParser}
+ * walks the record once and hands each structure to the decoders registered for its AD type and
+ * company ID / 16-bit service UUID. Implementations must not allocate in {@link #decode}.
+ */
+public interface BeaconFrameDecoder {
+
+    int AD_TYPE_SERVICE_DATA_16 = 0x16;
+    int AD_TYPE_MANUFACTURER_DATA = 0xFF;
+    // id() for decoders that accept any company ID
+    int ANY_ID = -1;
+
+    int adType();
+
+    // Company ID for manufacturer data, service UUID for service data (both little-endian on air)
+    int id();
+
+    /**
+     * `offset` points just past the company ID / service UUID, `length` bytes follow.
+     * Fills `out` and returns true when the bytes are a frame of this format.
+     */
+    boolean decode(byte[] record, int offset, int length, BeaconKey out);
+}
@@ -0,0 +1,70 @@
+package com.inout.attendancemanager.utils;
+
+/**
+ * The beacon formats our sites run: Apple iBeacon, Eddystone-UID and AltBeacon.
+ */
+public final class BeaconFrameDecoders {
+
+    public static final int COMPANY_ID_APPLE = 0x004C;
+    public static final int SERVICE_UUID_EDDYSTONE = 0xFEAA;
+
+    private BeaconFrameDecoders() {}
+
+    public static BeaconFrameDecoder[] all() {
+        return new BeaconFrameDecoder[] { new IBeacon(), new EddystoneUid(), new AltBeacon() };
+    }
+
+    /** [0x02][0x15][16 UUID][2 major][2 minor][1 TX power at 1 m], after Apple's company ID. */
+    public static final class IBeacon implements BeaconFrameDecoder {
+        public static final int LENGTH = 23;
+
+        @Override public int adType() { return AD_TYPE_MANUFACTURER_DATA; }
+        @Override public int id() { return COMPANY_ID_APPLE; }
+
+        @Override
+        public boolean decode(byte[] r, int o, int length, BeaconKey out) {
+            if (length < LENGTH || r[o] != 0x02 || r[o + 1] != 0x15) return false;
+            out.set(BeaconKey.FORMAT_IBEACON, BeaconKey.readLong(r, o + 2), BeaconKey.readLong(r, o + 10),
+                    readInt(r, o + 18), r[o + 22]);
+            return true;
+        }
+    }
+
+    /** [0x00 frame type][1 TX power at 0 m][10 namespace][6 instance][2 reserved], after 0xFEAA. */
+    public static final class EddystoneUid implements BeaconFrameDecoder {
+        public static final int LENGTH = 18;
+        // Eddystone calibrates at 0 m; free-space loss to 1 m is about 41 dB
+        static final int LOSS_AT_ONE_METER = 41;
+
+        @Override public int adType() { return AD_TYPE_SERVICE_DATA_16; }
+        @Override public int id() { return SERVICE_UUID_EDDYSTONE; }
+
+        @Override
+        public boolean decode(byte[] r, int o, int length, BeaconKey out) {
+            if (length < LENGTH || r[o] != 0x00) return false;
+            out.set(BeaconKey.FORMAT_EDDYSTONE_UID, BeaconKey.readLong(r, o + 2), BeaconKey.readLong(r, o + 10),
+                    0, r[o + 1] - LOSS_AT_ONE_METER);
+            return true;
+        }
+    }
+
+    /** [0xBE][0xAC][16 ID1][2 ID2][2 ID3][1 reference RSSI at 1 m][1 reserved], after any company ID. */
+    public static final class AltBeacon implements BeaconFrameDecoder {
+        public static final int LENGTH = 24;
+
+        @Override public int adType() { return AD_TYPE_MANUFACTURER_DATA; }
+        @Override public int id() { return ANY_ID; }
+
+        @Override
+        public boolean decode(byte[] r, int o, int length, BeaconKey out) {
+            if (length < LENGTH || r[o] != (byte) 0xBE || r[o + 1] != (byte) 0xAC) return false;
+            out.set(BeaconKey.FORMAT_ALTBEACON, BeaconKey.readLong(r, o + 2), BeaconKey.readLong(r, o + 10),
+                    readInt(r, o + 18), r[o + 22]);
+            return true;
+        }
+    }
+
+    private static int readInt(byte[] r, int o) {
+        return (r[o] & 0xFF) << 24 | (r[o + 1] & 0xFF) << 16 | (r[o + 2] & 0xFF) << 8 | (r[o + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,44 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+/**
+ * One pass over a raw scan record's AD structures, dispatching manufacturer and 16-bit service data
+ * to the registered {@link BeaconFrameDecoder}s. Works on ScanRecord.getBytes(), which is not
+ * copied, so nothing is allocated per advertisement.
+ */
+public final class BeaconFrameParser {
+
+    private final BeaconFrameDecoder[] decoders;
+
+    public BeaconFrameParser() {
+        this(BeaconFrameDecoders.all());
+    }
+
+    public BeaconFrameParser(BeaconFrameDecoder... decoders) {
+        this.decoders = decoders.clone();
+    }
+
+    // Fills `out` from the first beacon frame in the record; false if there is none
+    public boolean parse(@Nullable byte[] record, BeaconKey out) {
+        if (record == null) return false;
+        int i = 0;
+        while (i < record.length) {
+            int length = record[i] & 0xFF;
+            if (length == 0 || i + 1 + length > record.length) return false;  // end of data or truncated
+            int type = record[i + 1] & 0xFF;
+            // Both kinds we decode start with a little-endian 16-bit company ID / service UUID
+            if (length >= 3 && (type == BeaconFrameDecoder.AD_TYPE_MANUFACTURER_DATA
+                    || type == BeaconFrameDecoder.AD_TYPE_SERVICE_DATA_16)) {
+                int id = (record[i + 2] & 0xFF) | (record[i + 3] & 0xFF) << 8;
+                for (BeaconFrameDecoder decoder : decoders) {
+                    if (decoder.adType() != type) continue;
+                    if (decoder.id() != BeaconFrameDecoder.ANY_ID && decoder.id() != id) continue;
+                    if (decoder.decode(record, i + 4, length - 3, out)) return true;
+                }
+            }
+            i += 1 + length;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Format-independent identity of a beacon: the frame format plus up to 160 bits of ID, packed as
+ * two longs and an int so decoders can fill a reused instance without allocating.
+ * iBeacon and AltBeacon: UUID / ID1 in hi+lo, major<<16|minor in tail.
+ * Eddystone-UID: namespace (10 bytes) and instance (6 bytes) in hi+lo, tail 0.
+ */
+public final class BeaconKey {
+
+    public static final int FORMAT_IBEACON = 1;
+    public static final int FORMAT_EDDYSTONE_UID = 2;
+    public static final int FORMAT_ALTBEACON = 3;
+
+    public static final String TYPE_IBEACON = "ibeacon";
+    public static final String TYPE_EDDYSTONE_UID = "eddystone_uid";
+    public static final String TYPE_ALTBEACON = "altbeacon";
+
+    public int format;
+    public long hi;
+    public long lo;
+    public int tail;
+    // Calibrated RSSI at 1 m, as carried by the frame
+    public int txPower;
+
+    public void set(int format, long hi, long lo, int tail, int txPower) {
+        this.format = format;
+        this.hi = hi;
+        this.lo = lo;
+        this.tail = tail;
+        this.txPower = txPower;
+    }
+
+    public boolean sameBeacon(BeaconKey other) {
+        return format == other.format && hi == other.hi && lo == other.lo && tail == other.tail;
+    }
+
+    // Fills this from a config; false when the config is disabled or its IDs are malformed
+    public boolean setFrom(BeaconConfig config) {
+        if (config == null || !config.isEnabled()) return false;
+        int format = formatOf(config.getFrameType());
+        if (format == 0) return false;
+        try {
+            if (format == FORMAT_EDDYSTONE_UID) {
+                byte[] id = new byte[16];
+                if (!hex(config.getNamespaceId(), id, 0, 10) || !hex(config.getInstanceId(), id, 10, 6)) return false;
+                set(format, readLong(id, 0), readLong(id, 8), 0, 0);
+            } else {
+                if (config.getUuid() == null) return false;
+                UUID uuid = UUID.fromString(config.getUuid().trim());
+                set(format, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                        (config.getMajor() & 0xFFFF) << 16 | (config.getMinor() & 0xFFFF), 0);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;  // malformed IDs could never match an advertisement
+        }
+    }
+
+    // Configs written before other formats existed have no frame type and are iBeacons
+    static int formatOf(String frameType) {
+        if (frameType == null || TYPE_IBEACON.equalsIgnoreCase(frameType)) return FORMAT_IBEACON;
+        if (TYPE_EDDYSTONE_UID.equalsIgnoreCase(frameType)) return FORMAT_EDDYSTONE_UID;
+        if (TYPE_ALTBEACON.equalsIgnoreCase(frameType)) return FORMAT_ALTBEACON;
+        return 0;
+    }
+
+    static long readLong(byte[] data, int offset) {
+        long v = 0;
+        for (int i = offset; i < offset + 8; i++) v = v << 8 | (data[i] & 0xFF);
+        return v;
+    }
+
+    // `bytes` bytes of hex, optionally 0x-prefixed, into out[offset..]
+    private static boolean hex(String value, byte[] out, int offset, int bytes) {
+        if (value == null) return false;
+        String s = value.trim().toLowerCase(Locale.US);
+        if (s.startsWith("0x")) s = s.substring(2);
+        if (s.length() != bytes * 2) return false;
+        for (int i = 0; i < bytes; i++) {
+            int high = Character.digit(s.charAt(2 * i), 16);
+            int low = Character.digit(s.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) return false;
+            out[offset + i] = (byte) (high << 4 | low);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.inout.attendancemanager.utils;
+
+/**
+ * Enter/exit state machine for hands-free punching. A valid sighting while outside is an enter;
+ * being inside with no valid sighting for the exit timeout is an exit. Short gaps (a batch that
+ * missed the beacon, a walk to the kitchen) never produce an exit on their own.
+ * Plain state so it can be persisted between PendingIntent deliveries, which may each start a
+ * fresh process.
+ */
+public final class BeaconPresence {
+
+    public enum Transition { NONE, ENTER, EXIT }
+
+    private boolean inside;
+    private String beaconId;
+    private long lastSeenAt;
+
+    public BeaconPresence() {}
+
+    public BeaconPresence(boolean inside, String beaconId, long lastSeenAt) {
+        this.inside = inside;
+        this.beaconId = beaconId;
+        this.lastSeenAt = lastSeenAt;
+    }
+
+    public Transition onSighting(String beaconId, long seenAt) {
+        if (seenAt < lastSeenAt) return Transition.NONE;  // late batch; already accounted for
+        lastSeenAt = seenAt;
+        this.beaconId = beaconId;
+        if (inside) return Transition.NONE;
+        inside = true;
+        return Transition.ENTER;
+    }
+
+    public Transition onCheck(long now, long exitAfterMs) {
+        if (!inside || now - lastSeenAt < exitAfterMs) return Transition.NONE;
+        inside = false;
+        return Transition.EXIT;
+    }
+
+    public boolean isInside() { return inside; }
+    public String getBeaconId() { return beaconId; }
+    public long getLastSeenAt() { return lastSeenAt; }
+}
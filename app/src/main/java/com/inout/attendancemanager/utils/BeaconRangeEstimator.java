@@ -0,0 +1,92 @@
+package com.inout.attendancemanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * Streaming RSSI filter per beacon: a running median over the last {@link #WINDOW} readings, turned
+ * into a distance with the log-distance path-loss model and the frame's calibrated TX power.
+ * One multipath spike or dip moves the median by at most one rank. Indexed like {@link BeaconTable}
+ * and allocation-free per reading.
+ */
+public final class BeaconRangeEstimator {
+
+    public static final int WINDOW = 9;
+    // Typical iBeacon calibration when a frame carries 0
+    public static final int DEFAULT_TX_POWER = -59;
+    // Readings needed before the window is trusted fully
+    static final int FULL_CONFIDENCE_SAMPLES = 5;
+    // Indoor offices sit between free space (2.0) and cluttered floors (3+)
+    static final double PATH_LOSS_EXPONENT = 2.2;
+
+    private final int[] readings;  // ring of WINDOW readings per beacon
+    private final int[] heads;
+    private final int[] counts;
+    private final int[] txPowers;
+    private final int[] scratch = new int[WINDOW];
+
+    public BeaconRangeEstimator(int beacons) {
+        readings = new int[beacons * WINDOW];
+        heads = new int[beacons];
+        counts = new int[beacons];
+        txPowers = new int[beacons];
+    }
+
+    public void reset() {
+        Arrays.fill(heads, 0);
+        Arrays.fill(counts, 0);
+    }
+
+    public void add(int index, int rssi, int txPower) {
+        readings[index * WINDOW + heads[index]] = rssi;
+        heads[index] = (heads[index] + 1) % WINDOW;
+        if (counts[index] < WINDOW) counts[index]++;
+        txPowers[index] = txPower != 0 ? txPower : DEFAULT_TX_POWER;
+    }
+
+    public int samples(int index) {
+        return counts[index];
+    }
+
+    public int txPower(int index) {
+        return counts[index] > 0 ? txPowers[index] : DEFAULT_TX_POWER;
+    }
+
+    public int medianRssi(int index) {
+        int n = sortedWindow(index);
+        return n == 0 ? Integer.MIN_VALUE : scratch[n / 2];
+    }
+
+    // Metres; infinite before the first reading
+    public double distance(int index) {
+        if (counts[index] == 0) return Double.POSITIVE_INFINITY;
+        return distanceFor(medianRssi(index), txPowers[index]);
+    }
+
+    // 0..1 from how full the window is and how tightly the readings agree (median absolute deviation)
+    public double confidence(int index) {
+        int n = sortedWindow(index);
+        if (n == 0) return 0;
+        int median = scratch[n / 2];
+        for (int i = 0; i < n; i++) scratch[i] = Math.abs(scratch[i] - median);
+        Arrays.sort(scratch, 0, n);
+        int mad = scratch[n / 2];
+        double fill = Math.min(1.0, (double) n / FULL_CONFIDENCE_SAMPLES);
+        return fill / (1.0 + mad / 4.0);
+    }
+
+    public static double distanceFor(int rssi, int txPower) {
+        return Math.pow(10.0, (txPower - rssi) / (10.0 * PATH_LOSS_EXPONENT));
+    }
+
+    // Inverse of distanceFor: the RSSI a beacon reads at `meters`
+    public static int rssiAt(double meters, int txPower) {
+        return (int) Math.round(txPower - 10.0 * PATH_LOSS_EXPONENT * Math.log10(Math.max(0.01, meters)));
+    }
+
+    private int sortedWindow(int index) {
+        int n = counts[index];
+        System.arraycopy(readings, index * WINDOW, scratch, 0, n);
+        Arrays.sort(scratch, 0, n);
+        return n;
+    }
+}
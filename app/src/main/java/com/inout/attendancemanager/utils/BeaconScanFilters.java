@@ -0,0 +1,105 @@
+package com.inout.attendancemanager.utils;
+
+import android.bluetooth.le.ScanFilter;
+import android.os.ParcelUuid;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manufacturer- and service-data ScanFilters for the enabled beacons, so the Bluetooth controller
+ * drops every other advertisement before it reaches the app.
+ */
+public final class BeaconScanFilters {
+
+    // Controllers commonly offer 16 filter slots; past that, match on UUID / namespace only
+    static final int MAX_FILTERS = 16;
+
+    private static final ParcelUuid EDDYSTONE = ParcelUuid.fromString("0000FEAA-0000-1000-8000-00805F9B34FB");
+
+    private BeaconScanFilters() {}
+
+    // Empty when the configs cannot be expressed in MAX_FILTERS filters; scan unfiltered then
+    public static List<ScanFilter> build(List<BeaconConfig> configs) {
+        Map<String, ScanFilter> exact = new LinkedHashMap<>();
+        Map<String, ScanFilter> coarse = new LinkedHashMap<>();
+        BeaconKey key = new BeaconKey();
+        if (configs != null) {
+            for (BeaconConfig config : configs) {
+                if (!key.setFrom(config)) continue;
+                // An AltBeacon of unknown manufacturer can't be filtered, and a filter list hides
+                // everything it doesn't match
+                if (key.format == BeaconKey.FORMAT_ALTBEACON && config.getCompanyId() == null) {
+                    return new ArrayList<>();
+                }
+                String format = key.format + "/" + config.getCompanyId();
+                exact.put(format + "/" + key.hi + "/" + key.lo + "/" + key.tail, filter(key, config, true));
+                // An Eddystone namespace ends two bytes into lo
+                long coarseLo = key.format == BeaconKey.FORMAT_EDDYSTONE_UID ? key.lo >>> 48 : key.lo;
+                coarse.put(format + "/" + key.hi + "/" + coarseLo, filter(key, config, false));
+            }
+        }
+
+        if (!exact.isEmpty() && exact.size() <= MAX_FILTERS) return new ArrayList<>(exact.values());
+        if (!coarse.isEmpty() && coarse.size() <= MAX_FILTERS) return new ArrayList<>(coarse.values());
+        return new ArrayList<>();
+    }
+
+    // exact: the whole ID; otherwise UUID / ID1 / namespace only
+    private static ScanFilter filter(BeaconKey key, BeaconConfig config, boolean exact) {
+        switch (key.format) {
+            case BeaconKey.FORMAT_EDDYSTONE_UID: {
+                // [frame type][TX power][namespace][instance]; TX power varies per beacon
+                byte[] data = new byte[BeaconFrameDecoders.EddystoneUid.LENGTH];
+                writeId(data, 2, key);
+                byte[] mask = new byte[data.length];
+                mask[0] = (byte) 0xFF;
+                fill(mask, 2, exact ? 16 : 10);
+                return new ScanFilter.Builder().setServiceData(EDDYSTONE, data, mask).build();
+            }
+            case BeaconKey.FORMAT_ALTBEACON: {
+                byte[] data = new byte[BeaconFrameDecoders.AltBeacon.LENGTH - 2];
+                data[0] = (byte) 0xBE;
+                data[1] = (byte) 0xAC;
+                writeId(data, 2, key);
+                return manufacturerFilter(config.getCompanyId(), data, exact);
+            }
+            default:
+                return manufacturerFilter(BeaconFrameDecoders.COMPANY_ID_APPLE,
+                        prefix(key), exact);
+        }
+    }
+
+    private static ScanFilter manufacturerFilter(int companyId, byte[] data, boolean exact) {
+        byte[] mask = new byte[data.length];
+        fill(mask, 0, exact ? data.length : 18);
+        return new ScanFilter.Builder().setManufacturerData(companyId, data, mask).build();
+    }
+
+    // iBeacon manufacturer data up to (not including) the TX power byte
+    static byte[] prefix(BeaconKey key) {
+        byte[] data = new byte[BeaconFrameDecoders.IBeacon.LENGTH - 1];
+        data[0] = 0x02;
+        data[1] = 0x15;
+        writeId(data, 2, key);
+        return data;
+    }
+
+    // hi, lo and, for formats that have one, the 4-byte tail
+    private static void writeId(byte[] data, int offset, BeaconKey key) {
+        for (int i = 0; i < 8; i++) {
+            data[offset + i] = (byte) (key.hi >>> (56 - 8 * i));
+            data[offset + 8 + i] = (byte) (key.lo >>> (56 - 8 * i));
+        }
+        if (key.format == BeaconKey.FORMAT_EDDYSTONE_UID) return;
+        for (int i = 0; i < 4; i++) data[offset + 16 + i] = (byte) (key.tail >>> (24 - 8 * i));
+    }
+
+    private static void fill(byte[] mask, int from, int count) {
+        for (int i = from; i < from + count; i++) mask[i] = (byte) 0xFF;
+    }
+}
@@ -0,0 +1,63 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes raw advertisements to a compact binary log that {@link BeaconScanReplayer} reads back.
+ * Layout: the {@link #MAGIC} int, then per advertisement the time since the previous one
+ * (zigzag varint, ms), the RSSI (signed byte) and the raw scan record (varint length, 0 for
+ * none, then the bytes), so replays decode every frame format as a live scan would.
+ */
+public final class BeaconScanRecorder implements Closeable {
+
+    // "BSR2"; BSR1 logs held only Apple manufacturer data
+    static final int MAGIC = 0x42535232;
+
+    private final DataOutputStream out;
+    private long lastMs;
+    private int count;
+
+    // startMs: the scan start on the same clock as the advertisement times
+    public BeaconScanRecorder(OutputStream out, long startMs) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.lastMs = startMs;
+    }
+
+    public void write(long elapsedMs, int rssi, @Nullable byte[] scanRecord) throws IOException {
+        long delta = elapsedMs - lastMs;
+        lastMs = elapsedMs;
+        writeVarint((delta << 1) ^ (delta >> 63));
+        out.writeByte(rssi);
+        if (scanRecord == null) {
+            writeVarint(0);
+        } else {
+            writeVarint(scanRecord.length);
+            out.write(scanRecord);
+        }
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,108 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.BeaconScanResult;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@link BeaconScanRecorder} log and drives it through a {@link BeaconDecisionPipeline},
+ * either as fast as possible (tests, benchmarks) or at the recorded pace. Times are relative to
+ * the recorded scan start, so a replay ends at the same advertisement the live scan did.
+ */
+public final class BeaconScanReplayer {
+
+    public static final class Advert {
+        public final long elapsedMs;  // since scan start
+        public final int rssi;
+        @Nullable public final byte[] scanRecord;
+
+        public Advert(long elapsedMs, int rssi, @Nullable byte[] scanRecord) {
+            this.elapsedMs = elapsedMs;
+            this.rssi = rssi;
+            this.scanRecord = scanRecord;
+        }
+    }
+
+    public static final class Decision {
+        public final BeaconScanResult best;
+        // Scan time at which it was decided: the confirming advertisement, or the timeout
+        public final long decisionMs;
+        public final boolean early;
+        // Advertisements fed before the decision
+        public final int adverts;
+
+        Decision(BeaconScanResult best, long decisionMs, boolean early, int adverts) {
+            this.best = best;
+            this.decisionMs = decisionMs;
+            this.early = early;
+            this.adverts = adverts;
+        }
+    }
+
+    private BeaconScanReplayer() {}
+
+    public static List<Advert> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != BeaconScanRecorder.MAGIC) throw new IOException("Not a beacon scan recording");
+
+        List<Advert> adverts = new ArrayList<>();
+        long elapsedMs = 0;
+        while (true) {
+            int first = data.read();
+            if (first < 0) break;
+            long zigzag = readVarint(data, first);
+            elapsedMs += (zigzag >>> 1) ^ -(zigzag & 1);
+            int rssi = data.readByte();
+            int length = (int) readVarint(data, data.readUnsignedByte());
+            byte[] scanRecord = null;
+            if (length > 0) {
+                scanRecord = new byte[length];
+                data.readFully(scanRecord);
+            }
+            adverts.add(new Advert(elapsedMs, rssi, scanRecord));
+        }
+        return adverts;
+    }
+
+    /**
+     * Feeds `adverts` to a freshly reset pipeline until it confirms a beacon or `timeoutMs` of scan
+     * time has passed, like BeaconScanner does live. realTime sleeps between adverts as recorded.
+     */
+    public static Decision replay(List<Advert> adverts, BeaconDecisionPipeline pipeline,
+                                  long timeoutMs, boolean realTime) throws InterruptedException {
+        pipeline.reset();
+        long lastMs = 0;
+        int fed = 0;
+        for (Advert advert : adverts) {
+            if (advert.elapsedMs >= timeoutMs) break;
+            if (realTime && advert.elapsedMs > lastMs) Thread.sleep(advert.elapsedMs - lastMs);
+            lastMs = Math.max(lastMs, advert.elapsedMs);
+            fed++;
+            if (pipeline.onAdvertisement(advert.elapsedMs, advert.rssi, advert.scanRecord)) {
+                return new Decision(pipeline.best(), advert.elapsedMs, true, fed);
+            }
+        }
+        return new Decision(pipeline.best(), timeoutMs, false, fed);
+    }
+
+    private static long readVarint(DataInputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) throw new EOFException("Truncated varint");
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
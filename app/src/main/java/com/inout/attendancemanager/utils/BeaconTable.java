@@ -0,0 +1,79 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open-addressing lookup from a decoded {@link BeaconKey} to the configured beacon, for every
+ * frame format. Built once from the enabled BeaconConfigs; {@link #lookup(BeaconKey)} compares the
+ * key as plain fields and allocates nothing, so it can run on every advertisement.
+ */
+public final class BeaconTable {
+
+    private static final int EMPTY = -1;
+
+    private final BeaconConfig[] configs;
+    private final BeaconKey[] keys;
+    private final int[] slots;  // config index per slot, EMPTY when free
+    private final int mask;
+
+    public BeaconTable(List<BeaconConfig> beaconConfigs) {
+        List<BeaconConfig> enabled = new ArrayList<>();
+        List<BeaconKey> enabledKeys = new ArrayList<>();
+        if (beaconConfigs != null) {
+            for (BeaconConfig config : beaconConfigs) {
+                BeaconKey key = new BeaconKey();
+                if (!key.setFrom(config)) continue;
+                enabled.add(config);
+                enabledKeys.add(key);
+            }
+        }
+
+        int n = enabled.size();
+        configs = enabled.toArray(new BeaconConfig[0]);
+        keys = enabledKeys.toArray(new BeaconKey[0]);
+
+        // Power of two at least twice the entries keeps probe chains short
+        int capacity = 2;
+        while (capacity < n * 2) capacity <<= 1;
+        mask = capacity - 1;
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+
+        for (int i = 0; i < n; i++) {
+            // First config wins on duplicates, as the linear scan did
+            if (lookup(keys[i]) != EMPTY) continue;
+            int slot = hash(keys[i]) & mask;
+            while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+            slots[slot] = i;
+        }
+    }
+
+    public int size() {
+        return configs.length;
+    }
+
+    public BeaconConfig config(int index) {
+        return configs[index];
+    }
+
+    // Index of the configured beacon for a decoded frame, or -1 if it is not one of ours
+    public int lookup(BeaconKey key) {
+        int slot = hash(key) & mask;
+        while (true) {
+            int i = slots[slot];
+            if (i == EMPTY) return EMPTY;
+            if (keys[i].sameBeacon(key)) return i;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(BeaconKey key) {
+        long h = key.hi * 0x9E3779B97F4A7C15L ^ key.lo;
+        h = (h ^ key.tail ^ (long) key.format << 32) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
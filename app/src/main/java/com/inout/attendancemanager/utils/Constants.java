@@ -32,6 +32,28 @@ public class Constants {
     public static final String PREF_PERMISSIONS_GRANTED = "permissions_granted";
     public static final String PREF_PERMISSIONS_GRANTED_TIME = "permissions_granted_time";
 
+    // Attendance storage layout
+    public static final String PREF_ATTENDANCE_LAYOUT = "attendance_layout";
+    public static final String PREF_PRECONDITION_WRITES = "precondition_writes";
+
+    // Hands-free beacon punching
+    public static final String PREF_HANDS_FREE_BEACON = "hands_free_beacon";
+    public static final String PREF_BACKGROUND_BEACONS = "background_beacon_configs";
+    public static final String PREF_BEACON_PRESENCE = "beacon_presence";
+
+    // Replayed punches the server rejected, not yet shown to the user
+    public static final String PREF_REJECTED_PUNCHES = "rejected_punches";
+
+    // Geofence-driven automatic punching
+    public static final String PREF_AUTO_GEOFENCE = "auto_geofence";
+    public static final String PREF_GEOFENCE_OFFICES = "geofence_offices";
+    public static final String PREF_GEOFENCE_INSIDE = "geofence_inside_office";
+    public static final String PREF_GEOFENCE_INSIDE_DATE = "geofence_inside_date";
+
+    // Beacon configs per office, suffixed with the office ID
+    public static final String PREF_BEACON_CONFIGS = "beacon_configs_";
+    public static final String PREF_BEACON_CONFIGS_VERSION = "beacon_configs_version_";
+
     // ==================== DRAFT KEYS ====================
 
     // Draft employee registration data
@@ -60,6 +82,10 @@ public class Constants {
     public static final String COLLECTION_DEPARTMENTS = "departments";
     public static final String COLLECTION_OFFICE_LOCATIONS = "office_locations";
 
+    // Attendance layouts: attendance/{uid}/days/{yyyy-MM-dd} or attendance/{uid}/months/{yyyy-MM}
+    public static final String LAYOUT_DAY_DOCS = "days";
+    public static final String LAYOUT_MONTH_BUNDLES = "months";
+
     // ==================== USER TYPES ====================
 
     public static final String USER_TYPE_ADMIN = "admin";
@@ -1,44 +1,184 @@
 package com.inout.attendancemanager.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.format.DateTimeFormatter;
+
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 
+/**
+ * Date ids and display formatting. Thread-safe: formatters are immutable and cached per locale,
+ * today's ids are computed once per local day and time zone, and numeric fields are written into a
+ * per-thread char buffer instead of going through a formatter.
+ */
 public class DateUtils {
 
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[24];
+        }
+    };
+
+    private static volatile Today today;
+    private static volatile Formatters formatters;
+
+    // Ids and zone of the current local day, valid for [start, end)
+    private static final class Today {
+        final long start;
+        final long end;
+        final String dateId;
+        final String monthId;
+        final TimeZone zone;
+
+        Today(long start, long end, String dateId, String monthId, TimeZone zone) {
+            this.start = start;
+            this.end = end;
+            this.dateId = dateId;
+            this.monthId = monthId;
+            this.zone = zone;
+        }
+    }
+
+    private static final class Formatters {
+        final Locale locale;
+        final DateTimeFormatter date;
+        final DateTimeFormatter dateTime;
+
+        Formatters(Locale locale) {
+            this.locale = locale;
+            this.date = DateTimeFormatter.ofPattern("dd MMM yyyy", locale);
+            this.dateTime = DateTimeFormatter.ofPattern("dd MMM yyyy, HH:mm", locale);
+        }
+    }
+
     public static String getTodayDateId() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        return sdf.format(new Date());
+        return today().dateId;
     }
 
     public static String getCurrentMonthId() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
-        return sdf.format(new Date());
+        return today().monthId;
+    }
+
+    // Time left until the next local midnight, when getTodayDateId() changes
+    public static long millisUntilNextMidnight() {
+        return today().end - System.currentTimeMillis();
+    }
+
+    // Drops the memoized day; call when the clock or time zone changes
+    public static void invalidate() {
+        today = null;
     }
 
     public static String formatTime(Date date) {
         if (date == null) return "--:--";
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        return sdf.format(date);
+        long millis = date.getTime();
+        long local = millis + today().zone.getOffset(millis);
+        int minuteOfDay = (int) (Math.floorMod(local, DAY_MS) / 60000L);
+
+        char[] buf = BUFFER.get();
+        put2(buf, 0, minuteOfDay / 60);
+        buf[2] = ':';
+        put2(buf, 3, minuteOfDay % 60);
+        return new String(buf, 0, 5);
     }
 
     public static String formatDuration(long minutes) {
         if (minutes <= 0) return "00:00";
         long hours = minutes / 60;
-        long mins = minutes % 60;
-        return String.format(Locale.getDefault(), "%02d:%02d", hours, mins);
+        int mins = (int) (minutes % 60);
+
+        char[] buf = BUFFER.get();
+        int pos;
+        if (hours < 100) {
+            put2(buf, 0, (int) hours);
+            pos = 2;
+        } else {
+            pos = putLong(buf, hours);
+        }
+        buf[pos++] = ':';
+        put2(buf, pos, mins);
+        return new String(buf, 0, pos + 2);
     }
 
     public static String formatDate(Date date) {
         if (date == null) return "";
-        SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-        return sdf.format(date);
+        return formatters().date.format(toLocal(date.getTime()));
     }
 
     public static String formatDateTime(Date date) {
         if (date == null) return "";
-        SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy, HH:mm", Locale.getDefault());
-        return sdf.format(date);
+        return formatters().dateTime.format(toLocal(date.getTime()));
+    }
+
+    private static Today today() {
+        long now = System.currentTimeMillis();
+        // Checked on every call, not only when invalidate() is told: getDefault() hands out a copy,
+        // so the zone is compared by id
+        TimeZone zone = TimeZone.getDefault();
+        Today t = today;
+        if (t != null && now >= t.start && now < t.end && t.zone.getID().equals(zone.getID())) return t;
+
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(now + zone.getOffset(now), DAY_MS));
+        long startLocal = date.toEpochDay() * DAY_MS;
+        long endLocal = startLocal + DAY_MS;
+        long start = startLocal - zone.getOffset(startLocal - zone.getOffset(now));
+        long end = endLocal - zone.getOffset(endLocal - zone.getOffset(now));
+
+        // Ids are storage keys, so they always use ASCII digits
+        char[] buf = BUFFER.get();
+        put4(buf, 0, date.getYear());
+        buf[4] = '-';
+        put2(buf, 5, date.getMonthValue());
+        String monthId = new String(buf, 0, 7);
+        buf[7] = '-';
+        put2(buf, 8, date.getDayOfMonth());
+        String dateId = new String(buf, 0, 10);
+
+        t = new Today(start, end, dateId, monthId, zone);
+        today = t;
+        return t;
+    }
+
+    private static Formatters formatters() {
+        Locale locale = Locale.getDefault();
+        Formatters f = formatters;
+        if (f == null || !f.locale.equals(locale)) {
+            f = new Formatters(locale);
+            formatters = f;
+        }
+        return f;
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        int offsetSeconds = today().zone.getOffset(millis) / 1000;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), 0,
+                ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    private static void put2(char[] buf, int at, int value) {
+        buf[at] = (char) ('0' + value / 10);
+        buf[at + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put4(char[] buf, int at, int value) {
+        put2(buf, at, value / 100);
+        put2(buf, at + 2, value % 100);
+    }
+
+    // Writes value at the start of buf and returns its length
+    private static int putLong(char[] buf, long value) {
+        int len = 0;
+        for (long v = value; v > 0; v /= 10) len++;
+        for (int i = len - 1; i >= 0; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return len;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.inout.attendancemanager.utils;
+
+/**
+ * Whether a fix puts the user inside an office circle, given how good the fix is. The true position
+ * is taken as normally spread around the fix, widened by the fix's age, and the probability of
+ * being inside comes from the radial distance to the circle's edge. Neither side reaching
+ * {@link #DECISIVE} is {@link Verdict#UNCERTAIN}, which calls for a better fix rather than a refusal.
+ * Beacons are not weighed in: a valid sighting makes the punch ready on its own in
+ * {@link PunchReadiness}, so it could never change what the location verdict decides.
+ */
+public final class GeofenceDecision {
+
+    public enum Verdict { INSIDE, OUTSIDE, UNCERTAIN }
+
+    static final double DECISIVE = 0.9;
+    // Location accuracy is the 68% radius, about 1.51 sigma for a 2D normal
+    static final double SIGMA_PER_ACCURACY = 1 / 1.51;
+    // Fixes without an accuracy are treated as coarse network fixes
+    static final float UNKNOWN_ACCURACY_M = 100f;
+    // How far someone plausibly moved since the fix was taken
+    static final double DRIFT_MPS = 0.5;
+
+    public final Verdict verdict;
+    public final double probabilityInside;
+    // Probability of the verdict given; for UNCERTAIN, of the likelier side
+    public final double confidence;
+
+    private GeofenceDecision(Verdict verdict, double probabilityInside) {
+        this.verdict = verdict;
+        this.probabilityInside = probabilityInside;
+        this.confidence = Math.max(probabilityInside, 1 - probabilityInside);
+    }
+
+    public static GeofenceDecision decide(double distanceM, double radiusM, boolean hasAccuracy, float accuracyM,
+                                          long ageMs) {
+        double sigma = sigmaMeters(hasAccuracy, accuracyM, ageMs);
+        double p = normalCdf((radiusM - distanceM) / sigma);
+        Verdict verdict = p >= DECISIVE ? Verdict.INSIDE : p <= 1 - DECISIVE ? Verdict.OUTSIDE : Verdict.UNCERTAIN;
+        return new GeofenceDecision(verdict, p);
+    }
+
+    static double sigmaMeters(boolean hasAccuracy, float accuracyM, long ageMs) {
+        double fix = (hasAccuracy && accuracyM > 0 ? accuracyM : UNKNOWN_ACCURACY_M) * SIGMA_PER_ACCURACY;
+        double drift = DRIFT_MPS * Math.max(0, ageMs) / 1000.0;
+        // Never a zero spread, which would turn the edge into a cliff
+        return Math.max(1.0, Math.sqrt(fix * fix + drift * drift));
+    }
+
+    // Abramowitz & Stegun 7.1.26, good to 1.5e-7
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+}
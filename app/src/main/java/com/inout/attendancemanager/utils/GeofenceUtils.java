@@ -1,11 +1,114 @@
 package com.inout.attendancemanager.utils;
 
+/**
+ * Distances on the WGS84 ellipsoid in plain Java, so they run and test off the device.
+ * {@link #vincenty} follows Location.distanceBetween step for step and agrees with it to float
+ * precision; {@link #within} checks one fix against many offices, rejecting the far ones with a
+ * flat-earth estimate before refining the rest.
+ */
 public final class GeofenceUtils {
     private GeofenceUtils(){}
 
+    // WGS84, as Location.distanceBetween uses
+    static final double SEMI_MAJOR_M = 6378137.0;
+    static final double SEMI_MINOR_M = 6356752.3142;
+    static final double FLATTENING = (SEMI_MAJOR_M - SEMI_MINOR_M) / SEMI_MAJOR_M;
+    public static final double MEAN_RADIUS_M = 6371008.8;
+    private static final double METERS_PER_DEGREE = MEAN_RADIUS_M * Math.PI / 180;
+    private static final int MAX_ITERATIONS = 20;
+
+    // The flat-earth estimate stays within a few percent of the ellipsoid at office-scale distances
+    // (tens of km) away from the poles; beyond PREFILTER_MAX_LAT everything is refined
+    static final double PREFILTER_MARGIN = 1.05;
+    static final double PREFILTER_MAX_LAT = 80;
+
     public static float distanceMeters(double lat1, double lon1, double lat2, double lon2) {
-        float[] results = new float[1];
-        android.location.Location.distanceBetween(lat1, lon1, lat2, lon2, results);
-        return results[0];
+        return (float) vincenty(lat1, lon1, lat2, lon2);
+    }
+
+    // Ellipsoidal distance in metres (Vincenty's inverse formula)
+    public static double vincenty(double lat1, double lon1, double lat2, double lon2) {
+        double f = FLATTENING;
+        double l = Math.toRadians(lon2 - lon1);
+        double u1 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat1)));
+        double u2 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat2)));
+        double sinU1 = Math.sin(u1), cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2), cosU2 = Math.cos(u2);
+
+        double lambda = l;
+        double sinSigma = 0, cosSigma = 0, sigma = 0, cosSqAlpha = 0, cos2SigmaM = 0;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double sinLambda = Math.sin(lambda), cosLambda = Math.cos(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = sinSigma == 0 ? 0 : cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            // Both points on the equator
+            cos2SigmaM = cosSqAlpha == 0 ? 0 : cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha;
+            double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+            double previous = lambda;
+            lambda = l + (1 - c) * f * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            // Relative, like Location; near-antipodal pairs may not converge and keep the last step
+            if (Math.abs((lambda - previous) / lambda) < 1e-12) break;
+        }
+
+        double uSq = cosSqAlpha * (SEMI_MAJOR_M * SEMI_MAJOR_M - SEMI_MINOR_M * SEMI_MINOR_M)
+                / (SEMI_MINOR_M * SEMI_MINOR_M);
+        double a = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double b = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double cos2SigmaMSq = cos2SigmaM * cos2SigmaM;
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4 * (cosSigma * (-1 + 2 * cos2SigmaMSq)
+                - b / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaMSq)));
+        return SEMI_MINOR_M * a * (sigma - deltaSigma);
+    }
+
+    // Great-circle distance on the mean sphere; within about 0.5% of the ellipsoid
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double sinDLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double h = sinDLat * sinDLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinDLon * sinDLon;
+        return 2 * MEAN_RADIUS_M * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+
+    /**
+     * Squared flat-earth distances (m²) from one fix to n points, scaled at the fix's latitude.
+     * No branches or calls in the loop, so the JIT is free to vectorise it.
+     */
+    public static void approximateSquared(double lat, double lon, double[] lats, double[] lons, int n,
+                                          double[] out) {
+        double ky = METERS_PER_DEGREE;
+        double kx = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+        for (int i = 0; i < n; i++) {
+            double dy = (lats[i] - lat) * ky;
+            double dl = lons[i] - lon;
+            // Shortest way round, across the antimeridian if need be
+            double dx = (dl - 360 * Math.rint(dl / 360)) * kx;
+            out[i] = dx * dx + dy * dy;
+        }
+    }
+
+    /**
+     * Indices of the points whose radius, widened by slackMeters, contains the fix, written to hits
+     * in index order; returns how many. scratch and hits need room for n. Allocation-free.
+     */
+    public static int within(double lat, double lon, double[] lats, double[] lons, float[] radii, int n,
+                             double slackMeters, double[] scratch, int[] hits) {
+        boolean prefilter = Math.abs(lat) <= PREFILTER_MAX_LAT;
+        if (prefilter) approximateSquared(lat, lon, lats, lons, n, scratch);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            double limit = radii[i] + slackMeters;
+            if (prefilter) {
+                double loose = limit * PREFILTER_MARGIN + 1;
+                if (scratch[i] > loose * loose) continue;
+            }
+            if (vincenty(lat, lon, lats[i], lons[i]) <= limit) hits[count++] = i;
+        }
+        return count;
     }
 }
@@ -0,0 +1,52 @@
+package com.inout.attendancemanager.utils;
+
+/**
+ * How good and how quick a location fix has to be: a cached or last-known fix is served when it is
+ * no older than maxAgeMs and no worse than maxAccuracyM; otherwise a fresh fix is requested, first
+ * at balanced power and then at high accuracy, all within deadlineMs.
+ */
+public final class LocationBudget {
+
+    // Punching: a minute-old fix is still the same desk; 50 m is well inside any office radius
+    public static final LocationBudget PUNCH = new LocationBudget(60_000L, 50f, 10_000L);
+    // A punch the first fix left uncertain: a fresh GPS-grade fix, worth waiting longer for
+    public static final LocationBudget PRECISE = new LocationBudget(10_000L, 20f, 20_000L);
+
+    // Share of the deadline given to the balanced (Wi-Fi/cell) request before escalating to GPS
+    static final double BALANCED_SHARE = 1.0 / 3;
+
+    public final long maxAgeMs;
+    public final float maxAccuracyM;
+    public final long deadlineMs;
+
+    public LocationBudget(long maxAgeMs, float maxAccuracyM, long deadlineMs) {
+        this.maxAgeMs = maxAgeMs;
+        this.maxAccuracyM = maxAccuracyM;
+        this.deadlineMs = deadlineMs;
+    }
+
+    // The same fix quality within what is left of a larger deadline
+    public LocationBudget withDeadline(long deadlineMs) {
+        return new LocationBudget(maxAgeMs, maxAccuracyM, deadlineMs);
+    }
+
+    // A fix with no reported accuracy never fits
+    public boolean accepts(long ageMs, boolean hasAccuracy, float accuracyM) {
+        return ageMs >= 0 && ageMs <= maxAgeMs && hasAccuracy && accuracyM <= maxAccuracyM;
+    }
+
+    // Duration of escalation stage 0 (balanced) or 1 (high accuracy); 0 when nothing is left
+    public long stageDurationMs(int stage, long elapsedMs) {
+        long remaining = Math.max(0L, deadlineMs - elapsedMs);
+        if (stage == 0) return Math.min(remaining, (long) (deadlineMs * BALANCED_SHARE));
+        return stage == 1 ? remaining : 0L;
+    }
+
+    // Whether candidate (age, accuracy) beats the current best: fitting beats not fitting, then accuracy
+    public boolean better(long ageMs, float accuracyM, long bestAgeMs, float bestAccuracyM) {
+        boolean fits = accepts(ageMs, true, accuracyM);
+        boolean bestFits = accepts(bestAgeMs, true, bestAccuracyM);
+        if (fits != bestFits) return fits;
+        return accuracyM < bestAccuracyM || (accuracyM == bestAccuracyM && ageMs < bestAgeMs);
+    }
+}
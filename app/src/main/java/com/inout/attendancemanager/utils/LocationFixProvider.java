@@ -0,0 +1,180 @@
+package com.inout.attendancemanager.utils;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.location.CurrentLocationRequest;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+
+/**
+ * One FusedLocationProviderClient and one latest fix for the whole app. {@link #acquire} serves the
+ * remembered or last-known fix when it fits the {@link LocationBudget}, and otherwise asks for a
+ * current fix, escalating from balanced power to high accuracy within the budget's deadline.
+ * Concurrent callers share the request in flight. The task resolves to the best fix found, which
+ * may miss the budget (or be null); callers judge it by its accuracy.
+ */
+public final class LocationFixProvider {
+
+    private static final String TAG = "LocationFixProvider";
+
+    private static final int[] PRIORITIES = {
+            Priority.PRIORITY_BALANCED_POWER_ACCURACY, Priority.PRIORITY_HIGH_ACCURACY };
+    private static final LocationFixStats.Source[] SOURCES = {
+            LocationFixStats.Source.BALANCED, LocationFixStats.Source.HIGH_ACCURACY };
+
+    private static LocationFixProvider instance;
+
+    private final FusedLocationProviderClient client;
+    @Nullable private Location latest;
+    @Nullable private Attempt inFlight;
+
+    private LocationFixProvider(Context context) {
+        client = LocationServices.getFusedLocationProviderClient(context.getApplicationContext());
+    }
+
+    public static synchronized LocationFixProvider get(Context context) {
+        if (instance == null) instance = new LocationFixProvider(context);
+        return instance;
+    }
+
+    // The latest fix any caller received, however old
+    @MainThread
+    @Nullable
+    public Location peek() {
+        return latest;
+    }
+
+    // Primes the cache from the platform's last known fix; no radio is turned on
+    @MainThread
+    public void warmUp() {
+        try {
+            client.getLastLocation().addOnSuccessListener(this::remember);
+        } catch (SecurityException e) {
+            Log.d(TAG, "No location permission yet");
+        }
+    }
+
+    @MainThread
+    public Task<Location> acquire(LocationBudget budget) {
+        if (fits(latest, budget)) {
+            LocationFixStats.record(0, LocationFixStats.Source.CACHE, true);
+            return Tasks.forResult(latest);
+        }
+        if (inFlight != null) return inFlight.result.getTask();
+
+        Attempt attempt = new Attempt(budget);
+        inFlight = attempt;
+        try {
+            client.getLastLocation().addOnCompleteListener(task -> {
+                Location last = task.isSuccessful() ? task.getResult() : null;
+                attempt.offer(last, LocationFixStats.Source.LAST_KNOWN);
+                if (fits(last, budget)) attempt.finish();
+                else attempt.request(0);
+            });
+        } catch (SecurityException e) {
+            inFlight = null;
+            return Tasks.forException(e);
+        }
+        return attempt.result.getTask();
+    }
+
+    // Stops the request in flight; everyone waiting on it gets the best fix found so far
+    @MainThread
+    public void cancel() {
+        if (inFlight != null) inFlight.cancel();
+    }
+
+    private final class Attempt {
+        final LocationBudget budget;
+        final TaskCompletionSource<Location> result = new TaskCompletionSource<>();
+        final long startedAt = SystemClock.elapsedRealtime();
+        final CancellationTokenSource cancellation = new CancellationTokenSource();
+        @Nullable Location best;
+        LocationFixStats.Source bestSource = LocationFixStats.Source.NONE;
+        boolean done;
+
+        Attempt(LocationBudget budget) {
+            this.budget = budget;
+        }
+
+        void offer(@Nullable Location candidate, LocationFixStats.Source source) {
+            if (candidate == null) return;
+            remember(candidate);
+            if (best == null || budget.better(ageMs(candidate), accuracy(candidate), ageMs(best), accuracy(best))) {
+                best = candidate;
+                bestSource = source;
+            }
+        }
+
+        void request(int stage) {
+            if (done) return;
+            long duration = budget.stageDurationMs(stage, SystemClock.elapsedRealtime() - startedAt);
+            if (stage >= PRIORITIES.length || duration <= 0) {
+                finish();
+                return;
+            }
+            CurrentLocationRequest request = new CurrentLocationRequest.Builder()
+                    .setPriority(PRIORITIES[stage])
+                    .setDurationMillis(duration)
+                    .setMaxUpdateAgeMillis(budget.maxAgeMs)
+                    .build();
+            try {
+                client.getCurrentLocation(request, cancellation.getToken())
+                        .addOnCompleteListener(task -> {
+                            Location fix = task.isSuccessful() ? task.getResult() : null;
+                            offer(fix, SOURCES[stage]);
+                            if (fits(fix, budget)) finish();
+                            else request(stage + 1);
+                        });
+            } catch (SecurityException e) {
+                finish();
+            }
+        }
+
+        void cancel() {
+            cancellation.cancel();
+            finish();
+        }
+
+        void finish() {
+            if (done) return;
+            done = true;
+            long fixMs = SystemClock.elapsedRealtime() - startedAt;
+            LocationFixStats.record(fixMs, bestSource, fits(best, budget));
+            Log.d(TAG, "Fix in " + fixMs + "ms from " + bestSource
+                    + (best != null ? " (±" + Math.round(best.getAccuracy()) + " m)" : "")
+                    + "; " + LocationFixStats.summary());
+            if (inFlight == this) inFlight = null;
+            result.setResult(best);
+        }
+    }
+
+    private void remember(@Nullable Location fix) {
+        if (fix == null) return;
+        if (latest == null || fix.getElapsedRealtimeNanos() >= latest.getElapsedRealtimeNanos()) latest = fix;
+    }
+
+    private static boolean fits(@Nullable Location fix, LocationBudget budget) {
+        return fix != null && budget.accepts(ageMs(fix), fix.hasAccuracy(), fix.getAccuracy());
+    }
+
+    private static long ageMs(Location fix) {
+        return (SystemClock.elapsedRealtimeNanos() - fix.getElapsedRealtimeNanos()) / 1_000_000L;
+    }
+
+    // Unknown accuracy ranks last
+    private static float accuracy(Location fix) {
+        return fix.hasAccuracy() ? fix.getAccuracy() : Float.MAX_VALUE;
+    }
+}
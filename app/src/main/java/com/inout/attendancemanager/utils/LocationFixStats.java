@@ -0,0 +1,66 @@
+package com.inout.attendancemanager.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Process-wide time-to-fix distribution in 250 ms buckets, with a count per fix source so the
+ * share served from cache versus a fresh GPS request stays visible.
+ */
+public final class LocationFixStats {
+
+    public enum Source { CACHE, LAST_KNOWN, BALANCED, HIGH_ACCURACY, NONE }
+
+    private static final long BUCKET_MS = 250L;
+    private static final int BUCKETS = 64;  // last bucket collects everything at or past ~16 s
+
+    private static final int[] histogram = new int[BUCKETS];
+    private static final int[] bySource = new int[Source.values().length];
+    private static int outsideBudget;
+
+    private LocationFixStats() {}
+
+    public static synchronized void record(long fixMs, Source source, boolean withinBudget) {
+        int bucket = (int) Math.min(BUCKETS - 1, Math.max(0L, fixMs) / BUCKET_MS);
+        histogram[bucket]++;
+        bySource[source.ordinal()]++;
+        if (!withinBudget) outsideBudget++;
+    }
+
+    public static synchronized int count() {
+        int total = 0;
+        for (int n : bySource) total += n;
+        return total;
+    }
+
+    public static synchronized int count(Source source) {
+        return bySource[source.ordinal()];
+    }
+
+    // Upper edge of the bucket holding quantile q (0..1); -1 before any fix was recorded
+    public static synchronized long percentileMs(double q) {
+        int total = count();
+        if (total == 0) return -1;
+        int target = (int) Math.ceil(q * total);
+        int seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= Math.max(1, target)) return (i + 1) * BUCKET_MS;
+        }
+        return BUCKETS * BUCKET_MS;
+    }
+
+    public static synchronized String summary() {
+        return String.format(Locale.US, "%d fixes (%d cached, %d last known, %d balanced, %d GPS, %d none, "
+                        + "%d outside budget), p50 %d ms, p90 %d ms",
+                count(), count(Source.CACHE), count(Source.LAST_KNOWN), count(Source.BALANCED),
+                count(Source.HIGH_ACCURACY), count(Source.NONE), outsideBudget,
+                percentileMs(0.5), percentileMs(0.9));
+    }
+
+    public static synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        Arrays.fill(bySource, 0);
+        outsideBudget = 0;
+    }
+}
@@ -0,0 +1,297 @@
+package com.inout.attendancemanager.utils;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.app.ActivityCompat;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingClient;
+import com.google.android.gms.location.GeofencingRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.inout.attendancemanager.models.OfficeLocation;
+import com.inout.attendancemanager.receivers.BootReceiver;
+import com.inout.attendancemanager.receivers.GeofenceReceiver;
+import com.inout.attendancemanager.repositories.AttendanceRepository;
+import com.inout.attendancemanager.repositories.OfficeRepository;
+import com.inout.attendancemanager.workers.GeofenceRefreshWorker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Automatic punching from platform geofences around the employee's office and every synced office
+ * in {@link OfficeRepository}, nearest first up to the platform's {@value #MAX_GEOFENCES} per app.
+ * The OS watches the fences with its own low-power location sources and wakes
+ * {@link GeofenceReceiver} on a transition, so the app never polls GPS. Dwelling inside punches in
+ * (a drive-by only enters); leaving punches out. The platform drops fences on reboot, location
+ * toggles and expiry; {@link BootReceiver}, {@link #restoreIfEnabled} and
+ * {@link GeofenceRefreshWorker} register them again, which also reports an exit from every fence the
+ * device is outside of, so an exit missed while the fences were down still punches out.
+ */
+public final class OfficeGeofencer {
+
+    private static final String TAG = "OfficeGeofencer";
+
+    // Inside this long before the dwell transition fires
+    static final int LOITERING_DELAY_MS = 3 * 60_000;
+    // Batching the OS may apply to transitions; minutes late is fine for attendance
+    static final int RESPONSIVENESS_MS = 2 * 60_000;
+    private static final long PUNCH_TIMEOUT_S = 8;
+    // Together within the few seconds a boot broadcast may run for
+    private static final long OFFICE_SYNC_TIMEOUT_S = 4;
+    private static final long REGISTER_TIMEOUT_S = 4;
+    // Play services allows 100 active geofences per app
+    static final int MAX_GEOFENCES = 100;
+
+    public enum Action { NONE, PUNCH_IN, PUNCH_OUT }
+
+    // Transitions are handled off the receiver's main thread, one at a time
+    public static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final Gson gson = new Gson();
+
+    private OfficeGeofencer() {}
+
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(Constants.PREF_AUTO_GEOFENCE, false);
+    }
+
+    // The given offices (the employee's own) are kept and always fenced, ahead of the synced ones.
+    // Fails when location (background location from Android 10) isn't granted or the OS refuses
+    public static Task<Void> enable(Context context, List<OfficeLocation> offices) {
+        prefs(context).edit()
+                .putBoolean(Constants.PREF_AUTO_GEOFENCE, true)
+                .putString(Constants.PREF_GEOFENCE_OFFICES, gson.toJson(offices))
+                .apply();
+        GeofenceRefreshWorker.schedulePeriodic(context);
+        return register(context, fenced(offices, OfficeRepository.get(context).index().offices()));
+    }
+
+    public static void disable(Context context) {
+        prefs(context).edit()
+                .putBoolean(Constants.PREF_AUTO_GEOFENCE, false)
+                .remove(Constants.PREF_GEOFENCE_INSIDE)
+                .remove(Constants.PREF_GEOFENCE_INSIDE_DATE)
+                .apply();
+        GeofenceRefreshWorker.cancel(context);
+        LocationServices.getGeofencingClient(context).removeGeofences(pendingIntent(context));
+    }
+
+    public static void restoreIfEnabled(Context context) {
+        if (!isEnabled(context)) return;
+        List<OfficeLocation> offices = fenced(loadOffices(context), OfficeRepository.get(context).index().offices());
+        forgetStaleInside(context, offices);
+        register(context, offices)
+                .addOnFailureListener(e -> Log.w(TAG, "Could not re-register geofences", e));
+    }
+
+    // After boot or from the refresh worker: the office index may not be loaded yet, so sync it first
+    @WorkerThread
+    public static void restoreBlocking(Context context) {
+        if (!isEnabled(context)) return;
+        try {
+            Tasks.await(OfficeRepository.get(context).syncAsync(), OFFICE_SYNC_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // Stored offices are loaded before the pull, so the index is still usable
+            Log.w(TAG, "Office sync failed; fencing the stored offices", e);
+        }
+        List<OfficeLocation> offices = fenced(loadOffices(context), OfficeRepository.get(context).index().offices());
+        forgetStaleInside(context, offices);
+        try {
+            Tasks.await(register(context, offices), REGISTER_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not re-register geofences", e);
+        }
+    }
+
+    // Own offices first, then the rest nearest to the first own office, without duplicates
+    static List<OfficeLocation> fenced(List<OfficeLocation> own, List<OfficeLocation> indexed) {
+        Map<String, OfficeLocation> byId = new LinkedHashMap<>();
+        for (OfficeLocation office : own) byId.put(office.getOfficeId(), office);
+        List<OfficeLocation> others = new ArrayList<>();
+        for (OfficeLocation office : indexed) {
+            if (!byId.containsKey(office.getOfficeId())) others.add(office);
+        }
+        if (!own.isEmpty() && byId.size() + others.size() > MAX_GEOFENCES) {
+            OfficeLocation home = own.get(0);
+            Collections.sort(others, Comparator.comparingDouble(
+                    o -> GeofenceUtils.vincenty(home.getLat(), home.getLng(), o.getLat(), o.getLng())));
+        }
+        for (OfficeLocation office : others) {
+            if (byId.size() >= MAX_GEOFENCES) break;
+            byId.put(office.getOfficeId(), office);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static Task<Void> register(Context context, List<OfficeLocation> offices) {
+        if (!hasPermission(context)) {
+            return Tasks.forException(new SecurityException("Background location not granted"));
+        }
+        List<Geofence> fences = new ArrayList<>();
+        for (OfficeLocation office : offices) {
+            if (office.getLat() == 0.0 && office.getLng() == 0.0) continue;
+            float radius = OfficeIndex.radiusOf(office);
+            fences.add(new Geofence.Builder()
+                    .setRequestId(requestId(office))
+                    .setCircularRegion(office.getLat(), office.getLng(), radius)
+                    .setExpirationDuration(Constants.GEOFENCE_EXPIRATION_MILLISECONDS)
+                    .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_DWELL | Geofence.GEOFENCE_TRANSITION_EXIT)
+                    .setLoiteringDelay(LOITERING_DELAY_MS)
+                    .setNotificationResponsiveness(RESPONSIVENESS_MS)
+                    .build());
+        }
+        if (fences.isEmpty()) return Tasks.forException(new IllegalStateException("No office location set"));
+
+        GeofencingRequest request = new GeofencingRequest.Builder()
+                // Already at the office when enabling counts once the dwell delay has passed; already
+                // away from the office we last punched in at counts as leaving it
+                .setInitialTrigger(GeofencingRequest.INITIAL_TRIGGER_DWELL | GeofencingRequest.INITIAL_TRIGGER_EXIT)
+                .addGeofences(fences)
+                .build();
+        try {
+            // Adding under an existing request ID replaces that fence
+            return LocationServices.getGeofencingClient(context).addGeofences(request, pendingIntent(context))
+                    .addOnSuccessListener(v -> Log.d(TAG, "Registered " + fences.size() + " office geofences"));
+        } catch (SecurityException e) {
+            return Tasks.forException(e);
+        }
+    }
+
+    // One delivered transition; runs on EXECUTOR
+    @WorkerThread
+    public static void handleTransition(Context context, int transition, List<String> requestIds,
+                                        @Nullable Location location) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !isEnabled(context) || requestIds.isEmpty()) return;
+
+        SharedPreferences prefs = prefs(context);
+        String today = DateUtils.getTodayDateId();
+        String insideId = prefs.getString(Constants.PREF_GEOFENCE_INSIDE, null);
+        if (isStale(insideId, prefs.getString(Constants.PREF_GEOFENCE_INSIDE_DATE, null), today, null)) {
+            insideId = null;
+        }
+        List<String> officeIds = new ArrayList<>();
+        for (String requestId : requestIds) officeIds.add(officeId(requestId));
+        Action action = decide(transition, insideId, officeIds);
+        if (action == Action.NONE) return;
+
+        // Recorded before punching: a rejected punch (already punched by hand) must not repeat
+        prefs.edit()
+                .putString(Constants.PREF_GEOFENCE_INSIDE, action == Action.PUNCH_IN ? officeIds.get(0) : null)
+                .putString(Constants.PREF_GEOFENCE_INSIDE_DATE, today)
+                .commit();
+        punch(context, user.getUid(), action == Action.PUNCH_IN, location);
+    }
+
+    // Duplicate or out-of-order transitions (the OS may redeliver) never punch twice. One event may
+    // carry several fences when offices are close together or overlap; leaving any set that includes
+    // the office we punched in at punches out
+    static Action decide(int transition, @Nullable String insideId, List<String> officeIds) {
+        if (transition == Geofence.GEOFENCE_TRANSITION_DWELL && insideId == null) return Action.PUNCH_IN;
+        if (transition == Geofence.GEOFENCE_TRANSITION_EXIT && insideId != null && officeIds.contains(insideId)) {
+            return Action.PUNCH_OUT;
+        }
+        return Action.NONE;
+    }
+
+    // An automatic punch-in from an earlier day, or at an office no longer fenced (fencedIds, when
+    // known), will never see its exit; holding on to it would block every later automatic punch-in
+    static boolean isStale(@Nullable String insideId, @Nullable String insideDate, String today,
+                           @Nullable Collection<String> fencedIds) {
+        if (insideId == null) return false;
+        if (!today.equals(insideDate)) return true;
+        return fencedIds != null && !fencedIds.contains(insideId);
+    }
+
+    private static void forgetStaleInside(Context context, List<OfficeLocation> fenced) {
+        SharedPreferences prefs = prefs(context);
+        Set<String> fencedIds = new HashSet<>();
+        for (OfficeLocation office : fenced) fencedIds.add(office.getOfficeId());
+        if (isStale(prefs.getString(Constants.PREF_GEOFENCE_INSIDE, null),
+                prefs.getString(Constants.PREF_GEOFENCE_INSIDE_DATE, null), DateUtils.getTodayDateId(), fencedIds)) {
+            prefs.edit()
+                    .remove(Constants.PREF_GEOFENCE_INSIDE)
+                    .remove(Constants.PREF_GEOFENCE_INSIDE_DATE)
+                    .apply();
+        }
+    }
+
+    // The repository journals the punch; replay takes over if Firestore is unreachable now
+    private static void punch(Context context, String userId, boolean in, @Nullable Location location) {
+        String deviceId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        Double lat = location != null ? location.getLatitude() : null;
+        Double lng = location != null ? location.getLongitude() : null;
+        AttendanceRepository repo = new AttendanceRepository(context, userId);
+        try {
+            Tasks.await(in ? repo.punchIn(deviceId, lat, lng) : repo.punchOut(deviceId, lat, lng),
+                    PUNCH_TIMEOUT_S, TimeUnit.SECONDS);
+            Log.d(TAG, "Geofence punch " + (in ? "in" : "out"));
+        } catch (Exception e) {
+            // Local rule violations and timeouts only; replay rejections go through PunchRejections
+            Log.w(TAG, "Geofence punch " + (in ? "in" : "out") + " not recorded", e);
+        }
+    }
+
+    static String requestId(OfficeLocation office) {
+        return Constants.GEOFENCE_REQUEST_ID + ":" + office.getOfficeId();
+    }
+
+    static String officeId(String requestId) {
+        int colon = requestId.indexOf(':');
+        return colon >= 0 ? requestId.substring(colon + 1) : requestId;
+    }
+
+    private static List<OfficeLocation> loadOffices(Context context) {
+        String json = prefs(context).getString(Constants.PREF_GEOFENCE_OFFICES, null);
+        if (json == null) return new ArrayList<>();
+        List<OfficeLocation> offices = gson.fromJson(json, new TypeToken<List<OfficeLocation>>() {}.getType());
+        return offices != null ? offices : new ArrayList<>();
+    }
+
+    private static PendingIntent pendingIntent(Context context) {
+        Intent intent = new Intent(context, GeofenceReceiver.class).setAction(GeofenceReceiver.ACTION_GEOFENCE_EVENT);
+        // Play services fills in the event, so the intent has to stay mutable on S+
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) flags |= PendingIntent.FLAG_MUTABLE;
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+
+    public static boolean hasPermission(Context context) {
+        if (ActivityCompat.checkSelfPermission(context, android.Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) return false;
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || ActivityCompat.checkSelfPermission(context, android.Manifest.permission.ACCESS_BACKGROUND_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,166 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+import com.inout.attendancemanager.models.OfficeLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static k-d tree over office centres as unit vectors on the sphere, so there is no seam at the
+ * antimeridian or the poles. The chord between two unit vectors bounds the search; containment and
+ * "nearest" use the ellipsoidal distance of {@link GeofenceUtils#vincenty}, so the index agrees with
+ * checking offices one by one. {@link #match} runs in O(log n) for spread-out offices: the search
+ * radius starts at the largest office radius and shrinks to the best match so far.
+ * Immutable once built; rebuilt whenever the office set changes.
+ */
+public final class OfficeIndex {
+
+    // The ellipsoid is within 0.6% of the mean sphere, so a 1% wider chord never prunes a match
+    static final double SPHERE_MARGIN = 1.01;
+
+    public static final OfficeIndex EMPTY = new OfficeIndex(new ArrayList<>());
+
+    // Tree order: node i splits [lo, hi) at i = (lo + hi) >>> 1
+    private final OfficeLocation[] offices;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final double[] lats;
+    private final double[] lngs;
+    private final double[] radii;
+    private final double maxRadius;
+
+    public OfficeIndex(List<OfficeLocation> locations) {
+        List<OfficeLocation> usable = new ArrayList<>();
+        for (OfficeLocation office : locations) {
+            if (office != null && !office.isDeleted()) usable.add(office);
+        }
+        int n = usable.size();
+        double[][] points = new double[n][];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = unitVector(usable.get(i).getLat(), usable.get(i).getLng());
+            order[i] = i;
+        }
+        build(order, points, 0, n, 0);
+
+        offices = new OfficeLocation[n];
+        xs = new double[n];
+        ys = new double[n];
+        zs = new double[n];
+        lats = new double[n];
+        lngs = new double[n];
+        radii = new double[n];
+        double max = 0;
+        for (int i = 0; i < n; i++) {
+            int src = order[i];
+            offices[i] = usable.get(src);
+            xs[i] = points[src][0];
+            ys[i] = points[src][1];
+            zs[i] = points[src][2];
+            lats[i] = offices[i].getLat();
+            lngs[i] = offices[i].getLng();
+            radii[i] = radiusOf(offices[i]);
+            max = Math.max(max, radii[i]);
+        }
+        maxRadius = max;
+    }
+
+    public int size() {
+        return offices.length;
+    }
+
+    // The indexed offices, in tree order
+    public List<OfficeLocation> offices() {
+        return Collections.unmodifiableList(Arrays.asList(offices));
+    }
+
+    // Nearest office whose circle contains the point, or null
+    @Nullable
+    public OfficeLocation match(double lat, double lng) {
+        return match(lat, lng, 0);
+    }
+
+    // slackMeters widens every office's radius, e.g. by the fix's accuracy
+    @Nullable
+    public OfficeLocation match(double lat, double lng, double slackMeters) {
+        int best = matchIndex(lat, lng, slackMeters);
+        return best >= 0 ? offices[best] : null;
+    }
+
+    // Tree position of the match, or -1; allocation-free
+    int matchIndex(double lat, double lng, double slackMeters) {
+        if (offices.length == 0) return -1;
+        double latR = Math.toRadians(lat);
+        double lngR = Math.toRadians(lng);
+        double cosLat = Math.cos(latR);
+        return search(cosLat * Math.cos(lngR), cosLat * Math.sin(lngR), Math.sin(latR), lat, lng, slackMeters,
+                bound2(maxRadius + slackMeters), -1, 0, 0, offices.length, 0);
+    }
+
+    // Returns the best match so far; once there is one, only nearer offices can replace it
+    private int search(double x, double y, double z, double lat, double lng, double slack, double bound2,
+                       int best, double bestMeters, int lo, int hi, int depth) {
+        if (lo >= hi) return best;
+        int mid = (lo + hi) >>> 1;
+        if (chord2(mid, x, y, z) <= bound2) {
+            double meters = GeofenceUtils.vincenty(lat, lng, lats[mid], lngs[mid]);
+            if (meters <= radii[mid] + slack && (best < 0 || meters < bestMeters)) {
+                best = mid;
+                bestMeters = meters;
+                bound2 = bound2(meters);
+            }
+        }
+        int axis = depth % 3;
+        double diff = axis == 0 ? x - xs[mid] : axis == 1 ? y - ys[mid] : z - zs[mid];
+        int nearLo = diff < 0 ? lo : mid + 1;
+        int nearHi = diff < 0 ? mid : hi;
+        int farLo = diff < 0 ? mid + 1 : lo;
+        int farHi = diff < 0 ? hi : mid;
+        int nearBest = search(x, y, z, lat, lng, slack, bound2, best, bestMeters, nearLo, nearHi, depth + 1);
+        if (nearBest != best) {
+            best = nearBest;
+            bestMeters = GeofenceUtils.vincenty(lat, lng, lats[best], lngs[best]);
+            bound2 = bound2(bestMeters);
+        }
+        if (diff * diff > bound2) return best;
+        return search(x, y, z, lat, lng, slack, bound2, best, bestMeters, farLo, farHi, depth + 1);
+    }
+
+    private double chord2(int i, double x, double y, double z) {
+        double dx = x - xs[i], dy = y - ys[i], dz = z - zs[i];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void build(Integer[] order, double[][] points, int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+        int axis = depth % 3;
+        Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> points[i][axis]));
+        int mid = (lo + hi) >>> 1;
+        build(order, points, lo, mid, depth + 1);
+        build(order, points, mid + 1, hi, depth + 1);
+    }
+
+    static double[] unitVector(double lat, double lng) {
+        double latR = Math.toRadians(lat);
+        double lngR = Math.toRadians(lng);
+        double cosLat = Math.cos(latR);
+        return new double[] { cosLat * Math.cos(lngR), cosLat * Math.sin(lngR), Math.sin(latR) };
+    }
+
+    // The office's own radius, or the geofence default when none is set, as OfficeGeofencer fences it
+    public static float radiusOf(OfficeLocation office) {
+        return office.getRadiusMeters() > 0 ? office.getRadiusMeters() : Constants.GEOFENCE_RADIUS_METERS;
+    }
+
+    // Squared unit-sphere chord that covers every point within this ground distance
+    static double bound2(double meters) {
+        double chord = 2 * Math.sin(Math.min(Math.PI, meters * SPHERE_MARGIN / GeofenceUtils.MEAN_RADIUS_M) / 2);
+        return chord * chord;
+    }
+}
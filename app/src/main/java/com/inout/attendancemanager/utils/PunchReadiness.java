@@ -0,0 +1,121 @@
+package com.inout.attendancemanager.utils;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Location and beacon checks for one punch, run side by side under one deadline. Each stage
+ * reports once; as soon as the org policy is settled either way the result is final and whichever
+ * stage is still running is no longer needed. With beaconRequired only a valid beacon makes the
+ * punch ready; otherwise being inside the office or a valid beacon does. Times are elapsed-realtime
+ * milliseconds, passed in so the logic runs without a clock.
+ */
+public final class PunchReadiness {
+
+    public enum Method { NONE, LOCATION, BEACON }
+
+    // Covers a balanced fix, a GPS retry and the beacon scan running alongside
+    public static final long DEADLINE_MS = 20_000L;
+
+    public static final class Result {
+        public final boolean ready;
+        public final Method method;
+        public final boolean beaconValid;
+        // Per stage, from the start; -1 when the stage was still running at the end
+        public final long locationMs;
+        public final long beaconMs;
+        public final long totalMs;
+        public final boolean timedOut;
+
+        Result(boolean ready, Method method, boolean beaconValid, long locationMs, long beaconMs,
+               long totalMs, boolean timedOut) {
+            this.ready = ready;
+            this.method = method;
+            this.beaconValid = beaconValid;
+            this.locationMs = locationMs;
+            this.beaconMs = beaconMs;
+            this.totalMs = totalMs;
+            this.timedOut = timedOut;
+        }
+
+        public boolean locationCancelled() { return locationMs < 0; }
+        public boolean beaconCancelled() { return beaconMs < 0; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s via %s in %dms (location %s, beacon %s)%s",
+                    ready ? "ready" : "not ready", method, totalMs, stage(locationMs), stage(beaconMs),
+                    timedOut ? ", timed out" : "");
+        }
+
+        private static String stage(long ms) {
+            return ms < 0 ? "cancelled" : ms + "ms";
+        }
+    }
+
+    private final boolean beaconRequired;
+    private final long startedAt;
+    private final long deadlineMs;
+    @Nullable private GeofenceDecision.Verdict verdict;
+    private boolean beaconValid;
+    private long locationMs = -1;
+    private long beaconMs = -1;
+    @Nullable private Result result;
+
+    public PunchReadiness(boolean beaconRequired, long startedAt, long deadlineMs) {
+        this.beaconRequired = beaconRequired;
+        this.startedAt = startedAt;
+        this.deadlineMs = deadlineMs;
+    }
+
+    public long remainingMs(long now) {
+        return Math.max(0L, startedAt + deadlineMs - now);
+    }
+
+    public boolean isFinal() {
+        return result != null;
+    }
+
+    @Nullable
+    public Result result() {
+        return result;
+    }
+
+    // The location stage's last word: INSIDE, OUTSIDE, or UNCERTAIN once no better fix is coming
+    @Nullable
+    public Result onLocation(GeofenceDecision.Verdict verdict, long now) {
+        if (result != null || locationMs >= 0) return result;
+        this.verdict = verdict;
+        locationMs = now - startedAt;
+        return evaluate(now);
+    }
+
+    // The scan's best result; false as well when no scan could run
+    @Nullable
+    public Result onBeacon(boolean valid, long now) {
+        if (result != null || beaconMs >= 0) return result;
+        beaconValid = valid;
+        beaconMs = now - startedAt;
+        return evaluate(now);
+    }
+
+    // Settles with whatever has been reported; later reports are ignored
+    public Result onDeadline(long now) {
+        return result != null ? result : settle(false, Method.NONE, now, true);
+    }
+
+    @Nullable
+    private Result evaluate(long now) {
+        if (beaconValid) return settle(true, Method.BEACON, now, false);
+        // Nothing the location stage reports can change a beacon-only policy
+        if (beaconRequired) return beaconMs >= 0 ? settle(false, Method.NONE, now, false) : null;
+        if (verdict == GeofenceDecision.Verdict.INSIDE) return settle(true, Method.LOCATION, now, false);
+        return locationMs >= 0 && beaconMs >= 0 ? settle(false, Method.NONE, now, false) : null;
+    }
+
+    private Result settle(boolean ready, Method method, long now, boolean timedOut) {
+        result = new Result(ready, method, beaconValid, locationMs, beaconMs, now - startedAt, timedOut);
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.inout.attendancemanager.utils;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.inout.attendancemanager.R;
+import com.inout.attendancemanager.activities.DashboardActivity;
+import com.inout.attendancemanager.models.PunchEntry;
+import com.inout.attendancemanager.repositories.PunchRejectedException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Punches the server turned down after the user was already told they were recorded, e.g. a
+ * journaled punch-in replayed onto a day another device had punched in. Each one is kept until the
+ * dashboard has shown it, and posted as a notification where notifications are allowed.
+ */
+public final class PunchRejections {
+    private PunchRejections(){}
+
+    private static final int NOTIFICATION_ID = 2001;
+    private static final Gson gson = new Gson();
+
+    public static synchronized void record(Context context, List<PunchEntry> rejected,
+                                           List<PunchRejectedException> errors) {
+        if (rejected.isEmpty()) return;
+        List<String> messages = read(prefs(context));
+        for (int i = 0; i < rejected.size(); i++) {
+            messages.add(describe(rejected.get(i), i < errors.size() ? errors.get(i) : null));
+        }
+        prefs(context).edit().putString(Constants.PREF_REJECTED_PUNCHES, gson.toJson(messages)).apply();
+        notify(context, messages);
+    }
+
+    // Pending messages, oldest first; clears them and the notification
+    public static synchronized List<String> take(Context context) {
+        SharedPreferences prefs = prefs(context);
+        List<String> messages = read(prefs);
+        if (!messages.isEmpty()) {
+            prefs.edit().remove(Constants.PREF_REJECTED_PUNCHES).apply();
+            NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID);
+        }
+        return messages;
+    }
+
+    static String describe(PunchEntry entry, PunchRejectedException error) {
+        Date at = new Date(entry.getTimestamp());
+        return "Punch " + (entry.isIn() ? "in" : "out") + " at " + DateUtils.formatTime(at)
+                + " on " + DateUtils.formatDate(at) + " was not recorded"
+                + (error != null ? ": " + error.getMessage() : "");
+    }
+
+    private static void notify(Context context, List<String> messages) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;  // The dashboard still shows them
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(Constants.NOTIFICATION_CHANNEL_ID,
+                    Constants.NOTIFICATION_CHANNEL_NAME, NotificationManager.IMPORTANCE_DEFAULT);
+            channel.setDescription(Constants.NOTIFICATION_CHANNEL_DESCRIPTION);
+            NotificationManagerCompat.from(context).createNotificationChannel(channel);
+        }
+
+        Intent intent = new Intent(context, DashboardActivity.class)
+                .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent open = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (String message : messages) style.addLine(message);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, Constants.NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_attendance)
+                .setContentTitle(messages.size() == 1 ? "Punch not recorded" : messages.size() + " punches not recorded")
+                .setContentText(messages.get(messages.size() - 1))
+                .setStyle(style)
+                .setContentIntent(open)
+                .setAutoCancel(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH);
+        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID, builder.build());
+    }
+
+    private static List<String> read(SharedPreferences prefs) {
+        String json = prefs.getString(Constants.PREF_REJECTED_PUNCHES, null);
+        if (json == null) return new ArrayList<>();
+        List<String> messages = gson.fromJson(json, new TypeToken<List<String>>() {}.getType());
+        return messages != null ? messages : new ArrayList<>();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
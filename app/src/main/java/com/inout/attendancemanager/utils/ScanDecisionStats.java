@@ -0,0 +1,60 @@
+package com.inout.attendancemanager.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Process-wide distribution of beacon scan time-to-decision, in 100 ms buckets up to the timeout.
+ * Early confirmations and timeouts are counted separately so the share of scans that still hit the
+ * cap stays visible.
+ */
+public final class ScanDecisionStats {
+
+    private static final long BUCKET_MS = 100L;
+    private static final int BUCKETS = 64;  // last bucket collects everything at or past 6.3 s
+
+    private static final int[] histogram = new int[BUCKETS];
+    private static int confirmed;
+    private static int timedOut;
+
+    private ScanDecisionStats() {}
+
+    public static synchronized void record(long decisionMs, boolean early) {
+        int bucket = (int) Math.min(BUCKETS - 1, Math.max(0L, decisionMs) / BUCKET_MS);
+        histogram[bucket]++;
+        if (early) confirmed++;
+        else timedOut++;
+    }
+
+    public static synchronized int count() {
+        return confirmed + timedOut;
+    }
+
+    public static synchronized int earlyCount() {
+        return confirmed;
+    }
+
+    // Upper edge of the bucket holding quantile q (0..1); -1 before any scan finished
+    public static synchronized long percentileMs(double q) {
+        int total = confirmed + timedOut;
+        if (total == 0) return -1;
+        int target = (int) Math.ceil(q * total);
+        int seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= Math.max(1, target)) return (i + 1) * BUCKET_MS;
+        }
+        return BUCKETS * BUCKET_MS;
+    }
+
+    public static synchronized String summary() {
+        return String.format(Locale.US, "%d scans, %d early, p50 %d ms, p90 %d ms, p99 %d ms",
+                count(), confirmed, percentileMs(0.5), percentileMs(0.9), percentileMs(0.99));
+    }
+
+    public static synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        confirmed = 0;
+        timedOut = 0;
+    }
+}
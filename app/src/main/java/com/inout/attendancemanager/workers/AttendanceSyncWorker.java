@@ -0,0 +1,78 @@
+package com.inout.attendancemanager.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.inout.attendancemanager.repositories.AttendanceSync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background delta sync of the signed-in user's attendance into the local store.
+ */
+public class AttendanceSyncWorker extends Worker {
+
+    private static final String TAG = "AttendanceSyncWorker";
+    private static final String UNIQUE_WORK_NAME = "attendance_delta_sync";
+    private static final String PERIODIC_WORK_NAME = "attendance_delta_sync_periodic";
+
+    public AttendanceSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // One pass as soon as the network allows, e.g. after punches were replayed
+    public static void enqueue(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttendanceSyncWorker.class)
+                .setConstraints(networkConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    // Picks up changes made on other devices or by admins
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(AttendanceSyncWorker.class,
+                6, TimeUnit.HOURS)
+                .setConstraints(networkConstraints())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    private static Constraints networkConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return Result.success();
+
+        try {
+            int stored = new AttendanceSync(getApplicationContext(), user.getUid()).sync();
+            Log.d(TAG, "Synced " + stored + " days");
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Sync failed, will retry", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.inout.attendancemanager.workers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.inout.attendancemanager.utils.BackgroundBeaconScanner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Punches out hands-free once no configured beacon has been seen for the exit timeout.
+ * Every batch with a sighting pushes the check back, so it only fires after the last one.
+ */
+public class BeaconExitWorker extends Worker {
+
+    private static final String UNIQUE_WORK_NAME = "beacon_exit_check";
+
+    public BeaconExitWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedule(Context context, long delayMs) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BeaconExitWorker.class)
+                .setInitialDelay(delayMs, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        BackgroundBeaconScanner.checkExit(getApplicationContext());
+        return Result.success();
+    }
+}
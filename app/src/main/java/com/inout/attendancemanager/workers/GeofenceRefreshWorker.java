@@ -0,0 +1,46 @@
+package com.inout.attendancemanager.workers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.inout.attendancemanager.utils.OfficeGeofencer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-registers the office geofences well before they expire, and after the platform dropped them
+ * (reboot, location switched off) without the app being opened.
+ */
+public class GeofenceRefreshWorker extends Worker {
+
+    private static final String PERIODIC_WORK_NAME = "geofence_refresh_periodic";
+
+    public GeofenceRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(GeofenceRefreshWorker.class,
+                12, TimeUnit.HOURS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(PERIODIC_WORK_NAME);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        OfficeGeofencer.restoreBlocking(getApplicationContext());
+        return Result.success();
+    }
+}
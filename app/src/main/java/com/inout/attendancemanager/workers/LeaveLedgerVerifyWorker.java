@@ -0,0 +1,63 @@
+package com.inout.attendancemanager.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.inout.attendancemanager.repositories.LeaveRepository;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weekly check that the signed-in user's incrementally kept leave balance matches their records.
+ */
+public class LeaveLedgerVerifyWorker extends Worker {
+
+    private static final String TAG = "LeaveLedgerVerifyWorker";
+    private static final String PERIODIC_WORK_NAME = "leave_ledger_verify_periodic";
+
+    public LeaveLedgerVerifyWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(LeaveLedgerVerifyWorker.class,
+                7, TimeUnit.DAYS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresBatteryNotLow(true)
+                        .build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return Result.success();
+
+        int year = Calendar.getInstance().get(Calendar.YEAR);
+        try {
+            boolean consistent = Tasks.await(new LeaveRepository(user.getUid()).verify(year));
+            Log.d(TAG, consistent ? "Leave ledger consistent" : "Leave ledger repaired");
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Leave ledger check failed, will retry", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.inout.attendancemanager.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.inout.attendancemanager.repositories.AttendanceLayout;
+import com.inout.attendancemanager.repositories.PunchJournal;
+import com.inout.attendancemanager.repositories.PunchRejectedException;
+import com.inout.attendancemanager.repositories.PunchReplayer;
+import com.inout.attendancemanager.utils.PunchRejections;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background replayer: merges journaled punches into Firestore once the network is up.
+ */
+public class PunchReplayWorker extends Worker {
+
+    private static final String TAG = "PunchReplayWorker";
+    private static final String UNIQUE_WORK_NAME = "punch_journal_replay";
+
+    public PunchReplayWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void enqueue(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PunchReplayWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+
+        // Append so punches journaled while a replay is running get their own pass
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        PunchJournal journal = PunchJournal.get(getApplicationContext());
+        if (journal.isEmpty()) return Result.success();
+
+        try {
+            // Write to the layout the user is on now, not the one cached when the punch was taken;
+            // while a migration is copying days this throws and the replay is retried
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user != null) AttendanceLayout.refreshForWrite(getApplicationContext(), user.getUid());
+            PunchReplayer.Report report = new PunchReplayer(journal,
+                    AttendanceLayout.dayStore(getApplicationContext())).replay();
+            for (PunchRejectedException e : report.errors) {
+                Log.w(TAG, "Dropped journaled punch: " + e.getMessage());
+            }
+            // The user was told these were recorded when they were journaled
+            PunchRejections.record(getApplicationContext(), report.rejected, report.errors);
+            Log.d(TAG, "Replayed " + report.applied.size() + " punches in " + report.batches + " batches");
+            // Pull the merged days into the local store
+            if (!report.applied.isEmpty()) AttendanceSyncWorker.enqueue(getApplicationContext());
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Replay failed, will retry", e);
+            return Result.retry();
+        }
+    }
+}
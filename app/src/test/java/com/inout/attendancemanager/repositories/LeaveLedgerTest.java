@@ -0,0 +1,75 @@
+package com.inout.attendancemanager.repositories;
+
+import com.inout.attendancemanager.models.LeaveBalance;
+import com.inout.attendancemanager.models.LeaveRecord;
+import com.inout.attendancemanager.utils.Constants;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LeaveLedgerTest {
+
+    @Test
+    public void accrual_isProRatedFromJoinMonthInHalfDays() {
+        assertEquals(20.0, LeaveLedger.accruedThrough(1, 12), 0.0);
+        assertEquals(1.5, LeaveLedger.accruedThrough(1, 1), 0.0);
+        assertEquals(0.0, LeaveLedger.accruedThrough(7, 6), 0.0);
+        assertEquals(7, LeaveLedger.eligibleFromMonth(2025, "15/07/2025"));
+        assertEquals(1, LeaveLedger.eligibleFromMonth(2025, "15/07/2023"));
+        assertEquals(1, LeaveLedger.eligibleFromMonth(2025, null));
+    }
+
+    @Test
+    public void countDays_skipsWeekends() {
+        // Fri 2025-01-10 .. Mon 2025-01-13
+        assertEquals(2.0, LeaveLedger.countDays("2025-01-10", "2025-01-13"), 0.0);
+        assertEquals(0.0, LeaveLedger.countDays("2025-01-11", "2025-01-12"), 0.0);
+    }
+
+    @Test
+    public void incrementalDeltas_matchRecompute() {
+        LeaveBalance running = LeaveLedger.fromRecords(2025, 1, 6, new ArrayList<>());
+        List<LeaveRecord> records = new ArrayList<>();
+
+        LeaveRecord a = record(2);
+        LeaveRecord b = record(3);
+        LeaveRecord c = record(1);
+        move(running, records, a, Constants.STATUS_PENDING);
+        move(running, records, b, Constants.STATUS_PENDING);
+        move(running, records, c, Constants.STATUS_PENDING);
+        move(running, records, a, Constants.STATUS_APPROVED);
+        move(running, records, b, Constants.STATUS_REJECTED);
+        move(running, records, a, LeaveLedger.STATUS_CANCELLED);
+
+        LeaveBalance expected = LeaveLedger.fromRecords(2025, 1, 6, records);
+        assertTrue(LeaveLedger.same(expected, running));
+        assertEquals(1.0, running.getPending(), 0.0);
+        assertEquals(0.0, running.getUsed(), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void delta_rejectsReopeningADecidedLeave() {
+        LeaveLedger.delta(Constants.STATUS_REJECTED, Constants.STATUS_APPROVED, 1);
+    }
+
+    private static LeaveRecord record(double days) {
+        LeaveRecord r = new LeaveRecord();
+        r.setDays(days);
+        return r;
+    }
+
+    private static void move(LeaveBalance balance, List<LeaveRecord> records, LeaveRecord r, String to) {
+        Map<String, Double> delta = LeaveLedger.delta(r.getStatus(), to, r.getDays());
+        for (Map.Entry<String, Double> e : delta.entrySet()) {
+            if (e.getKey().equals(LeaveLedger.FIELD_PENDING)) balance.setPending(balance.getPending() + e.getValue());
+            if (e.getKey().equals(LeaveLedger.FIELD_USED)) balance.setUsed(balance.getUsed() + e.getValue());
+        }
+        if (r.getStatus() == null) records.add(r);
+        r.setStatus(to);
+    }
+}
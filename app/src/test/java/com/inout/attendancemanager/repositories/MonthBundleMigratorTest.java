@@ -0,0 +1,43 @@
+package com.inout.attendancemanager.repositories;
+
+import com.inout.attendancemanager.models.Attendance;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MonthBundleMigratorTest {
+
+    private static final long NINE_AM = 1736154000000L;
+
+    @Test
+    public void copiesDaysTheBundleLacks() {
+        assertTrue(MonthBundleMigrator.supersedes(day(NINE_AM), null));
+        // Seeded or pre-timestamp day documents still go in
+        assertTrue(MonthBundleMigrator.supersedes(new Attendance(), null));
+    }
+
+    @Test
+    public void rerunKeepsDaysPunchedOnTheBundle() {
+        // Copied at 9:05, punched out on the bundle at 18:00; the day document still says 9:00
+        assertFalse(MonthBundleMigrator.supersedes(day(NINE_AM), day(NINE_AM + 9 * 3_600_000L)));
+        assertFalse(MonthBundleMigrator.supersedes(day(NINE_AM), day(NINE_AM)));
+        assertFalse(MonthBundleMigrator.supersedes(new Attendance(), day(NINE_AM)));
+    }
+
+    @Test
+    public void punchOnADayDocumentDuringMigrationIsCopied() {
+        // A replay that checked the layout before the hold writes the day document after its copy
+        assertTrue(MonthBundleMigrator.supersedes(day(NINE_AM + 60_000L), day(NINE_AM)));
+        assertTrue(MonthBundleMigrator.supersedes(day(NINE_AM), new Attendance()));
+    }
+
+    private static Attendance day(long updatedAt) {
+        Attendance day = new Attendance();
+        day.setUpdatedAt(new Date(updatedAt));
+        return day;
+    }
+}
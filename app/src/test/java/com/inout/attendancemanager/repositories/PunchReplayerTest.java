@@ -0,0 +1,125 @@
+package com.inout.attendancemanager.repositories;
+
+import com.inout.attendancemanager.models.Attendance;
+import com.inout.attendancemanager.models.AttendanceSummary;
+import com.inout.attendancemanager.models.PunchEntry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class PunchReplayerTest {
+
+    private static final String UID = "u1";
+    private static final String DAY = "2025-01-06";
+    private static final long NINE_AM = 1736154000000L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File journalFile;
+    private PunchJournal journal;
+    private InMemoryDayStore store;
+    private int seq;
+
+    @Before
+    public void setUp() throws Exception {
+        journalFile = new File(tmp.getRoot(), "journal.log");
+        journal = new PunchJournal(journalFile);
+        store = new InMemoryDayStore();
+    }
+
+    @Test
+    public void replay_mergesInAndOutIntoOneDay() throws Exception {
+        journal.append(punch(PunchEntry.TYPE_IN, 0));
+        journal.append(punch(PunchEntry.TYPE_OUT, 600));
+
+        PunchReplayer.Report report = new PunchReplayer(journal, store).replay();
+
+        assertEquals(2, report.applied.size());
+        assertEquals(1, report.batches);
+        assertTrue(journal.isEmpty());
+
+        Attendance day = store.get(UID, DAY);
+        assertNotNull(day);
+        assertEquals(600L, day.getTotalMinutes());
+        assertEquals(PunchMerger.STATUS_COMPLETE, day.getStatus());
+
+        // Rollup updated in the same commit; a status change within "present" is not double counted
+        AttendanceSummary summary = store.getSummary(UID, "2025-01");
+        assertNotNull(summary);
+        assertEquals(1, summary.getPresentDays());
+        assertEquals(600L, summary.getTotalWorkingMinutes());
+    }
+
+    @Test
+    public void replay_blocksDoubleInAndOutWithoutIn() throws Exception {
+        journal.append(punch(PunchEntry.TYPE_OUT, 0));
+        journal.append(punch(PunchEntry.TYPE_IN, 10));
+        journal.append(punch(PunchEntry.TYPE_IN, 20));
+        journal.append(punch(PunchEntry.TYPE_OUT, 70));
+
+        PunchReplayer.Report report = new PunchReplayer(journal, store).replay();
+
+        assertEquals(2, report.applied.size());
+        assertEquals(2, report.rejected.size());
+        assertEquals(PunchRejectedException.Reason.NO_PUNCH_IN_RECORD, report.errors.get(0).getReason());
+        assertEquals(PunchRejectedException.Reason.ALREADY_PUNCHED_IN, report.errors.get(1).getReason());
+        assertEquals(60L, store.get(UID, DAY).getTotalMinutes());
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void replay_keepsEverySessionOfTheDay() throws Exception {
+        journal.append(punch(PunchEntry.TYPE_IN, 0));
+        journal.append(punch(PunchEntry.TYPE_OUT, 240));
+        journal.append(punch(PunchEntry.TYPE_IN, 300));
+        journal.append(punch(PunchEntry.TYPE_OUT, 420));
+        journal.append(punch(PunchEntry.TYPE_IN, 480));
+
+        new PunchReplayer(journal, store).replay();
+
+        Attendance day = store.get(UID, DAY);
+        assertEquals(3, day.getSessions().size());
+        assertEquals(240L, day.getSessions().get(0).getMinutes());
+        assertEquals(120L, day.getSessions().get(1).getMinutes());
+        assertNull(day.getSessions().get(2).getOutTime());
+        assertEquals(Integer.valueOf(2), day.getOpenSession());
+        assertEquals(360L, day.getTotalMinutes());
+    }
+
+    @Test
+    public void journal_survivesReopen() throws Exception {
+        journal.append(punch(PunchEntry.TYPE_IN, 0));
+
+        PunchJournal reopened = new PunchJournal(journalFile);
+
+        assertEquals(1, reopened.pending(UID, DAY).size());
+    }
+
+    @Test
+    public void replay_failureKeepsEntriesForRetry() throws Exception {
+        journal.append(punch(PunchEntry.TYPE_IN, 0));
+        DayStore failing = (userId, dateId, entries) -> {
+            throw new IllegalStateException("offline");
+        };
+
+        try {
+            new PunchReplayer(journal, failing).replay();
+            fail("expected failure");
+        } catch (IllegalStateException expected) {
+            // fall through
+        }
+
+        assertEquals(1, journal.pending().size());
+    }
+
+    private PunchEntry punch(String type, int minuteOffset) {
+        return new PunchEntry("p" + (seq++), UID, DAY, type, NINE_AM + minuteOffset * 60_000L);
+    }
+}
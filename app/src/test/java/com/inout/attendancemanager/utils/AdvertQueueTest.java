@@ -0,0 +1,61 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AdvertQueueTest {
+
+    private static final byte[] RECORD = {2, 0x01, 0x06};
+
+    @Test
+    public void drainsInOrderAndCountsDropsWhenFull() {
+        AdvertQueue queue = new AdvertQueue(4);
+        for (int i = 0; i < 6; i++) queue.offer(i, -60 - i, RECORD);
+        assertEquals(4, queue.size());
+        assertEquals(2, queue.getDroppedCount());
+
+        List<Long> times = new ArrayList<>();
+        assertEquals(4, queue.drain((elapsedMs, rssi, scanRecord) -> {
+            times.add(elapsedMs);
+            assertEquals(-60 - elapsedMs, rssi);
+            assertSame(RECORD, scanRecord);
+        }));
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), times);
+        assertEquals(0, queue.size());
+
+        // Room again after draining
+        assertTrue(queue.offer(9, -70, RECORD));
+        assertEquals(1, queue.drain((elapsedMs, rssi, scanRecord) -> assertEquals(9, elapsedMs)));
+    }
+
+    @Test
+    public void handsOverEveryAcceptedAdvertAcrossThreads() throws Exception {
+        AdvertQueue queue = new AdvertQueue(64);
+        int total = 200_000;
+        long[] accepted = new long[1];
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) if (queue.offer(i, -60, RECORD)) accepted[0]++;
+        });
+
+        long[] received = new long[1];
+        long[] last = {-1};
+        producer.start();
+        while (producer.isAlive() || queue.size() > 0) {
+            queue.drain((elapsedMs, rssi, scanRecord) -> {
+                assertTrue("out of order", elapsedMs > last[0]);
+                assertSame(RECORD, scanRecord);
+                last[0] = elapsedMs;
+                received[0]++;
+            });
+        }
+        producer.join();
+
+        assertEquals(accepted[0], received[0]);
+        assertEquals(total, accepted[0] + queue.getDroppedCount());
+    }
+}
@@ -0,0 +1,57 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BeaconConfirmationTest {
+
+    private static final int THRESHOLD = -70;
+
+    @Test
+    public void confirmsAfterRequiredSightingsInsideWindow() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.EARLY_EXIT, 2);
+        assertFalse(c.onSighting(0, -68, THRESHOLD, 0));
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 200));
+        assertTrue(c.onSighting(0, -68, THRESHOLD, 400));
+    }
+
+    @Test
+    public void sightingsSpreadPastWindowDoNotConfirm() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.EARLY_EXIT, 1);
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 0));
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 1_000));
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 2_000));
+        // Last three now fall within 1.5 s
+        assertTrue(c.onSighting(0, -69, THRESHOLD, 2_400));
+    }
+
+    @Test
+    public void weakSightingsNeverConfirm() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.EARLY_EXIT, 1);
+        for (int t = 0; t < 6_000; t += 100) assertFalse(c.onSighting(0, -80, THRESHOLD, t));
+    }
+
+    @Test
+    public void strongSmoothedSignalConfirmsOnSecondReading() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.EARLY_EXIT, 1);
+        assertFalse(c.onSighting(0, -55, THRESHOLD, 0));
+        assertTrue(c.onSighting(0, -56, THRESHOLD, 100));
+    }
+
+    @Test
+    public void beaconsAreTrackedSeparately() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.EARLY_EXIT, 2);
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 0));
+        assertFalse(c.onSighting(1, -69, THRESHOLD, 100));
+        assertFalse(c.onSighting(0, -69, THRESHOLD, 200));
+        assertFalse(c.onSighting(1, -69, THRESHOLD, 300));
+        assertTrue(c.onSighting(0, -69, THRESHOLD, 400));
+    }
+
+    @Test
+    public void fullWindowPolicyNeverConfirms() {
+        BeaconConfirmation c = new BeaconConfirmation(BeaconConfirmation.Policy.FULL_WINDOW, 1);
+        for (int t = 0; t < 1_000; t += 50) assertFalse(c.onSighting(0, -40, THRESHOLD, t));
+    }
+}
@@ -0,0 +1,188 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BeaconFrameParserTest {
+
+    private static final String UUID = "2F234454-CF6D-4A0F-ADF2-F4911BA9FFA6";
+    private static final String NAMESPACE = "EDD1EBEAC04E5DEFA017";
+    private static final String INSTANCE = "0BDB87539B67";
+
+    private final BeaconFrameParser parser = new BeaconFrameParser();
+    private final BeaconKey key = new BeaconKey();
+
+    @Test
+    public void decodesIBeacon() {
+        byte[] record = concat(flags(), manufacturer(0x004C, idFrame(0x02, 0x15, UUID, 7, 9, -59)));
+        assertTrue(parser.parse(record, key));
+        assertEquals(BeaconKey.FORMAT_IBEACON, key.format);
+        assertEquals(-59, key.txPower);
+        assertTrue(key.sameBeacon(keyOf(iBeaconConfig(7, 9))));
+        assertFalse(key.sameBeacon(keyOf(iBeaconConfig(7, 8))));
+    }
+
+    @Test
+    public void decodesEddystoneUidAndConvertsTxPowerToOneMeter() {
+        byte[] record = concat(flags(), eddystoneUid(-18));
+        assertTrue(parser.parse(record, key));
+        assertEquals(BeaconKey.FORMAT_EDDYSTONE_UID, key.format);
+        assertEquals(-59, key.txPower);
+
+        BeaconConfig config = new BeaconConfig();
+        config.setEnabled(true);
+        config.setFrameType(BeaconKey.TYPE_EDDYSTONE_UID);
+        config.setNamespaceId("0x" + NAMESPACE.toLowerCase());
+        config.setInstanceId(INSTANCE);
+        assertTrue(key.sameBeacon(keyOf(config)));
+    }
+
+    @Test
+    public void decodesAltBeaconUnderAnyCompanyId() {
+        byte[] record = concat(flags(), manufacturer(0x0118, idFrame(0xBE, 0xAC, UUID, 7, 9, -61)));
+        assertTrue(parser.parse(record, key));
+        assertEquals(BeaconKey.FORMAT_ALTBEACON, key.format);
+        assertEquals(-61, key.txPower);
+
+        BeaconConfig config = iBeaconConfig(7, 9);
+        config.setFrameType(BeaconKey.TYPE_ALTBEACON);
+        assertTrue(key.sameBeacon(keyOf(config)));
+        // Same IDs as an iBeacon config, but a different format
+        assertFalse(key.sameBeacon(keyOf(iBeaconConfig(7, 9))));
+    }
+
+    @Test
+    public void tableMatchesEveryFormat() {
+        BeaconConfig ibeacon = iBeaconConfig(7, 9);
+        BeaconConfig alt = iBeaconConfig(7, 9);
+        alt.setFrameType(BeaconKey.TYPE_ALTBEACON);
+        BeaconConfig eddystone = new BeaconConfig();
+        eddystone.setEnabled(true);
+        eddystone.setFrameType(BeaconKey.TYPE_EDDYSTONE_UID);
+        eddystone.setNamespaceId(NAMESPACE);
+        eddystone.setInstanceId(INSTANCE);
+        BeaconTable table = new BeaconTable(Arrays.asList(ibeacon, alt, eddystone));
+
+        assertTrue(parser.parse(manufacturer(0x004C, idFrame(0x02, 0x15, UUID, 7, 9, -59)), key));
+        assertSame(ibeacon, table.config(table.lookup(key)));
+        assertTrue(parser.parse(manufacturer(0x0118, idFrame(0xBE, 0xAC, UUID, 7, 9, -59)), key));
+        assertSame(alt, table.config(table.lookup(key)));
+        assertTrue(parser.parse(eddystoneUid(-20), key));
+        assertSame(eddystone, table.config(table.lookup(key)));
+    }
+
+    @Test
+    public void skipsOtherStructuresAndFindsTheFrameAfterThem() {
+        byte[] name = {6, 0x09, 'O', 'f', 'f', 'c', 'e'};
+        byte[] otherApple = manufacturer(0x004C, new byte[] {0x10, 0x05, 0x01, 0x18});
+        byte[] record = concat(flags(), name, otherApple, eddystoneUid(-18), new byte[8]);
+        assertTrue(parser.parse(record, key));
+        assertEquals(BeaconKey.FORMAT_EDDYSTONE_UID, key.format);
+    }
+
+    @Test
+    public void rejectsForeignAndMalformedRecords() {
+        assertFalse(parser.parse(null, key));
+        assertFalse(parser.parse(new byte[0], key));
+        assertFalse(parser.parse(concat(flags(), manufacturer(0x004C, new byte[] {0x02, 0x15, 1, 2})), key));
+        // Eddystone-URL frame
+        assertFalse(parser.parse(serviceData(0xFEAA, new byte[] {0x10, -20, 0x03, 'a', 'b'}), key));
+        // Length byte running past the end
+        byte[] truncated = manufacturer(0x004C, idFrame(0x02, 0x15, UUID, 7, 9, -59));
+        assertFalse(parser.parse(Arrays.copyOf(truncated, truncated.length - 3), key));
+    }
+
+    @Test
+    public void rejectsConfigsWithMalformedIds() {
+        BeaconConfig config = new BeaconConfig();
+        config.setEnabled(true);
+        config.setFrameType(BeaconKey.TYPE_EDDYSTONE_UID);
+        config.setNamespaceId("not-hex-at-all-000000");
+        config.setInstanceId(INSTANCE);
+        assertFalse(new BeaconKey().setFrom(config));
+
+        config.setFrameType("unknown");
+        assertFalse(new BeaconKey().setFrom(config));
+    }
+
+    private static BeaconKey keyOf(BeaconConfig config) {
+        BeaconKey k = new BeaconKey();
+        assertTrue(k.setFrom(config));
+        return k;
+    }
+
+    private static BeaconConfig iBeaconConfig(int major, int minor) {
+        BeaconConfig c = new BeaconConfig();
+        c.setEnabled(true);
+        c.setUuid(UUID);
+        c.setMajor(major);
+        c.setMinor(minor);
+        return c;
+    }
+
+    private static byte[] flags() {
+        return new byte[] {2, 0x01, 0x06};
+    }
+
+    // iBeacon and AltBeacon share the layout: 2-byte code, 16-byte ID, major, minor, TX power
+    private static byte[] idFrame(int code0, int code1, String uuid, int major, int minor, int txPower) {
+        java.util.UUID u = java.util.UUID.fromString(uuid);
+        byte[] d = new byte[24];
+        d[0] = (byte) code0;
+        d[1] = (byte) code1;
+        for (int i = 0; i < 8; i++) {
+            d[2 + i] = (byte) (u.getMostSignificantBits() >>> (56 - 8 * i));
+            d[10 + i] = (byte) (u.getLeastSignificantBits() >>> (56 - 8 * i));
+        }
+        d[18] = (byte) (major >> 8);
+        d[19] = (byte) major;
+        d[20] = (byte) (minor >> 8);
+        d[21] = (byte) minor;
+        d[22] = (byte) txPower;
+        return d;
+    }
+
+    private static byte[] eddystoneUid(int txAtZero) {
+        byte[] d = new byte[20];
+        d[0] = 0x00;
+        d[1] = (byte) txAtZero;
+        String id = NAMESPACE + INSTANCE;
+        for (int i = 0; i < 16; i++) d[2 + i] = (byte) Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16);
+        return serviceData(0xFEAA, d);
+    }
+
+    private static byte[] manufacturer(int companyId, byte[] data) {
+        return structure(0xFF, companyId, data);
+    }
+
+    private static byte[] serviceData(int uuid16, byte[] data) {
+        return structure(0x16, uuid16, data);
+    }
+
+    private static byte[] structure(int type, int id, byte[] data) {
+        byte[] s = new byte[4 + data.length];
+        s[0] = (byte) (3 + data.length);
+        s[1] = (byte) type;
+        s[2] = (byte) id;
+        s[3] = (byte) (id >> 8);
+        System.arraycopy(data, 0, s, 4, data.length);
+        return s;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int n = 0;
+        for (byte[] p : parts) n += p.length;
+        byte[] out = new byte[n];
+        int o = 0;
+        for (byte[] p : parts) {
+            System.arraycopy(p, 0, out, o, p.length);
+            o += p.length;
+        }
+        return out;
+    }
+}
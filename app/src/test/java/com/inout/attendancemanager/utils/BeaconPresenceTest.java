@@ -0,0 +1,47 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BeaconPresenceTest {
+
+    private static final long EXIT_AFTER = 600_000L;
+
+    @Test
+    public void firstSightingEntersOnce() {
+        BeaconPresence p = new BeaconPresence();
+        assertEquals(BeaconPresence.Transition.ENTER, p.onSighting("b1", 1_000));
+        assertEquals(BeaconPresence.Transition.NONE, p.onSighting("b1", 61_000));
+        assertTrue(p.isInside());
+    }
+
+    @Test
+    public void shortGapDoesNotExit() {
+        BeaconPresence p = new BeaconPresence();
+        p.onSighting("b1", 0);
+        assertEquals(BeaconPresence.Transition.NONE, p.onCheck(EXIT_AFTER - 1, EXIT_AFTER));
+        p.onSighting("b1", EXIT_AFTER - 1);
+        assertEquals(BeaconPresence.Transition.NONE, p.onCheck(EXIT_AFTER + 1, EXIT_AFTER));
+    }
+
+    @Test
+    public void exitsAfterTimeoutThenReenters() {
+        BeaconPresence p = new BeaconPresence();
+        p.onSighting("b1", 0);
+        assertEquals(BeaconPresence.Transition.EXIT, p.onCheck(EXIT_AFTER, EXIT_AFTER));
+        assertEquals(BeaconPresence.Transition.NONE, p.onCheck(2 * EXIT_AFTER, EXIT_AFTER));
+        assertEquals(BeaconPresence.Transition.ENTER, p.onSighting("b2", 2 * EXIT_AFTER));
+        assertEquals("b2", p.getBeaconId());
+    }
+
+    @Test
+    public void lateBatchIsIgnored() {
+        BeaconPresence p = new BeaconPresence();
+        p.onSighting("b1", 10_000);
+        p.onCheck(10_000 + EXIT_AFTER, EXIT_AFTER);
+        // A batch recorded before the exit arrives afterwards
+        assertEquals(BeaconPresence.Transition.NONE, p.onSighting("b1", 9_000));
+        assertFalse(p.isInside());
+    }
+}
@@ -0,0 +1,55 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BeaconRangeEstimatorTest {
+
+    @Test
+    public void distanceIsOneMetreAtCalibratedPower() {
+        assertEquals(1.0, BeaconRangeEstimator.distanceFor(-59, -59), 1e-9);
+        assertTrue(BeaconRangeEstimator.distanceFor(-75, -59) > 4.0);
+        assertEquals(-75, BeaconRangeEstimator.rssiAt(BeaconRangeEstimator.distanceFor(-75, -59), -59));
+    }
+
+    @Test
+    public void medianIgnoresASingleSpike() {
+        BeaconRangeEstimator e = new BeaconRangeEstimator(1);
+        int[] readings = {-78, -77, -79, -50, -78};
+        for (int r : readings) e.add(0, r, -59);
+        assertEquals(-78, e.medianRssi(0));
+    }
+
+    @Test
+    public void oldReadingsLeaveTheWindow() {
+        BeaconRangeEstimator e = new BeaconRangeEstimator(1);
+        for (int i = 0; i < BeaconRangeEstimator.WINDOW; i++) e.add(0, -90, -59);
+        for (int i = 0; i < BeaconRangeEstimator.WINDOW; i++) e.add(0, -60, -59);
+        assertEquals(-60, e.medianRssi(0));
+        assertEquals(BeaconRangeEstimator.WINDOW, e.samples(0));
+    }
+
+    @Test
+    public void confidenceGrowsWithAgreeingReadings() {
+        BeaconRangeEstimator e = new BeaconRangeEstimator(2);
+        e.add(0, -65, -59);
+        double single = e.confidence(0);
+        for (int i = 0; i < 4; i++) e.add(0, -65, -59);
+        assertTrue(e.confidence(0) > single);
+        assertEquals(1.0, e.confidence(0), 1e-9);
+
+        // Same count, scattered readings
+        int[] noisy = {-55, -75, -62, -80, -66};
+        for (int r : noisy) e.add(1, r, -59);
+        assertTrue(e.confidence(1) < e.confidence(0));
+    }
+
+    @Test
+    public void zeroTxPowerFallsBackToDefault() {
+        BeaconRangeEstimator e = new BeaconRangeEstimator(1);
+        e.add(0, BeaconRangeEstimator.DEFAULT_TX_POWER, 0);
+        assertEquals(1.0, e.distance(0), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, new BeaconRangeEstimator(1).distance(0), 0.0);
+    }
+}
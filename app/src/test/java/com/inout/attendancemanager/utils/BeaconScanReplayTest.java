@@ -0,0 +1,169 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Record/replay round trip on a synthetic office scan: a near and a far configured beacon among
+ * foreign adverts. Replays must reach the same decision every time; with -Pbenchmarks, also prints
+ * replay throughput.
+ */
+public class BeaconScanReplayTest {
+
+    private static final UUID OFFICE = UUID.fromString("FDA50693-A4E2-4FB1-AFCF-C6EB07647825");
+    private static final long START_MS = 5_000_000L;
+    private static final long TIMEOUT_MS = 6_000;
+
+    private List<BeaconConfig> configs;
+    private List<BeaconScanReplayer.Advert> recorded;
+    private byte[] recording;
+
+    @Before
+    public void setUp() throws IOException {
+        configs = new ArrayList<>();
+        configs.add(config("near", 1, 1));
+        configs.add(config("far", 1, 2));
+
+        Random random = new Random(7);
+        recorded = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BeaconScanRecorder recorder = new BeaconScanRecorder(bytes, START_MS)) {
+            for (long t = 40; t < TIMEOUT_MS; t += 30 + random.nextInt(40)) {
+                byte[] data;
+                int rssi;
+                int kind = random.nextInt(10);
+                if (kind < 2) {
+                    data = iBeacon(OFFICE, 1, 1);
+                    rssi = -62 + random.nextInt(5) - 2;
+                } else if (kind < 4) {
+                    data = iBeacon(OFFICE, 1, 2);
+                    rssi = -84 + random.nextInt(5) - 2;
+                } else if (kind < 7) {
+                    data = iBeacon(OFFICE, 9, random.nextInt(65536));
+                    rssi = -50 - random.nextInt(40);
+                } else {
+                    data = null;  // flags only, no beacon frame
+                    rssi = -50 - random.nextInt(40);
+                }
+                byte[] record = data != null ? record(data) : new byte[] {2, 0x01, 0x06};
+                recorder.write(START_MS + t, rssi, record);
+                recorded.add(new BeaconScanReplayer.Advert(t, rssi, record));
+            }
+        }
+        recording = bytes.toByteArray();
+    }
+
+    @Test
+    public void recordingRoundTrips() throws IOException {
+        List<BeaconScanReplayer.Advert> read = BeaconScanReplayer.read(new ByteArrayInputStream(recording));
+        assertEquals(recorded.size(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(recorded.get(i).elapsedMs, read.get(i).elapsedMs);
+            assertEquals(recorded.get(i).rssi, read.get(i).rssi);
+            assertArrayEquals(recorded.get(i).scanRecord, read.get(i).scanRecord);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        BeaconScanReplayer.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void replayIsDeterministic() throws Exception {
+        List<BeaconScanReplayer.Advert> adverts = BeaconScanReplayer.read(new ByteArrayInputStream(recording));
+        BeaconDecisionPipeline pipeline = new BeaconDecisionPipeline(configs, BeaconConfirmation.Policy.EARLY_EXIT);
+        BeaconScanReplayer.Decision first = BeaconScanReplayer.replay(adverts, pipeline, TIMEOUT_MS, false);
+        BeaconScanReplayer.Decision second = BeaconScanReplayer.replay(adverts, pipeline, TIMEOUT_MS, false);
+
+        assertEquals(first.best.getBeaconId(), second.best.getBeaconId());
+        assertEquals(first.best.getRssi(), second.best.getRssi());
+        assertEquals(first.decisionMs, second.decisionMs);
+        assertEquals(first.adverts, second.adverts);
+    }
+
+    @Test
+    public void earlyExitAgreesWithFullWindow() throws Exception {
+        List<BeaconScanReplayer.Advert> adverts = BeaconScanReplayer.read(new ByteArrayInputStream(recording));
+        BeaconScanReplayer.Decision early = BeaconScanReplayer.replay(adverts,
+                new BeaconDecisionPipeline(configs, BeaconConfirmation.Policy.EARLY_EXIT), TIMEOUT_MS, false);
+        BeaconScanReplayer.Decision full = BeaconScanReplayer.replay(adverts,
+                new BeaconDecisionPipeline(configs, BeaconConfirmation.Policy.FULL_WINDOW), TIMEOUT_MS, false);
+
+        assertTrue(early.early);
+        assertTrue(early.decisionMs < 1_500);
+        assertFalse(full.early);
+        assertEquals(TIMEOUT_MS, full.decisionMs);
+        assertEquals("near", early.best.getBeaconId());
+        assertEquals("near", full.best.getBeaconId());
+    }
+
+    @Test
+    public void printsReplayThroughput() throws Exception {
+        MicroBenchmark.assumeEnabled();
+        List<BeaconScanReplayer.Advert> adverts = BeaconScanReplayer.read(new ByteArrayInputStream(recording));
+        BeaconDecisionPipeline pipeline = new BeaconDecisionPipeline(configs, BeaconConfirmation.Policy.FULL_WINDOW);
+        for (int i = 0; i < 200; i++) BeaconScanReplayer.replay(adverts, pipeline, TIMEOUT_MS, false);
+
+        int runs = 2_000;
+        long fed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) fed += BeaconScanReplayer.replay(adverts, pipeline, TIMEOUT_MS, false).adverts;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.US, "Replay: %d adverts/scan, %.0f adverts/s, %d bytes recorded",
+                adverts.size(), fed / seconds, recording.length));
+    }
+
+    private static BeaconConfig config(String id, int major, int minor) {
+        BeaconConfig c = new BeaconConfig();
+        c.setBeaconId(id);
+        c.setUuid(OFFICE.toString().toUpperCase(Locale.US));
+        c.setMajor(major);
+        c.setMinor(minor);
+        c.setRssiThreshold(-75);
+        c.setLabel(id);
+        c.setEnabled(true);
+        return c;
+    }
+
+    private static byte[] record(byte[] appleData) {
+        byte[] r = new byte[4 + appleData.length];
+        r[0] = (byte) (3 + appleData.length);
+        r[1] = (byte) 0xFF;
+        r[2] = 0x4C;
+        r[3] = 0x00;
+        System.arraycopy(appleData, 0, r, 4, appleData.length);
+        return r;
+    }
+
+    private static byte[] iBeacon(UUID uuid, int major, int minor) {
+        byte[] d = new byte[BeaconFrameDecoders.IBeacon.LENGTH];
+        d[0] = 0x02;
+        d[1] = 0x15;
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            d[2 + i] = (byte) (msb >>> (56 - 8 * i));
+            d[10 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        d[18] = (byte) (major >> 8);
+        d[19] = (byte) major;
+        d[20] = (byte) (minor >> 8);
+        d[21] = (byte) minor;
+        d[22] = (byte) -59;
+        return d;
+    }
+}
@@ -0,0 +1,174 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.BeaconConfig;
+import com.inout.attendancemanager.utils.MicroBenchmark.Result;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JVM microbenchmark: BeaconFrameParser + BeaconTable against the per-packet parse and linear config
+ * scan they replaced, over a recorded-style mix of office advertisements. Checks both resolve every
+ * payload to the same config; with -Pbenchmarks, also prints ns/op and bytes/op.
+ */
+public class BeaconTableBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 500_000;
+    private static final int CONFIGS = 40;
+    private static final int PAYLOADS = 4_096;
+
+    private List<BeaconConfig> configs;
+    private byte[][] payloads;  // Apple manufacturer data, as the legacy path read it
+    private byte[][] records;   // the same inside a raw scan record
+    private final BeaconFrameParser parser = new BeaconFrameParser();
+    private final BeaconKey key = new BeaconKey();
+    private BeaconTable table;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        // Offices usually share one UUID and tell beacons apart by major/minor
+        UUID office = new UUID(random.nextLong(), random.nextLong());
+        configs = new ArrayList<>();
+        for (int i = 0; i < CONFIGS; i++) {
+            BeaconConfig c = new BeaconConfig();
+            c.setBeaconId("b" + i);
+            c.setUuid((i % 8 == 7 ? new UUID(random.nextLong(), random.nextLong()) : office)
+                    .toString().toUpperCase(Locale.US));
+            c.setMajor(1 + i / 10);
+            c.setMinor(i % 10);
+            c.setRssiThreshold(-75);
+            c.setLabel("Beacon " + i);
+            c.setEnabled(i % 13 != 12);
+            configs.add(c);
+        }
+        table = new BeaconTable(configs);
+
+        // ~25% ours, ~35% foreign iBeacons (some with our UUID), the rest other Apple adverts
+        payloads = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 25) {
+                BeaconConfig c = configs.get(random.nextInt(CONFIGS));
+                payloads[i] = iBeacon(UUID.fromString(c.getUuid()), c.getMajor(), c.getMinor());
+            } else if (kind < 45) {
+                payloads[i] = iBeacon(office, 1 + random.nextInt(10), random.nextInt(65536));
+            } else if (kind < 60) {
+                payloads[i] = iBeacon(new UUID(random.nextLong(), random.nextLong()),
+                        random.nextInt(65536), random.nextInt(65536));
+            } else {
+                byte[] other = new byte[4 + random.nextInt(24)];
+                random.nextBytes(other);
+                other[0] = (byte) (0x05 + random.nextInt(12));  // nearby/handoff style types
+                payloads[i] = other;
+            }
+        }
+        records = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) records[i] = record(payloads[i]);
+    }
+
+    @Test
+    public void matchesLegacyLookup() {
+        int matched = 0;
+        for (int i = 0; i < PAYLOADS; i++) {
+            BeaconConfig legacy = Legacy.lookup(configs, payloads[i]);
+            int index = lookup(records[i]);
+            assertEquals(legacy, index < 0 ? null : table.config(index));
+            if (legacy != null) matched++;
+        }
+        // The mix has to exercise both outcomes
+        assertTrue(matched > 0 && matched < PAYLOADS);
+    }
+
+    @Test
+    public void allocatesNothingPerPacket() {
+        MicroBenchmark.assumeEnabled();
+        Result legacy = MicroBenchmark.measure(
+                i -> Legacy.lookup(configs, payloads[i & (PAYLOADS - 1)]) != null, WARMUP, ITERATIONS);
+        Result current = MicroBenchmark.measure(i -> lookup(records[i & (PAYLOADS - 1)]) >= 0, WARMUP, ITERATIONS);
+
+        System.out.println(String.format(Locale.US,
+                "iBeacon lookup  legacy %7.1f ns/op %5d B/op | table %7.1f ns/op %5d B/op",
+                legacy.nanosPerOp, legacy.bytesPerOp, current.nanosPerOp, current.bytesPerOp));
+
+        if (current.bytesPerOp >= 0) assertEquals(0, current.bytesPerOp);
+    }
+
+    private int lookup(byte[] record) {
+        return parser.parse(record, key) ? table.lookup(key) : -1;
+    }
+
+    private static byte[] iBeacon(UUID uuid, int major, int minor) {
+        byte[] d = new byte[BeaconFrameDecoders.IBeacon.LENGTH];
+        d[0] = 0x02;
+        d[1] = 0x15;
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            d[2 + i] = (byte) (msb >>> (56 - 8 * i));
+            d[10 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        d[18] = (byte) (major >> 8);
+        d[19] = (byte) major;
+        d[20] = (byte) (minor >> 8);
+        d[21] = (byte) minor;
+        d[22] = (byte) -59;
+        return d;
+    }
+
+    // Flags, then the manufacturer data under Apple's company ID, as a phone receives it
+    private static byte[] record(byte[] data) {
+        byte[] r = new byte[3 + 4 + data.length];
+        r[0] = 2;
+        r[1] = 0x01;
+        r[2] = 0x06;
+        r[3] = (byte) (3 + data.length);
+        r[4] = (byte) 0xFF;
+        r[5] = 0x4C;
+        r[6] = 0x00;
+        System.arraycopy(data, 0, r, 7, data.length);
+        return r;
+    }
+
+    // BeaconScanner.parseIBeacon as it was, minus the logging and result bookkeeping
+    private static final class Legacy {
+        static BeaconConfig lookup(List<BeaconConfig> configs, byte[] data) {
+            if (data.length < 23 || data[0] != 0x02 || data[1] != 0x15) return null;
+
+            byte[] uuidBytes = new byte[16];
+            System.arraycopy(data, 2, uuidBytes, 0, 16);
+            String uuid = parseUUID(uuidBytes).toString().toLowerCase();
+
+            int major = ((data[18] & 0xFF) << 8) | (data[19] & 0xFF);
+            int minor = ((data[20] & 0xFF) << 8) | (data[21] & 0xFF);
+
+            for (BeaconConfig config : configs) {
+                if (config.isEnabled() &&
+                        uuid.equals(config.getUuid().toLowerCase()) &&
+                        major == config.getMajor() &&
+                        minor == config.getMinor()) {
+                    return config;
+                }
+            }
+            return null;
+        }
+
+        static UUID parseUUID(byte[] bytes) {
+            long mostSig = 0;
+            long leastSig = 0;
+            for (int i = 0; i < 8; i++) mostSig = (mostSig << 8) | (bytes[i] & 0xFF);
+            for (int i = 8; i < 16; i++) leastSig = (leastSig << 8) | (bytes[i] & 0xFF);
+            return new UUID(mostSig, leastSig);
+        }
+    }
+}
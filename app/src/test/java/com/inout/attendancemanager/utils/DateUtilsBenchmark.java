@@ -0,0 +1,138 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.utils.MicroBenchmark.Result;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JVM microbenchmark: DateUtils against the SimpleDateFormat-per-call version it replaced.
+ * Checks the outputs match; with -Pbenchmarks, also prints ns/op and bytes/op for each call.
+ */
+public class DateUtilsBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    private Locale savedLocale;
+    private TimeZone savedZone;
+
+    @Before
+    public void setUp() {
+        savedLocale = Locale.getDefault();
+        savedZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(savedLocale);
+        TimeZone.setDefault(savedZone);
+        DateUtils.invalidate();
+    }
+
+    @Test
+    public void matchesLegacyOutput() {
+        for (String zone : new String[]{"UTC", "Asia/Kolkata", "America/New_York", "Australia/Adelaide"}) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            DateUtils.invalidate();
+
+            assertEquals(Legacy.getTodayDateId(), DateUtils.getTodayDateId());
+            assertEquals(Legacy.getCurrentMonthId(), DateUtils.getCurrentMonthId());
+            // Spread over a few years, including DST switches
+            for (long t = 1_600_000_000_000L; t < 1_700_000_000_000L; t += 7_919_999_999L / 7) {
+                Date d = new Date(t);
+                assertEquals(zone, Legacy.formatTime(d), DateUtils.formatTime(d));
+                assertEquals(zone, Legacy.formatDate(d), DateUtils.formatDate(d));
+                assertEquals(zone, Legacy.formatDateTime(d), DateUtils.formatDateTime(d));
+            }
+        }
+        for (long m : new long[]{-5, 0, 1, 59, 60, 61, 545, 5999, 6000, 123_456}) {
+            assertEquals(Legacy.formatDuration(m), DateUtils.formatDuration(m));
+        }
+    }
+
+    @Test
+    public void allocatesLessThanLegacy() {
+        MicroBenchmark.assumeEnabled();
+        Date date = new Date(1_736_154_000_000L);
+
+        Result legacyId = measure(() -> Legacy.getTodayDateId());
+        Result newId = measure(() -> DateUtils.getTodayDateId());
+        Result legacyTime = measure(() -> Legacy.formatTime(date));
+        Result newTime = measure(() -> DateUtils.formatTime(date));
+        Result legacyDur = measure(() -> Legacy.formatDuration(545));
+        Result newDur = measure(() -> DateUtils.formatDuration(545));
+        Result legacyDate = measure(() -> Legacy.formatDate(date));
+        Result newDate = measure(() -> DateUtils.formatDate(date));
+
+        report("getTodayDateId", legacyId, newId);
+        report("formatTime", legacyTime, newTime);
+        report("formatDuration", legacyDur, newDur);
+        report("formatDate", legacyDate, newDate);
+
+        if (legacyId.bytesPerOp >= 0) {
+            assertTrue(newId.bytesPerOp < legacyId.bytesPerOp);
+            assertTrue(newTime.bytesPerOp < legacyTime.bytesPerOp);
+            assertTrue(newDur.bytesPerOp < legacyDur.bytesPerOp);
+        }
+    }
+
+    private static Result measure(Supplier<Object> op) {
+        return MicroBenchmark.measure(i -> op.get() != null, WARMUP, ITERATIONS);
+    }
+
+    private static void report(String name, Result legacy, Result current) {
+        System.out.println(String.format(Locale.US,
+                "%-15s legacy %7.1f ns/op %5d B/op | new %7.1f ns/op %5d B/op",
+                name, legacy.nanosPerOp, legacy.bytesPerOp, current.nanosPerOp, current.bytesPerOp));
+    }
+
+    // DateUtils as it was before the formatter cache
+    private static final class Legacy {
+        static String getTodayDateId() {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+            return sdf.format(new Date());
+        }
+
+        static String getCurrentMonthId() {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
+            return sdf.format(new Date());
+        }
+
+        static String formatTime(Date date) {
+            if (date == null) return "--:--";
+            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.getDefault());
+            return sdf.format(date);
+        }
+
+        static String formatDuration(long minutes) {
+            if (minutes <= 0) return "00:00";
+            long hours = minutes / 60;
+            long mins = minutes % 60;
+            return String.format(Locale.getDefault(), "%02d:%02d", hours, mins);
+        }
+
+        static String formatDate(Date date) {
+            if (date == null) return "";
+            SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
+            return sdf.format(date);
+        }
+
+        static String formatDateTime(Date date) {
+            if (date == null) return "";
+            SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy, HH:mm", Locale.getDefault());
+            return sdf.format(date);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DateUtilsTest {
+
+    private TimeZone previousZone;
+    private Locale previousLocale;
+
+    @Before
+    public void setUp() {
+        previousZone = TimeZone.getDefault();
+        previousLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(previousZone);
+        Locale.setDefault(previousLocale);
+    }
+
+    @Test
+    public void followsTheDefaultZoneWithoutInvalidate() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        assertEquals("05:30", DateUtils.formatTime(new Date(0)));
+        assertEquals(todayIn("Asia/Kolkata"), DateUtils.getTodayDateId());
+
+        // Nothing calls invalidate(), as when the zone changes with no receiver listening
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        assertEquals("19:00", DateUtils.formatTime(new Date(0)));
+        assertEquals("31 Dec 1969", DateUtils.formatDate(new Date(0)));
+        assertEquals(todayIn("America/New_York"), DateUtils.getTodayDateId());
+
+        long untilMidnight = DateUtils.millisUntilNextMidnight();
+        assertTrue(untilMidnight > 0 && untilMidnight <= 25 * 60 * 60 * 1000L);
+        SimpleDateFormat dateId = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateId.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+        assertEquals(dateId.format(new Date(System.currentTimeMillis() + untilMidnight - 1)),
+                DateUtils.getTodayDateId());
+    }
+
+    private static String todayIn(String zone) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone(zone));
+        return format.format(new Date());
+    }
+}
@@ -0,0 +1,41 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeofenceDecisionTest {
+
+    @Test
+    public void preciseFixesDecide() {
+        assertEquals(GeofenceDecision.Verdict.INSIDE, GeofenceDecision.decide(80, 100, true, 5f, 1_000L).verdict);
+        assertEquals(GeofenceDecision.Verdict.OUTSIDE, GeofenceDecision.decide(120, 100, true, 5f, 1_000L).verdict);
+    }
+
+    @Test
+    public void coarseFixNearTheEdgeIsUncertain() {
+        // The raw distance says inside, but ±150 m could as well be the car park
+        GeofenceDecision inside = GeofenceDecision.decide(80, 100, true, 150f, 1_000L);
+        assertEquals(GeofenceDecision.Verdict.UNCERTAIN, inside.verdict);
+        assertTrue(inside.probabilityInside > 0.5);
+        // ...and says outside, where a precise check would have passed
+        assertEquals(GeofenceDecision.Verdict.UNCERTAIN, GeofenceDecision.decide(130, 100, true, 150f, 1_000L).verdict);
+        // Far enough out, even a coarse fix is decisive
+        assertEquals(GeofenceDecision.Verdict.OUTSIDE, GeofenceDecision.decide(2_000, 100, true, 150f, 1_000L).verdict);
+    }
+
+    @Test
+    public void staleOrUnratedFixesCountAsWorse() {
+        assertEquals(GeofenceDecision.Verdict.INSIDE, GeofenceDecision.decide(60, 100, true, 10f, 0L).verdict);
+        assertEquals(GeofenceDecision.Verdict.UNCERTAIN, GeofenceDecision.decide(60, 100, true, 10f, 180_000L).verdict);
+        assertEquals(GeofenceDecision.Verdict.UNCERTAIN, GeofenceDecision.decide(60, 100, false, 0f, 0L).verdict);
+    }
+
+    @Test
+    public void normalCdfMatchesTables() {
+        assertEquals(0.5, GeofenceDecision.normalCdf(0), 1e-7);
+        assertEquals(0.841345, GeofenceDecision.normalCdf(1), 1e-6);
+        assertEquals(0.022750, GeofenceDecision.normalCdf(-2), 1e-6);
+        assertEquals(0.998650, GeofenceDecision.normalCdf(3), 1e-6);
+    }
+}
@@ -0,0 +1,206 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Accuracy of the distance kernel against Location.distanceBetween on a fixed corpus: short office
+ * hops, cross-country and intercontinental pairs, poles, the antimeridian and near-antipodes.
+ */
+public class GeofenceUtilsTest {
+
+    private final List<double[]> corpus = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            double lat = -89 + 178 * random.nextDouble();
+            double lon = -180 + 360 * random.nextDouble();
+            // Office scale, city scale, then anywhere
+            double spread = i % 3 == 0 ? 0.01 : i % 3 == 1 ? 1 : 90;
+            double lat2 = Math.max(-90, Math.min(90, lat + spread * random.nextGaussian()));
+            double lon2 = lon + spread * random.nextGaussian();
+            corpus.add(new double[] { lat, lon, lat2, lon2 > 180 ? lon2 - 360 : lon2 < -180 ? lon2 + 360 : lon2 });
+        }
+        corpus.add(new double[] { 0, 0, 0, 0 });
+        corpus.add(new double[] { 0, 0, 0, 90 });
+        corpus.add(new double[] { 0, 179.9995, 0, -179.9999 });
+        corpus.add(new double[] { 90, 0, -90, 0 });
+        corpus.add(new double[] { 89.9999, 10, 89.9999, -170 });
+        corpus.add(new double[] { 10, 20, -10.5, -159.7 });
+        corpus.add(new double[] { 28.6139, 77.2090, 28.6140, 77.2091 });
+    }
+
+    @Test
+    public void agreesWithLocationToFloatPrecision() {
+        for (double[] p : corpus) {
+            float expected = AndroidLocation.distanceBetween(p[0], p[1], p[2], p[3]);
+            float actual = GeofenceUtils.distanceMeters(p[0], p[1], p[2], p[3]);
+            assertEquals(String.format(Locale.US, "%.6f,%.6f -> %.6f,%.6f", p[0], p[1], p[2], p[3]),
+                    expected, actual, Math.max(1e-3f, Math.ulp(expected)));
+        }
+    }
+
+    @Test
+    public void matchesPublishedGeodesic() {
+        // Flinders Peak to Buninyong, the worked example in Vincenty (1975)
+        double meters = GeofenceUtils.vincenty(-(37 + 57 / 60.0 + 3.72030 / 3600), 144 + 25 / 60.0 + 29.52440 / 3600,
+                -(37 + 39 / 60.0 + 10.15610 / 3600), 143 + 55 / 60.0 + 35.38390 / 3600);
+        assertEquals(54_972.271, meters, 1e-3);
+    }
+
+    @Test
+    public void haversineStaysWithinSphereError() {
+        for (double[] p : corpus) {
+            double expected = AndroidLocation.distanceBetween(p[0], p[1], p[2], p[3]);
+            if (expected < 1 || expected > 19_000_000) continue;  // below float resolution, or near-antipodal
+            double error = Math.abs(GeofenceUtils.haversine(p[0], p[1], p[2], p[3]) - expected) / expected;
+            assertTrue("haversine off by " + error, error < 0.006);
+        }
+    }
+
+    @Test
+    public void prefilterNeverDropsAnOffice() {
+        Random random = new Random(11);
+        int n = 512;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        float[] radii = new float[n];
+        double[] scratch = new double[n];
+        int[] hits = new int[n];
+        for (int round = 0; round < 200; round++) {
+            double lat = -89.9 + 179.8 * random.nextDouble();
+            double lon = round % 10 == 0 ? 179.99 : -180 + 360 * random.nextDouble();
+            for (int i = 0; i < n; i++) {
+                lats[i] = Math.max(-90, Math.min(90, lat + 0.02 * random.nextGaussian()));
+                double l = lon + 0.02 * random.nextGaussian() / Math.max(0.05, Math.cos(Math.toRadians(lat)));
+                lons[i] = l > 180 ? l - 360 : l < -180 ? l + 360 : l;
+                radii[i] = 20 + random.nextInt(5_000);
+            }
+            int count = GeofenceUtils.within(lat, lon, lats, lons, radii, n, 25, scratch, hits);
+
+            int[] expected = new int[n];
+            int expectedCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (GeofenceUtils.vincenty(lat, lon, lats[i], lons[i]) <= radii[i] + 25) expected[expectedCount++] = i;
+            }
+            assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(hits, count));
+        }
+    }
+
+    @Test
+    public void batchBeatsOneDistancePerOffice() {
+        MicroBenchmark.assumeEnabled();
+        Random random = new Random(3);
+        int n = 1_024;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        float[] radii = new float[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = 28 + random.nextDouble();
+            lons[i] = 77 + random.nextDouble();
+            radii[i] = 100 + random.nextInt(400);
+        }
+        double[] scratch = new double[n];
+        int[] hits = new int[n];
+        int rounds = 2_000;
+        int sink = 0;
+
+        for (int warm = 0; warm < 2; warm++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < n; i++) {
+                    if (AndroidLocation.distanceBetween(28.5, 77.5, lats[i], lons[i]) <= radii[i]) sink++;
+                }
+            }
+            long legacy = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) sink += GeofenceUtils.within(28.5, 77.5, lats, lons, radii, n, 0, scratch, hits);
+            long batch = System.nanoTime() - start;
+            if (warm == 1) {
+                System.out.println(String.format(Locale.US, "%d offices  legacy %9.1f ns/op | batch %9.1f ns/op",
+                        n, (double) legacy / rounds, (double) batch / rounds));
+            }
+        }
+        assertTrue(sink >= 0);
+    }
+
+    // Location.computeDistanceAndBearing from AOSP, distance only, as the device computes it
+    private static final class AndroidLocation {
+        static float distanceBetween(double lat1, double lon1, double lat2, double lon2) {
+            int MAXITERS = 20;
+            lat1 *= Math.PI / 180.0;
+            lat2 *= Math.PI / 180.0;
+            lon1 *= Math.PI / 180.0;
+            lon2 *= Math.PI / 180.0;
+
+            double a = 6378137.0;
+            double b = 6356752.3142;
+            double f = (a - b) / a;
+            double aSqMinusBSqOverBSq = (a * a - b * b) / (b * b);
+
+            double L = lon2 - lon1;
+            double A = 0.0;
+            double U1 = Math.atan((1.0 - f) * Math.tan(lat1));
+            double U2 = Math.atan((1.0 - f) * Math.tan(lat2));
+
+            double cosU1 = Math.cos(U1);
+            double cosU2 = Math.cos(U2);
+            double sinU1 = Math.sin(U1);
+            double sinU2 = Math.sin(U2);
+            double cosU1cosU2 = cosU1 * cosU2;
+            double sinU1sinU2 = sinU1 * sinU2;
+
+            double sigma = 0.0;
+            double deltaSigma = 0.0;
+            double cosSqAlpha;
+            double cos2SM;
+            double cosSigma;
+            double sinSigma;
+            double cosLambda;
+            double sinLambda;
+
+            double lambda = L;
+            for (int iter = 0; iter < MAXITERS; iter++) {
+                double lambdaOrig = lambda;
+                cosLambda = Math.cos(lambda);
+                sinLambda = Math.sin(lambda);
+                double t1 = cosU2 * sinLambda;
+                double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+                double sinSqSigma = t1 * t1 + t2 * t2;
+                sinSigma = Math.sqrt(sinSqSigma);
+                cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+                sigma = Math.atan2(sinSigma, cosSigma);
+                double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+                cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+                cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+                double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+                A = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+                double B = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+                double C = (f / 16.0) * cosSqAlpha * (4.0 + f * (4.0 - 3.0 * cosSqAlpha));
+                double cos2SMSq = cos2SM * cos2SM;
+                deltaSigma = B * sinSigma * (cos2SM + (B / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                        - (B / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+                lambda = L + (1.0 - C) * f * sinAlpha
+                        * (sigma + C * sinSigma * (cos2SM + C * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+
+                double delta = (lambda - lambdaOrig) / lambda;
+                if (Math.abs(delta) < 1.0e-12) break;
+            }
+            return (float) (b * A * (sigma - deltaSigma));
+        }
+    }
+}
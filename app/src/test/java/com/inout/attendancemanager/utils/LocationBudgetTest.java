@@ -0,0 +1,41 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocationBudgetTest {
+
+    private final LocationBudget budget = new LocationBudget(60_000L, 50f, 9_000L);
+
+    @Test
+    public void acceptsOnlyRecentAccurateFixes() {
+        assertTrue(budget.accepts(5_000L, true, 20f));
+        assertTrue(budget.accepts(60_000L, true, 50f));
+        assertFalse(budget.accepts(60_001L, true, 20f));
+        assertFalse(budget.accepts(5_000L, true, 51f));
+        assertFalse(budget.accepts(5_000L, false, 0f));
+        // Clock skew: a fix from the future is not trusted
+        assertFalse(budget.accepts(-1L, true, 20f));
+    }
+
+    @Test
+    public void escalationSplitsTheDeadline() {
+        assertEquals(3_000L, budget.stageDurationMs(0, 0L));
+        assertEquals(6_000L, budget.stageDurationMs(1, 3_000L));
+        // A slow last-known lookup eats into both stages
+        assertEquals(1_000L, budget.stageDurationMs(0, 8_000L));
+        assertEquals(0L, budget.stageDurationMs(1, 9_500L));
+        assertEquals(0L, budget.stageDurationMs(2, 0L));
+    }
+
+    @Test
+    public void fittingFixBeatsMoreAccurateStaleOne() {
+        assertTrue(budget.better(1_000L, 40f, 120_000L, 5f));
+        assertFalse(budget.better(120_000L, 5f, 1_000L, 40f));
+        // Neither fits: the more accurate wins
+        assertTrue(budget.better(1_000L, 80f, 1_000L, 200f));
+        // Same accuracy: the newer wins
+        assertTrue(budget.better(1_000L, 30f, 2_000L, 30f));
+    }
+}
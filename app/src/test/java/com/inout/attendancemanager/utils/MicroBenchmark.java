@@ -0,0 +1,57 @@
+package com.inout.attendancemanager.utils;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Timing and allocation harness shared by the JVM microbenchmarks. Their measuring tests only run
+ * when asked for (./gradlew testDebugUnitTest -Pbenchmarks); the unit suite keeps the checks that
+ * the optimised code still agrees with what it replaced.
+ */
+final class MicroBenchmark {
+
+    private MicroBenchmark() {}
+
+    interface Op {
+        boolean run(int i);
+    }
+
+    static final class Result {
+        final double nanosPerOp;
+        final long bytesPerOp;  // -1 when the JVM can't tell
+
+        Result(double nanosPerOp, long bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    static void assumeEnabled() {
+        assumeTrue("Benchmarks run with -Pbenchmarks", Boolean.getBoolean("benchmarks"));
+    }
+
+    static Result measure(Op op, int warmup, int iterations) {
+        int sink = 0;
+        for (int i = 0; i < warmup; i++) if (op.run(i)) sink++;
+
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) if (op.run(i)) sink++;
+        long nanos = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+
+        if (sink == -1) System.out.println();  // keeps the results live
+        long bytesPerOp = bytesBefore < 0 ? -1 : (bytesAfter - bytesBefore) / iterations;
+        return new Result((double) nanos / iterations, bytesPerOp);
+    }
+
+    // -1 when the JVM can't report per-thread allocation
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+        if (!hotspot.isThreadAllocatedMemorySupported()) return -1;
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
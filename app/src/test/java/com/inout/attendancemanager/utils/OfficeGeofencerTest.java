@@ -0,0 +1,87 @@
+package com.inout.attendancemanager.utils;
+
+import com.google.android.gms.location.Geofence;
+import com.inout.attendancemanager.models.OfficeLocation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OfficeGeofencerTest {
+
+    private static final int DWELL = Geofence.GEOFENCE_TRANSITION_DWELL;
+    private static final int EXIT = Geofence.GEOFENCE_TRANSITION_EXIT;
+    private static final int ENTER = Geofence.GEOFENCE_TRANSITION_ENTER;
+
+    @Test
+    public void dwellPunchesInOnceAndExitPunchesOutOnce() {
+        assertEquals(OfficeGeofencer.Action.PUNCH_IN, OfficeGeofencer.decide(DWELL, null, ids("hq")));
+        // Redelivered dwell while already inside
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(DWELL, "hq", ids("hq")));
+        assertEquals(OfficeGeofencer.Action.PUNCH_OUT, OfficeGeofencer.decide(EXIT, "hq", ids("hq")));
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(EXIT, null, ids("hq")));
+    }
+
+    @Test
+    public void enterAloneAndOtherOfficesDoNotPunch() {
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(ENTER, null, ids("hq")));
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(EXIT, "hq", ids("annex")));
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(DWELL, "hq", ids("annex")));
+    }
+
+    @Test
+    public void exitFromSeveralFencesPunchesOutOfTheOneWeAreIn() {
+        // Neighbouring offices batched into one event, ours not first
+        assertEquals(OfficeGeofencer.Action.PUNCH_OUT, OfficeGeofencer.decide(EXIT, "hq", ids("annex", "hq")));
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(EXIT, "hq", ids("annex", "depot")));
+        // Overlapping fences dwelt in together punch in once
+        assertEquals(OfficeGeofencer.Action.PUNCH_IN, OfficeGeofencer.decide(DWELL, null, ids("annex", "hq")));
+        assertEquals(OfficeGeofencer.Action.NONE, OfficeGeofencer.decide(DWELL, "hq", ids("annex", "hq")));
+    }
+
+    @Test
+    public void insideFromAnotherDayOrAnUnfencedOfficeIsStale() {
+        List<String> fenced = ids("hq", "annex");
+        assertFalse(OfficeGeofencer.isStale(null, null, "2025-01-07", fenced));
+        assertFalse(OfficeGeofencer.isStale("hq", "2025-01-07", "2025-01-07", fenced));
+        assertFalse(OfficeGeofencer.isStale("hq", "2025-01-07", "2025-01-07", null));
+        // The exit was never delivered (reboot outside the fence), then a new day began
+        assertTrue(OfficeGeofencer.isStale("hq", "2025-01-06", "2025-01-07", null));
+        // Saved before the date was recorded
+        assertTrue(OfficeGeofencer.isStale("hq", null, "2025-01-07", fenced));
+        // The office dropped out of the fenced set, so its exit can't arrive
+        assertTrue(OfficeGeofencer.isStale("depot", "2025-01-07", "2025-01-07", fenced));
+    }
+
+    @Test
+    public void requestIdsRoundTripOfficeIds() {
+        OfficeLocation office = new OfficeLocation("pune:2", "Pune", 18.5, 73.8, 150f);
+        assertEquals("pune:2", OfficeGeofencer.officeId(OfficeGeofencer.requestId(office)));
+    }
+
+    @Test
+    public void fencesOwnOfficeFirstThenNearestUpToTheLimit() {
+        OfficeLocation home = new OfficeLocation("hq", "HQ", 19.0, 72.8, 200f);
+        List<OfficeLocation> indexed = new ArrayList<>();
+        // Farthest first, and the own office again
+        for (int i = OfficeGeofencer.MAX_GEOFENCES + 20; i > 0; i--) {
+            indexed.add(new OfficeLocation("o" + i, null, 19.0 + i * 0.01, 72.8, 100f));
+        }
+        indexed.add(home);
+
+        List<OfficeLocation> fenced = OfficeGeofencer.fenced(Collections.singletonList(home), indexed);
+        assertEquals(OfficeGeofencer.MAX_GEOFENCES, fenced.size());
+        assertEquals("hq", fenced.get(0).getOfficeId());
+        assertEquals("o1", fenced.get(1).getOfficeId());
+        assertEquals("o" + (OfficeGeofencer.MAX_GEOFENCES - 1), fenced.get(fenced.size() - 1).getOfficeId());
+    }
+
+    private static List<String> ids(String... officeIds) {
+        return Arrays.asList(officeIds);
+    }
+}
@@ -0,0 +1,137 @@
+package com.inout.attendancemanager.utils;
+
+import com.inout.attendancemanager.models.OfficeLocation;
+import com.inout.attendancemanager.utils.MicroBenchmark.Result;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JVM microbenchmark: OfficeIndex against a linear scan of every office, over thousands of offices
+ * clustered in cities. Checks both pick the same office for every fix; with -Pbenchmarks, also
+ * prints ns/op and bytes/op.
+ */
+public class OfficeIndexBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+    private static final int OFFICES = 5_000;
+    private static final int FIXES = 4_096;
+
+    private List<OfficeLocation> offices;
+    private OfficeIndex index;
+    private double[] lats;
+    private double[] lngs;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        // Offices bunch up in cities, which is where a k-d tree has to work hardest
+        double[][] cities = new double[60][];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new double[] { -60 + 130 * random.nextDouble(), -180 + 360 * random.nextDouble() };
+        }
+        cities[0] = new double[] { -17.7, 179.99 };  // straddles the antimeridian
+        offices = new ArrayList<>();
+        for (int i = 0; i < OFFICES; i++) {
+            double[] city = cities[random.nextInt(cities.length)];
+            offices.add(new OfficeLocation("o" + i, "Office " + i,
+                    city[0] + random.nextGaussian() * 0.05,
+                    wrap(city[1] + random.nextGaussian() * 0.05),
+                    50 + random.nextInt(450)));
+        }
+        index = new OfficeIndex(offices);
+
+        // Half the fixes near an office, the rest anywhere in its city
+        lats = new double[FIXES];
+        lngs = new double[FIXES];
+        for (int i = 0; i < FIXES; i++) {
+            if (i % 2 == 0) {
+                OfficeLocation o = offices.get(random.nextInt(OFFICES));
+                lats[i] = o.getLat() + random.nextGaussian() * 0.003;
+                lngs[i] = wrap(o.getLng() + random.nextGaussian() * 0.003);
+            } else {
+                double[] city = cities[random.nextInt(cities.length)];
+                lats[i] = city[0] + random.nextGaussian() * 0.1;
+                lngs[i] = wrap(city[1] + random.nextGaussian() * 0.1);
+            }
+        }
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        int matched = 0;
+        for (int i = 0; i < FIXES; i++) {
+            OfficeLocation legacy = Legacy.match(offices, lats[i], lngs[i]);
+            assertSame(legacy, index.match(lats[i], lngs[i]));
+            if (legacy != null) matched++;
+        }
+        // The fixes have to exercise both outcomes
+        assertTrue(matched > 0 && matched < FIXES);
+    }
+
+    @Test
+    public void matchesAcrossAntimeridianAndSkipsTombstones() {
+        OfficeLocation east = new OfficeLocation("east", "East", 0, 179.9995, 100);
+        OfficeLocation gone = new OfficeLocation("gone", "Gone", 10, 10, 100);
+        gone.setDeleted(true);
+        List<OfficeLocation> list = new ArrayList<>();
+        list.add(east);
+        list.add(gone);
+        OfficeIndex small = new OfficeIndex(list);
+
+        // 67 m away across the seam; 278 m needs the slack
+        assertSame(east, small.match(0, -179.9999));
+        assertNull(small.match(0, -179.998));
+        assertNull(small.match(10, 10));
+        assertSame(east, small.match(0, -179.998, 200));
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    public void allocatesNothingPerLookup() {
+        MicroBenchmark.assumeEnabled();
+        // The linear scan is a thousand times slower, so it gets a thousandth of the iterations
+        int linear = ITERATIONS / 1_000;
+        Result legacy = MicroBenchmark.measure(
+                i -> Legacy.match(offices, lats[i & (FIXES - 1)], lngs[i & (FIXES - 1)]) != null, linear, linear);
+        Result current = MicroBenchmark.measure(
+                i -> index.matchIndex(lats[i & (FIXES - 1)], lngs[i & (FIXES - 1)], 0) >= 0, WARMUP, ITERATIONS);
+
+        System.out.println(String.format(Locale.US,
+                "office lookup (%d offices)  linear %9.1f ns/op %5d B/op | k-d tree %7.1f ns/op %5d B/op",
+                OFFICES, legacy.nanosPerOp, legacy.bytesPerOp, current.nanosPerOp, current.bytesPerOp));
+
+        if (current.bytesPerOp >= 0) assertEquals(0, current.bytesPerOp);
+    }
+
+    private static double wrap(double lng) {
+        return lng > 180 ? lng - 360 : lng < -180 ? lng + 360 : lng;
+    }
+
+    // One distance per office, as checking the employee's office did
+    private static final class Legacy {
+        static OfficeLocation match(List<OfficeLocation> offices, double lat, double lng) {
+            OfficeLocation best = null;
+            double bestMeters = Double.POSITIVE_INFINITY;
+            for (OfficeLocation o : offices) {
+                double meters = GeofenceUtils.vincenty(lat, lng, o.getLat(), o.getLng());
+                if (meters <= OfficeIndex.radiusOf(o) && meters < bestMeters) {
+                    best = o;
+                    bestMeters = meters;
+                }
+            }
+            return best;
+        }
+    }
+}
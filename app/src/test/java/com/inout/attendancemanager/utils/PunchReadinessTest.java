@@ -0,0 +1,78 @@
+package com.inout.attendancemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PunchReadinessTest {
+
+    private static final GeofenceDecision.Verdict INSIDE = GeofenceDecision.Verdict.INSIDE;
+    private static final GeofenceDecision.Verdict OUTSIDE = GeofenceDecision.Verdict.OUTSIDE;
+
+    @Test
+    public void insideSettlesWithoutWaitingForTheScan() {
+        PunchReadiness r = new PunchReadiness(false, 1_000L, 20_000L);
+        PunchReadiness.Result result = r.onLocation(INSIDE, 2_500L);
+
+        assertNotNull(result);
+        assertTrue(result.ready);
+        assertEquals(PunchReadiness.Method.LOCATION, result.method);
+        assertEquals(1_500L, result.locationMs);
+        assertTrue(result.beaconCancelled());
+        // The stopped scan reporting afterwards changes nothing
+        assertSame(result, r.onBeacon(false, 3_000L));
+    }
+
+    @Test
+    public void beaconAloneSatisfiesABeaconPolicy() {
+        PunchReadiness r = new PunchReadiness(true, 0L, 20_000L);
+        PunchReadiness.Result result = r.onBeacon(true, 1_200L);
+
+        assertNotNull(result);
+        assertTrue(result.ready);
+        assertEquals(PunchReadiness.Method.BEACON, result.method);
+        assertTrue(result.locationCancelled());
+    }
+
+    @Test
+    public void beaconPolicyIgnoresLocation() {
+        PunchReadiness r = new PunchReadiness(true, 0L, 20_000L);
+        assertNull(r.onLocation(INSIDE, 500L));
+
+        PunchReadiness.Result result = r.onBeacon(false, 6_000L);
+        assertNotNull(result);
+        assertFalse(result.ready);
+        assertEquals(500L, result.locationMs);
+        assertEquals(6_000L, result.beaconMs);
+    }
+
+    @Test
+    public void outsideWaitsForTheBeacon() {
+        PunchReadiness r = new PunchReadiness(false, 0L, 20_000L);
+        assertNull(r.onLocation(OUTSIDE, 800L));
+
+        PunchReadiness.Result result = r.onBeacon(true, 4_000L);
+        assertNotNull(result);
+        assertTrue(result.ready);
+        assertEquals(PunchReadiness.Method.BEACON, result.method);
+
+        PunchReadiness neither = new PunchReadiness(false, 0L, 20_000L);
+        neither.onLocation(OUTSIDE, 800L);
+        assertFalse(neither.onBeacon(false, 6_000L).ready);
+    }
+
+    @Test
+    public void deadlineSettlesWhateverIsMissing() {
+        PunchReadiness r = new PunchReadiness(false, 0L, 20_000L);
+        r.onBeacon(false, 6_000L);
+        assertEquals(5_000L, r.remainingMs(15_000L));
+
+        PunchReadiness.Result result = r.onDeadline(20_000L);
+        assertFalse(result.ready);
+        assertTrue(result.timedOut);
+        assertTrue(result.locationCancelled());
+        assertEquals(0L, r.remainingMs(25_000L));
+        // A fix arriving late is too late
+        assertSame(result, r.onLocation(INSIDE, 21_000L));
+    }
+}